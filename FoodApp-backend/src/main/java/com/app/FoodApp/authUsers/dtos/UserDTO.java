@@ -1,5 +1,6 @@
 package com.app.FoodApp.authUsers.dtos;
 
+import com.app.FoodApp.image.entities.ImageVariants;
 import com.app.FoodApp.role.dtos.RoleDTO;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -20,6 +21,8 @@ public class UserDTO {
 
     private String profileUrl;
 
+    private ImageVariants profileVariants; // Resized copies of the profile image, once they are ready
+
     // Does not show password when returning the user
     // The field can be written to (deserialized) from incoming JSON,
     // but will not be included (serialized) in outgoing JSON.
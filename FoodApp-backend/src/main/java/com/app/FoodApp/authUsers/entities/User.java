@@ -1,6 +1,7 @@
 package com.app.FoodApp.authUsers.entities;
 
 import com.app.FoodApp.cart.entities.Cart;
+import com.app.FoodApp.image.entities.ImageVariants;
 import com.app.FoodApp.order.entities.Order;
 import com.app.FoodApp.payment.entities.Payment;
 import com.app.FoodApp.review.entities.Review;
@@ -39,6 +40,15 @@ public class User {
 
     private String profileUrl;
 
+    // Resized copies of the profile image, set by the image pipeline once they are stored
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "thumbnailUrl", column = @Column(name = "profile_thumbnail_url")),
+            @AttributeOverride(name = "cardUrl", column = @Column(name = "profile_card_url")),
+            @AttributeOverride(name = "detailUrl", column = @Column(name = "profile_detail_url"))
+    })
+    private ImageVariants profileVariants;
+
     private String address;
 
     private Boolean isActive;
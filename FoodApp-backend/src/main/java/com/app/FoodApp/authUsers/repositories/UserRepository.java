@@ -2,10 +2,29 @@ package com.app.FoodApp.authUsers.repositories;
 
 import com.app.FoodApp.authUsers.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Records the resized copies of a profile image, unless the image was replaced in the meantime
+    @Modifying
+    @Query("UPDATE User u SET u.profileVariants.thumbnailUrl = :thumbnailUrl, " +
+            "u.profileVariants.cardUrl = :cardUrl, u.profileVariants.detailUrl = :detailUrl " +
+            "WHERE u.id = :userId AND u.profileUrl = :profileUrl")
+    int updateProfileVariants(@Param("userId") Long userId,
+                              @Param("profileUrl") String profileUrl,
+                              @Param("thumbnailUrl") String thumbnailUrl,
+                              @Param("cardUrl") String cardUrl,
+                              @Param("detailUrl") String detailUrl);
+
+    // Profile image URLs still in use, for the storage garbage collector
+    @Query("SELECT u.profileUrl FROM User u WHERE u.profileUrl IS NOT NULL")
+    List<String> findAllProfileUrls();
 }
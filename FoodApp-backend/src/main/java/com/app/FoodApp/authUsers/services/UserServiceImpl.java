@@ -3,28 +3,33 @@ package com.app.FoodApp.authUsers.services;
 import com.app.FoodApp.authUsers.dtos.UserDTO;
 import com.app.FoodApp.authUsers.entities.User;
 import com.app.FoodApp.authUsers.repositories.UserRepository;
-import com.app.FoodApp.aws.AwsS3Service;
 import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
 import com.app.FoodApp.emailNofitication.services.NotificationService;
 import com.app.FoodApp.exceptions.BadRequestException;
 import com.app.FoodApp.exceptions.NotFoundException;
+import com.app.FoodApp.image.services.ImagePipeline;
 import com.app.FoodApp.response.Response;
 import com.app.FoodApp.role.entities.Role;
+import com.app.FoodApp.security.AuthUser;
+import com.app.FoodApp.security.PrincipalCache;
+import com.app.FoodApp.storage.services.ContentAddressedStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.modelmapper.TypeToken;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.net.URL;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 
 import static com.fasterxml.classmate.AnnotationOverrides.builder;
 
@@ -42,19 +47,37 @@ public class UserServiceImpl implements UserService {
     private final PasswordEncoder passwordEncoder;
     private final ModelMapper modelMapper;
     private final NotificationService notificationService;
-    private final AwsS3Service awsS3Service;
+    private final ContentAddressedStorage contentAddressedStorage;
+    private final ImagePipeline imagePipeline;
+    private final PrincipalCache principalCache;
+
+    // Runs the database part of an account update, after the profile image upload
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Retrieves the currently authenticated user from the security context.
+     * Reuses the user AuthFilter already put there instead of querying it again;
+     * it is shared through {@link PrincipalCache}, so callers must not modify it (see {@link #reloadCurrentUser()}).
      *
      * @return User entity of the logged-in account
      * @throws NotFoundException if no user is found for the logged-in email
      */
     @Override
     public User getCurrentLoggedInUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthUser authUser) {
+            return authUser.getUser();
+        }
+
+        return userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new NotFoundException("User not found"));
+    }
 
-        return userRepository.findByEmail(email)
+    /**
+     * Loads a fresh copy of the logged-in user for write paths, so changes never touch the cached principal.
+     */
+    private User reloadCurrentUser() {
+        return userRepository.findById(getCurrentLoggedInUser().getId())
                 .orElseThrow(() -> new NotFoundException("User not found"));
     }
 
@@ -104,6 +127,8 @@ public class UserServiceImpl implements UserService {
      * 4. Encode and update password if provided
      * 5. Update email if changed (with uniqueness check)
      * 6. Persist changes in database
+     * The image is uploaded first, without holding a database connection; the rest is one transaction,
+     * so a failed step also undoes the profile image swap.
      *
      * @param userDTO DTO containing updated user information
      * @return Response indicating update success
@@ -111,25 +136,21 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public Response<?> updateOwnAccount(UserDTO userDTO) {
-        User user = getCurrentLoggedInUser();
+        ContentAddressedStorage.StoredFile image = uploadProfileImage(userDTO.getImageFile());
+
+        return transactionTemplate.execute(status -> updateOwnAccount(userDTO, image));
+    }
+
+    private Response<?> updateOwnAccount(UserDTO userDTO, ContentAddressedStorage.StoredFile image) {
+        User user = reloadCurrentUser();
+        String previousEmail = user.getEmail();
         String profileUrl = user.getProfileUrl();
-        MultipartFile imageFile = userDTO.getImageFile();
+        String newProfileKey = null;
 
         // Step 2: Check if a new profile image is uploaded
-        if (imageFile != null && !imageFile.isEmpty()) {
-            // Delete old image in S3 if it exists
-            if (profileUrl != null && !profileUrl.isEmpty()) {
-                String keyName = profileUrl.substring(profileUrl.lastIndexOf("/") + 1);
-                awsS3Service.deleteFile("profile/" + keyName);
-            }
-
-            // Upload new image to S3 with a unique name
-            String originalName = imageFile.getOriginalFilename();
-            String safeName = originalName != null ? originalName.replaceAll("\\s+", "_") : "image";
-            String imageName = UUID.randomUUID() + "_" + safeName;
-            
-            URL newImageUrl = awsS3Service.uploadFile("profile/" + imageName, imageFile);
-            user.setProfileUrl(newImageUrl.toString());
+        if (image != null) {
+            // Reference the new image stored in S3 keyed by its content, then release the old one
+            newProfileKey = replaceProfileImage(user, profileUrl, image);
         }
 
         // Step 3: Update non-null fields
@@ -154,6 +175,8 @@ public class UserServiceImpl implements UserService {
 
         // Step 6: Persist updated user entity
         userRepository.save(user);
+        invalidatePrincipalsAfterCommit(previousEmail, user.getEmail());
+        resizeProfileImage(user, newProfileKey, userDTO.getImageFile());
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -172,9 +195,10 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public Response<?> deactivateOwnAccount() {
-        User user = getCurrentLoggedInUser();
+        User user = reloadCurrentUser();
         user.setIsActive(false);
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
 
         // Step 3: Send deactivation email notification
         NotificationDTO notificationDTO = NotificationDTO.builder()
@@ -183,7 +207,7 @@ public class UserServiceImpl implements UserService {
                 .body("Your account has been deactivated. If this was a mistake, please contact support.")
                 .build();
 
-        notificationService.sendEmail(notificationDTO);
+        notificationService.enqueueEmail(notificationDTO);
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -193,6 +217,7 @@ public class UserServiceImpl implements UserService {
 
     /**
      * Updates any user’s account (admin only).
+     * Like {@link #updateOwnAccount(UserDTO)}, the image is uploaded before the transaction starts.
      *
      * @param userId ID of the user to update
      * @param userDTO DTO with updated details
@@ -200,25 +225,22 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public Response<?> updateUserAsAdmin(Long userId, UserDTO userDTO) {
+        ContentAddressedStorage.StoredFile image = uploadProfileImage(userDTO.getImageFile());
+
+        return transactionTemplate.execute(status -> updateUserAsAdmin(userId, userDTO, image));
+    }
+
+    private Response<?> updateUserAsAdmin(Long userId, UserDTO userDTO, ContentAddressedStorage.StoredFile image) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User not found"));
+        String previousEmail = user.getEmail();
 
         String profileUrl = user.getProfileUrl();
-        MultipartFile imageFile = userDTO.getImageFile();
+        String newProfileKey = null;
 
         // Handle profile image replacement
-        if (imageFile != null && !imageFile.isEmpty()) {
-            if (profileUrl != null && !profileUrl.isEmpty()) {
-                String keyName = profileUrl.substring(profileUrl.lastIndexOf("/") + 1);
-                awsS3Service.deleteFile("profile/" + keyName);
-            }
-
-            String originalName = imageFile.getOriginalFilename();
-            String safeName = originalName != null ? originalName.replaceAll("\\s+", "_") : "image";
-            String imageName = UUID.randomUUID() + "_" + safeName;
-
-            URL newImageUrl = awsS3Service.uploadFile("profile/" + imageName, imageFile);
-            user.setProfileUrl(newImageUrl.toString());
+        if (image != null) {
+            newProfileKey = replaceProfileImage(user, profileUrl, image);
         }
 
         // Update basic fields
@@ -250,6 +272,8 @@ public class UserServiceImpl implements UserService {
 
         user.setUpdatedAt(LocalDateTime.now());
         userRepository.save(user);
+        invalidatePrincipalsAfterCommit(previousEmail, user.getEmail());
+        resizeProfileImage(user, newProfileKey, userDTO.getImageFile());
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -270,4 +294,74 @@ public class UserServiceImpl implements UserService {
                 .build();
     }
 
+    /**
+     * Queues a newly uploaded profile image for resizing; the copies are recorded on the user once ready.
+     */
+    private void resizeProfileImage(User user, String profileKey, MultipartFile imageFile) {
+        if (profileKey == null) {
+            return;
+        }
+
+        Long userId = user.getId();
+        String profileUrl = user.getProfileUrl();
+        String email = user.getEmail();
+        imagePipeline.submit(profileKey, imageFile, variants -> {
+            int updated = userRepository.updateProfileVariants(userId, profileUrl,
+                    variants.getThumbnailUrl(), variants.getCardUrl(), variants.getDetailUrl());
+            if (updated > 0) {
+                invalidatePrincipalsAfterCommit(email);
+            }
+        });
+    }
+
+    /**
+     * Drops cached principals once the transaction commits, so a concurrent request cannot cache the old
+     * row again in between.
+     */
+    private void invalidatePrincipalsAfterCommit(String... emails) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String email : emails) {
+                    principalCache.invalidate(email);
+                }
+            }
+        });
+    }
+
+    /**
+     * Uploads a new profile image to S3 under "profile/", keyed by its content, outside any transaction.
+     *
+     * @return the uploaded image, or null when none was sent
+     */
+    private ContentAddressedStorage.StoredFile uploadProfileImage(MultipartFile imageFile) {
+        if (imageFile == null || imageFile.isEmpty()) {
+            return null;
+        }
+        return contentAddressedStorage.upload("profile/", imageFile);
+    }
+
+    /**
+     * References a newly uploaded profile image and releases the previous one (deleted from S3 with its
+     * resized copies when no other account uses it).
+     *
+     * @return key of the new image to resize, or null when it is the image the user already has
+     */
+    private String replaceProfileImage(User user, String profileUrl, ContentAddressedStorage.StoredFile image) {
+        contentAddressedStorage.reference(image);
+
+        String previousKey = contentAddressedStorage.keyOf(profileUrl);
+        if (previousKey != null) {
+            contentAddressedStorage.release(previousKey, ImagePipeline.variantKeys(previousKey));
+        } else if (profileUrl != null && !profileUrl.isEmpty()) {
+            log.warn("Profile image {} is not in our storage, not deleted", profileUrl);
+        }
+
+        if (image.url().toString().equals(profileUrl)) {
+            return null;
+        }
+        user.setProfileUrl(image.url().toString());
+        user.setProfileVariants(null);
+        return image.key();
+    }
 }
@@ -3,6 +3,7 @@ package com.app.FoodApp.aws;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
@@ -10,8 +11,10 @@ import software.amazon.awssdk.services.s3.S3Client;
 
 //This AwsConfig class is a Spring @Configuration that
 // creates and registers beans to interact with Amazon S3 using the AWS SDK v2.
+// Not loaded with the local-storage profile, which keeps files on disk instead (no AWS needed).
 
 @Configuration
+@Profile("!local-storage")
 public class AwsConfig {
     @Value("${aws.s3.region}")
     private String awsRegion;
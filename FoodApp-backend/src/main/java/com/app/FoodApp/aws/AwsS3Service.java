@@ -3,8 +3,30 @@ package com.app.FoodApp.aws;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.net.URL;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.stream.Stream;
 
+/**
+ * Storage for uploaded images. Backed by S3, or by the local filesystem with the local-storage profile.
+ */
 public interface AwsS3Service {
     URL uploadFile(String keyName, MultipartFile file);
+    URL uploadBytes(String keyName, byte[] content, String contentType);
     void deleteFile(String keyName);
+
+    // Deletes all keys, in as few requests as the backend allows; returns how many were deleted
+    int deleteFiles(Collection<String> keyNames);
+
+    // Every object whose key starts with the prefix; close the stream when done
+    Stream<ListedObject> listFiles(String prefix);
+
+    // URL the object under this key is served from, whether or not it exists
+    URL urlOf(String keyName);
+
+    // Key of the object a URL from urlOf points at, or null when the URL is not from this storage
+    String keyOf(String url);
+
+    record ListedObject(String key, Instant lastModified) {
+    }
 }
@@ -3,19 +3,37 @@ package com.app.FoodApp.aws;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Service
+@Profile("!local-storage")
 @Slf4j
 @RequiredArgsConstructor
 public class AwsS3ServiceImpl implements AwsS3Service {
+    private static final long MB = 1024 * 1024;
+    private static final long MAX_PARTS = 10_000;
+    // Most keys a single DeleteObjects request accepts
+    private static final int MAX_DELETE_BATCH = 1000;
 
     // AWS S3 client injected via constructor (thanks to @RequiredArgsConstructor)
     private final S3Client s3Client;
@@ -24,8 +42,18 @@ public class AwsS3ServiceImpl implements AwsS3Service {
     @Value("${aws.s3.bucket}")
     private String bucketName;
 
+    // Files above this size are sent as a multipart upload
+    @Value("${aws.s3.multipart-threshold-mb:8}")
+    private long multipartThresholdMb;
+
+    // Size of each part of a multipart upload (S3 requires at least 5 MB for all but the last part)
+    @Value("${aws.s3.part-size-mb:5}")
+    private long partSizeMb;
+
     /**
      * Uploads a file to the configured S3 bucket.
+     * The content is streamed from the multipart file (kept on disk by the servlet container), never loaded
+     * into the heap as a whole; large files go up in parts.
      *
      * @param keyName the name (path) of the object in the S3 bucket
      * @param file the file to upload (Spring MultipartFile)
@@ -35,21 +63,26 @@ public class AwsS3ServiceImpl implements AwsS3Service {
     public URL uploadFile(String keyName, MultipartFile file) {
         log.info("Uploading file");
 
-        try {
-            // Build request to put (upload) object into S3
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)                 // target bucket
-                    .key(keyName)                       // object key (file path in S3)
-                    .contentType(file.getContentType()) // MIME type of the file
-                    .build();
+        try (InputStream content = file.getInputStream()) {
+            long size = file.getSize();
+
+            if (size > multipartThresholdMb * MB) {
+                uploadInParts(keyName, file.getContentType(), content, size);
+            } else {
+                // Build request to put (upload) object into S3
+                PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                        .bucket(bucketName)                 // target bucket
+                        .key(keyName)                       // object key (file path in S3)
+                        .contentType(file.getContentType()) // MIME type of the file
+                        .contentLength(size)
+                        .build();
 
-            // Upload the file contents as bytes
-            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(file.getBytes()));
+                // Stream the file contents; the known length lets the SDK send them without buffering
+                s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(content, size));
+            }
 
             // Generate a pre-signed URL pointing to the uploaded object
-            return s3Client.utilities().getUrl(builder -> builder
-                    .bucket(bucketName)
-                    .key(keyName));
+            return urlOf(keyName);
         }
         catch (Exception ex) {
             // Wrap and rethrow any exception as RuntimeException
@@ -57,6 +90,91 @@ public class AwsS3ServiceImpl implements AwsS3Service {
         }
     }
 
+    /**
+     * Uploads small generated content (e.g. resized image variants) that is already in memory.
+     */
+    @Override
+    public URL uploadBytes(String keyName, byte[] content, String contentType) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyName)
+                .contentType(contentType)
+                .build();
+
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(content));
+
+        return urlOf(keyName);
+    }
+
+    @Override
+    public URL urlOf(String keyName) {
+        return s3Client.utilities().getUrl(builder -> builder
+                .bucket(bucketName)
+                .key(keyName));
+    }
+
+    /**
+     * Object URLs are the bucket URL followed by the encoded key, so the key is whatever follows the bucket URL.
+     */
+    @Override
+    public String keyOf(String url) {
+        String marker = urlOf("_").toString();
+        String base = marker.substring(0, marker.length() - 1);
+        if (url == null || !url.startsWith(base) || url.length() == base.length()) {
+            return null;
+        }
+        return UriUtils.decode(url.substring(base.length()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends the content as a multipart upload, reading one part at a time from the stream.
+     * A failed upload is aborted so S3 does not keep (and bill) its parts.
+     */
+    private void uploadInParts(String keyName, String contentType, InputStream content, long size) {
+        // Parts grow for very large files to stay within the S3 limit on the number of parts
+        long partSize = Math.max(partSizeMb * MB, (size + MAX_PARTS - 1) / MAX_PARTS);
+
+        String uploadId = s3Client.createMultipartUpload(builder -> builder
+                .bucket(bucketName)
+                .key(keyName)
+                .contentType(contentType)).uploadId();
+
+        try {
+            List<CompletedPart> completedParts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                int number = partNumber;
+
+                UploadPartResponse response = s3Client.uploadPart(builder -> builder
+                                .bucket(bucketName)
+                                .key(keyName)
+                                .uploadId(uploadId)
+                                .partNumber(number)
+                                .contentLength(length),
+                        RequestBody.fromInputStream(new PartInputStream(content, length), length));
+
+                completedParts.add(CompletedPart.builder().partNumber(number).eTag(response.eTag()).build());
+            }
+
+            s3Client.completeMultipartUpload(builder -> builder
+                    .bucket(bucketName)
+                    .key(keyName)
+                    .uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(completedParts)));
+            log.info("File {} uploaded in {} parts", keyName, completedParts.size());
+        }
+        catch (RuntimeException ex) {
+            try {
+                s3Client.abortMultipartUpload(builder -> builder.bucket(bucketName).key(keyName).uploadId(uploadId));
+            }
+            catch (Exception abortEx) {
+                log.warn("Could not abort upload of {}: {}", keyName, abortEx.getMessage());
+            }
+            throw ex;
+        }
+    }
+
     /**
      * Deletes a file from the configured S3 bucket.
      *
@@ -76,4 +194,83 @@ public class AwsS3ServiceImpl implements AwsS3Service {
         // Log deletion success
         log.info("File {} deleted from bucket {}", keyName, bucketName);
     }
+
+    /**
+     * Deletes keys with DeleteObjects, up to 1000 per request. Keys S3 could not delete are logged and skipped.
+     */
+    @Override
+    public int deleteFiles(Collection<String> keyNames) {
+        List<ObjectIdentifier> objects = keyNames.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+
+        int deleted = 0;
+        for (int from = 0; from < objects.size(); from += MAX_DELETE_BATCH) {
+            List<ObjectIdentifier> batch = objects.subList(from, Math.min(from + MAX_DELETE_BATCH, objects.size()));
+            // Quiet mode: the response only lists the keys that failed
+            DeleteObjectsResponse response = s3Client.deleteObjects(builder -> builder
+                    .bucket(bucketName)
+                    .delete(delete -> delete.objects(batch).quiet(true)));
+
+            response.errors().forEach(error ->
+                    log.warn("Could not delete file {} from bucket {}: {}", error.key(), bucketName, error.message()));
+            deleted += batch.size() - response.errors().size();
+        }
+
+        log.info("{} files deleted from bucket {}", deleted, bucketName);
+        return deleted;
+    }
+
+    /**
+     * Lists objects page by page (1000 keys per request) as the stream is consumed.
+     */
+    @Override
+    public Stream<ListedObject> listFiles(String prefix) {
+        return s3Client.listObjectsV2Paginator(builder -> builder.bucket(bucketName).prefix(prefix))
+                .contents()
+                .stream()
+                .map(object -> new ListedObject(object.key(), object.lastModified()));
+    }
+
+    /**
+     * The next {@code length} bytes of the underlying stream, which is left open for the following parts.
+     */
+    private static final class PartInputStream extends InputStream {
+        private final InputStream content;
+        private long remaining;
+
+        PartInputStream(InputStream content, long length) {
+            this.content = content;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = content.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = content.read(buffer, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // The underlying stream is closed once all parts are sent
+        }
+    }
 }
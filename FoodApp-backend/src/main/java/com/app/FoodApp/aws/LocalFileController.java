@@ -0,0 +1,34 @@
+package com.app.FoodApp.aws;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves files stored by {@link LocalFileStorageServiceImpl}, with HTTP range support.
+ * Public like the S3 objects it stands in for.
+ */
+@RestController
+@Profile("local-storage")
+@RequiredArgsConstructor
+@RequestMapping("/api/files")
+public class LocalFileController {
+    private static final String PREFIX = "/api/files/";
+
+    private final LocalFileStorageServiceImpl localFileStorageService;
+
+    @GetMapping("/**")
+    public void getFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String keyName = UriUtils.decode(path.substring(PREFIX.length()), StandardCharsets.UTF_8);
+        localFileStorageService.serve(keyName, request, response);
+    }
+}
@@ -0,0 +1,281 @@
+package com.app.FoodApp.aws;
+
+import com.app.FoodApp.exceptions.BadRequestException;
+import com.app.FoodApp.exceptions.NotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stores uploaded files on the local filesystem instead of S3, for local and offline (load) testing.
+ * Active with the {@code local-storage} profile; files are served back by {@link LocalFileController}.
+ * <p>
+ * Content is moved between channels with {@code transferFrom}/{@code transferTo}, so the kernel copies it
+ * (disk to disk on upload, disk to socket via Tomcat's sendfile when serving) without passing through the heap.
+ */
+@Service
+@Profile("local-storage")
+@Slf4j
+public class LocalFileStorageServiceImpl implements AwsS3Service {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalFileStorageServiceImpl(@Value("${storage.local.root}") String root,
+                                       @Value("${storage.local.base-url}") String baseUrl) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        Files.createDirectories(this.root);
+        log.info("Storing uploaded files in {}", this.root);
+    }
+
+    /**
+     * Writes the file under the given key, replacing an existing one.
+     * The content goes to a temporary file first, so a reader never sees a partly written file.
+     */
+    @Override
+    public URL uploadFile(String keyName, MultipartFile file) {
+        Path target = resolve(keyName);
+
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+
+            try (InputStream content = file.getInputStream();
+                 // Files spooled to disk by the servlet container are copied file to file
+                 ReadableByteChannel source = content instanceof FileInputStream fileStream
+                         ? fileStream.getChannel()
+                         : Channels.newChannel(content);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+
+                long size = file.getSize();
+                long position = 0;
+                while (position < size) {
+                    long written = out.transferFrom(source, position, size - position);
+                    if (written <= 0) {
+                        break;
+                    }
+                    position += written;
+                }
+            }
+            catch (IOException | RuntimeException ex) {
+                Files.deleteIfExists(temp);
+                throw ex;
+            }
+
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return urlOf(keyName);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Could not store file " + keyName, ex);
+        }
+    }
+
+    @Override
+    public URL uploadBytes(String keyName, byte[] content, String contentType) {
+        Path target = resolve(keyName);
+
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return urlOf(keyName);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Could not store file " + keyName, ex);
+        }
+    }
+
+    @Override
+    public void deleteFile(String keyName) {
+        try {
+            Files.deleteIfExists(resolve(keyName));
+            log.info("File {} deleted from {}", keyName, root);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Could not delete file " + keyName, ex);
+        }
+    }
+
+    @Override
+    public int deleteFiles(Collection<String> keyNames) {
+        keyNames.forEach(this::deleteFile);
+        return keyNames.size();
+    }
+
+    @Override
+    public Stream<ListedObject> listFiles(String prefix) {
+        Path directory = resolve(prefix);
+        if (!Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+
+        try {
+            return Files.walk(directory)
+                    .filter(Files::isRegularFile)
+                    .map(file -> new ListedObject(keyOf(file), lastModified(file)));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Could not list files under " + prefix, ex);
+        }
+    }
+
+    @Override
+    public String keyOf(String url) {
+        if (url == null || !url.startsWith(baseUrl) || url.length() == baseUrl.length()) {
+            return null;
+        }
+        return UriUtils.decode(url.substring(baseUrl.length()), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public URL urlOf(String keyName) {
+        try {
+            return URI.create(baseUrl + UriUtils.encodePath(keyName, StandardCharsets.UTF_8)).toURL();
+        }
+        catch (MalformedURLException ex) {
+            throw new IllegalArgumentException("Invalid file key " + keyName, ex);
+        }
+    }
+
+    /**
+     * Writes a stored file, or the single byte range the request asks for, to the response.
+     * Multiple ranges are answered with the whole file, which HTTP allows.
+     */
+    public void serve(String keyName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = resolve(keyName);
+        if (!Files.isRegularFile(file)) {
+            throw new NotFoundException("File not found");
+        }
+
+        long size = Files.size(file);
+        long start = 0;
+        long end = size - 1;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            }
+            catch (IllegalArgumentException ex) {
+                ranges = List.of();
+            }
+
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.getFirst();
+                if (size == 0 || !satisfiable(range, size)) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                start = range.getRangeStart(size);
+                end = range.getRangeEnd(size);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(length);
+        if (length <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat sends the file straight from the page cache to the socket once the request returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = in.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private String keyOf(Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    private static Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean satisfiable(HttpRange range, long size) {
+        try {
+            return range.getRangeStart(size) < size;
+        }
+        catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Maps a key to a path under the storage root, rejecting keys that would escape it.
+     */
+    private Path resolve(String keyName) {
+        if (keyName == null || keyName.isBlank()) {
+            throw new BadRequestException("File key is required");
+        }
+        Path path = root.resolve(keyName).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new BadRequestException("Invalid file key");
+        }
+        return path;
+    }
+}
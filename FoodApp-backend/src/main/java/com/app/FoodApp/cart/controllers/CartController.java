@@ -1,8 +1,10 @@
 package com.app.FoodApp.cart.controllers;
 
 import com.app.FoodApp.cart.dtos.CartDTO;
+import com.app.FoodApp.cart.dtos.CartPatchDTO;
 import com.app.FoodApp.cart.services.CartService;
 import com.app.FoodApp.response.Response;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -38,6 +40,21 @@ public class CartController {
         return ResponseEntity.ok(cartService.getShoppingCart());
     }
 
+    @PatchMapping
+    public ResponseEntity<Response<CartDTO>> updateCart(@RequestBody @Valid CartPatchDTO cartPatchDTO) {
+        return ResponseEntity.ok(cartService.updateCart(cartPatchDTO));
+    }
+
+    @PutMapping("/promo/{code}")
+    public ResponseEntity<Response<CartDTO>> applyPromoCode(@PathVariable String code) {
+        return ResponseEntity.ok(cartService.applyPromoCode(code));
+    }
+
+    @DeleteMapping("/promo")
+    public ResponseEntity<Response<CartDTO>> removePromoCode() {
+        return ResponseEntity.ok(cartService.removePromoCode());
+    }
+
     @DeleteMapping
     public ResponseEntity<Response<?>> clearShoppingCart() {
         return ResponseEntity.ok(cartService.clearShoppingCart());
@@ -20,4 +20,14 @@ public class CartDTO {
     private int quantity;
 
     private BigDecimal totalAmount;
+
+    private Integer itemCount; // Sum of item quantities
+
+    private String promoCode;
+
+    private BigDecimal discountAmount;
+
+    private BigDecimal payableAmount; // Total after the promo discount
+
+    private String promoMessage; // Why the promo code does not apply (yet)
 }
@@ -0,0 +1,32 @@
+package com.app.FoodApp.cart.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One change in a batch cart update (PATCH /api/cart).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CartOperationDTO {
+    public enum Type {
+        ADD,          // add quantity to the item, creating it if needed
+        SET_QUANTITY, // set the item's quantity, 0 removes it
+        REMOVE
+    }
+
+    @NotNull(message = "Operation type is required")
+    private Type type;
+
+    @NotNull(message = "Menu ID is required")
+    private Long menuId;
+
+    private int quantity; // ignored for REMOVE
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.List;
 
@@ -28,4 +29,18 @@ public class Cart {
     private List<CartItem> cartItems;
 
     private String promoCode;
+
+    // Running totals kept by the cart engine (money in minor units), so nothing is summed on read.
+    // @ColumnDefault rather than columnDefinition: Hibernate casts the delta update's parameters to the column type
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long totalMinor;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int itemCount;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long version;
 }
@@ -11,7 +11,8 @@ import java.math.BigDecimal;
 
 @Entity
 @Data
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints =
+        @UniqueConstraint(name = "uk_cart_items_cart_menu", columnNames = {"cart_id", "menu_id"}))
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
@@ -33,4 +34,9 @@ public class CartItem {
     private BigDecimal pricePerUnit; // Store price here to avoid changes if Menu price changes
 
     private BigDecimal subtotal;
+
+    // Optimistic locking between instances; the cart engine's bulk writes check and bump it too
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long version;
 }
@@ -2,6 +2,55 @@ package com.app.FoodApp.cart.repositories;
 
 import com.app.FoodApp.cart.entities.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    // Write-behind flush of one item, no need to load the row first. Returns 0 if the version moved on
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.quantity = :quantity, ci.pricePerUnit = :pricePerUnit, ci.subtotal = :subtotal, " +
+            "ci.version = ci.version + 1 WHERE ci.id = :id AND ci.version = :version")
+    int updateLine(@Param("id") Long id,
+                   @Param("quantity") int quantity,
+                   @Param("pricePerUnit") BigDecimal pricePerUnit,
+                   @Param("subtotal") BigDecimal subtotal,
+                   @Param("version") long version);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.id = :id AND ci.version = :version")
+    int deleteLine(@Param("id") Long id, @Param("version") long version);
+
+    @Query("SELECT ci.quantity AS quantity, ci.version AS version FROM CartItem ci WHERE ci.id = :id")
+    Optional<StoredLine> findStoredLine(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
+    int deleteByCartId(@Param("cartId") Long cartId);
+
+    // Items of a cart in one query, without loading their menus
+    @Query("SELECT ci.menu.id AS menuId, ci.quantity AS quantity, ci.pricePerUnit AS pricePerUnit, " +
+            "ci.subtotal AS subtotal FROM CartItem ci WHERE ci.cart.id = :cartId ORDER BY ci.id")
+    List<CheckoutLine> findCheckoutLines(@Param("cartId") Long cartId);
+
+    interface StoredLine {
+        int getQuantity();
+
+        long getVersion();
+    }
+
+    interface CheckoutLine {
+        Long getMenuId();
+
+        int getQuantity();
+
+        BigDecimal getPricePerUnit();
+
+        BigDecimal getSubtotal();
+    }
 }
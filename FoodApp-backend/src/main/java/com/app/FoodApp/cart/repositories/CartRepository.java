@@ -2,9 +2,47 @@ package com.app.FoodApp.cart.repositories;
 
 import com.app.FoodApp.cart.entities.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
+
+    // One statement, so the totals and the items are read from the same committed state
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems WHERE c.user.id = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+
+    // Checkout reads the cart row without its user and items
+    @Query("SELECT c.id AS id, c.totalMinor AS totalMinor, c.itemCount AS itemCount, c.promoCode AS promoCode " +
+            "FROM Cart c WHERE c.user.id = :userId")
+    Optional<CartSummary> findSummaryByUserId(@Param("userId") Long userId);
+
+    // Applies total changes as deltas, so instances writing the same cart add up instead of overwriting
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalMinor = c.totalMinor + :totalDelta, c.itemCount = c.itemCount + :countDelta, " +
+            "c.version = c.version + 1 WHERE c.id = :id")
+    int addToTotals(@Param("id") Long id, @Param("totalDelta") long totalDelta, @Param("countDelta") int countDelta);
+
+    @Modifying
+    @Query("UPDATE Cart c SET c.promoCode = :promoCode, c.version = c.version + 1 WHERE c.id = :id")
+    int updatePromoCode(@Param("id") Long id, @Param("promoCode") String promoCode);
+
+    // Empties the cart row once its items are deleted
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalMinor = 0, c.itemCount = 0, c.promoCode = NULL, c.version = c.version + 1 " +
+            "WHERE c.id = :id")
+    int resetCart(@Param("id") Long id);
+
+    interface CartSummary {
+        Long getId();
+
+        long getTotalMinor();
+
+        int getItemCount();
+
+        String getPromoCode();
+    }
 }
@@ -0,0 +1,796 @@
+package com.app.FoodApp.cart.services;
+
+import com.app.FoodApp.authUsers.entities.User;
+import com.app.FoodApp.cart.dtos.CartOperationDTO;
+import com.app.FoodApp.cart.entities.Cart;
+import com.app.FoodApp.cart.entities.CartItem;
+import com.app.FoodApp.cart.repositories.CartItemRepository;
+import com.app.FoodApp.cart.repositories.CartRepository;
+import com.app.FoodApp.exceptions.BadRequestException;
+import com.app.FoodApp.exceptions.NotFoundException;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Keeps the carts of active users in memory, indexed by menu ID, so cart mutations are O(1) map updates.
+ * New items are inserted right away (they need their row ID); quantity changes and removals are
+ * written behind: a cart clicked ten times is flushed as one update per changed item.
+ * A batch of changes ({@link #apply(User, List)}) takes the lock once and inserts its new items together.
+ * Each cart keeps its total (in minor units) and item count up to date by deltas, so reads never sum items.
+ * Checkout calls {@link #flush(Long)} so the order is built from the current cart.
+ * Idle carts are flushed and dropped from memory.
+ * <p>
+ * Requests of the same user (several tabs) are serialized by a striped lock, no database row locks involved.
+ * Between instances, rows are versioned: a flush that finds a row changed by someone else re-applies its own
+ * quantity change on top of the stored one, and a duplicate insert reloads the cart and retries.
+ * A crash loses at most one flush interval of quantity changes.
+ */
+@Component
+@Slf4j
+public class CartEngine {
+    // Power of two; users are spread over the stripes by ID
+    private static final int LOCK_STRIPES = 256;
+
+    // Tries for a write that keeps losing against concurrent changes from another instance
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final MenuRepository menuRepository;
+    private final MenuCatalogCache menuCatalogCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long idleMillis;
+
+    // userId -> hot cart; a cart is only read or changed under its user's stripe lock
+    private final ConcurrentHashMap<Long, HotCart> carts = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private final Counter flushedItems;
+    private final Counter conflicts;
+
+    public CartEngine(CartRepository cartRepository,
+                      CartItemRepository cartItemRepository,
+                      MenuRepository menuRepository,
+                      MenuCatalogCache menuCatalogCache,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${cart.engine.idle-minutes:15}") long idleMinutes,
+                      MeterRegistry meterRegistry) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.menuRepository = menuRepository;
+        this.menuCatalogCache = menuCatalogCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.idleMillis = idleMinutes * 60_000;
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        this.flushedItems = Counter.builder("cart.engine.flushed.items").register(meterRegistry);
+        this.conflicts = Counter.builder("cart.engine.conflicts").register(meterRegistry);
+        Gauge.builder("cart.engine.carts", carts, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Adds a quantity of a menu to the user's cart, creating the cart if needed.
+     */
+    public CartView add(User user, Long menuId, int quantity) {
+        return apply(user, List.of(new CartOperationDTO(CartOperationDTO.Type.ADD, menuId, quantity)));
+    }
+
+    /**
+     * Applies a batch of operations in order under one lock, all or nothing.
+     * Items new to the cart are inserted together in one transaction; all other changes are written behind.
+     * If another instance inserted one of the items first, the cart is reloaded and the batch retried.
+     */
+    public CartView apply(User user, List<CartOperationDTO> operations) {
+        Map<Long, MenuSummaryDTO> menus = menuCatalogCache.snapshot().byId();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return update(user.getId(), user, cart -> applyAll(cart, operations, menus));
+            }
+            catch (DataIntegrityViolationException ex) {
+                conflicts.increment();
+                // Inside a caller's transaction the failed insert already doomed it, nothing to retry
+                if (attempt == MAX_ATTEMPTS || TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw new OptimisticLockingFailureException("Cart was changed concurrently, please try again", ex);
+                }
+                reload(user.getId());
+            }
+        }
+    }
+
+    public CartView increment(Long userId, Long menuId) {
+        return update(userId, null, cart -> {
+            Line line = cart.line(menuId);
+            cart.changeQuantity(line, line.quantity + 1);
+            return cart.view();
+        });
+    }
+
+    /**
+     * Decrements an item by one, removing it once the quantity reaches zero.
+     */
+    public CartView decrement(Long userId, Long menuId) {
+        return update(userId, null, cart -> {
+            Line line = cart.line(menuId);
+            if (line.quantity > 1) {
+                cart.changeQuantity(line, line.quantity - 1);
+            } else {
+                cart.remove(line);
+            }
+            return cart.view();
+        });
+    }
+
+    public CartView remove(Long userId, Long cartItemId) {
+        return update(userId, null, cart -> {
+            Line line = cart.lines.values().stream()
+                    .filter(candidate -> candidate.cartItemId.equals(cartItemId))
+                    .findFirst()
+                    .orElseThrow(() -> new NotFoundException("Cart item not found"));
+            cart.remove(line);
+            return cart.view();
+        });
+    }
+
+    /**
+     * Sets or (with null) removes the promo code of the user's cart. Written through, the code is rare to change.
+     */
+    public CartView setPromoCode(Long userId, String promoCode) {
+        return update(userId, null, cart -> {
+            write(cart, () -> cartRepository.updatePromoCode(cart.cartId, promoCode));
+            cart.promoCode = promoCode;
+            return cart.view();
+        });
+    }
+
+    /**
+     * Deletes every item of the user's cart and drops its promo code. Joins the caller's transaction,
+     * so clearing the cart at checkout commits or rolls back together with the order.
+     */
+    public void clear(Long userId) {
+        update(userId, null, cart -> {
+            write(cart, () -> {
+                cartItemRepository.deleteByCartId(cart.cartId);
+                cartRepository.resetCart(cart.cartId);
+            });
+            cart.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Checkout's clear: deletes the items of a cart the caller has already read, without loading it.
+     * Joins the caller's transaction; a hot copy of the cart is emptied with it (and restored on rollback).
+     */
+    public void clear(Long userId, Long cartId) {
+        Runnable delete = () -> {
+            cartItemRepository.deleteByCartId(cartId);
+            cartRepository.resetCart(cartId);
+        };
+
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            HotCart cart = carts.get(userId);
+            if (cart == null) {
+                transactionTemplate.executeWithoutResult(status -> delete.run());
+            } else {
+                write(cart, delete);
+                cart.clear();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the user's cart, or empty if the user has none.
+     */
+    public Optional<CartView> find(Long userId) {
+        try {
+            return Optional.of(update(userId, null, HotCart::view));
+        }
+        catch (NotFoundException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes pending changes of the user's cart now. Joins the caller's transaction;
+     * if that rolls back, the changes stay pending.
+     */
+    public void flush(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            HotCart cart = carts.get(userId);
+            if (cart != null) {
+                flush(cart);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write-behind: flushes every dirty cart, then drops carts that have been idle for too long.
+     */
+    @Scheduled(fixedDelayString = "${cart.engine.flush-interval-ms:1000}")
+    public void flushAll() {
+        long idleSince = System.currentTimeMillis() - idleMillis;
+
+        for (Long userId : carts.keySet()) {
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                HotCart cart = carts.get(userId);
+                if (cart == null) {
+                    continue;
+                }
+
+                try {
+                    flush(cart);
+                }
+                catch (Exception ex) {
+                    // Stays dirty and is retried on the next run
+                    log.warn("Could not flush cart {}: {}", cart.cartId, ex.getMessage());
+                    continue;
+                }
+
+                if (cart.lastAccess < idleSince) {
+                    carts.remove(userId);
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies a change to the user's hot cart under the user's lock, loading the cart first if needed.
+     * With a user to create it for, a missing cart is created; otherwise it is a NotFoundException.
+     */
+    private <T> T update(Long userId, User creator, Function<HotCart, T> change) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            HotCart cart = carts.get(userId);
+            if (cart == null) {
+                cart = load(userId);
+                if (cart == null) {
+                    if (creator == null) {
+                        throw new NotFoundException("Cart not found");
+                    }
+                    createCart(creator);
+                    cart = load(userId);
+                }
+                carts.put(userId, cart);
+            }
+
+            cart.lastAccess = System.currentTimeMillis();
+            return change.apply(cart);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long userId) {
+        return locks[Long.hashCode(userId) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Writes what is pending and drops the cart, so the next access reads it fresh from the database.
+     */
+    private void reload(Long userId) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            HotCart cart = carts.remove(userId);
+            if (cart != null) {
+                flush(cart);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private HotCart load(Long userId) {
+        return readOnlyTransaction.execute(status -> cartRepository.findWithItemsByUserId(userId)
+                .map(cart -> {
+                    HotCart hot = new HotCart(userId, cart.getId(), cart.getTotalMinor(), cart.getItemCount(),
+                            cart.getPromoCode());
+                    for (CartItem item : cart.getCartItems()) {
+                        Long menuId = item.getMenu().getId();
+                        Line stored = new Line(item.getId(), menuId, item.getQuantity(),
+                                MinorUnits.of(item.getPricePerUnit()), item.getVersion());
+                        Line line = hot.lines.get(menuId);
+                        if (line == null) {
+                            hot.lines.put(menuId, stored);
+                        } else {
+                            // Carts from before the unique constraint may hold the same menu twice, fold it
+                            // into one row. The extra row is keyed by its negated ID so it never clashes with a menu ID
+                            line.quantity += stored.quantity;
+                            line.dirty = true;
+                            stored.quantity = 0;
+                            stored.dirty = true;
+                            hot.removed.put(-item.getId(), stored);
+                        }
+                    }
+                    hot.reconcileTotals();
+                    return hot;
+                })
+                .orElse(null));
+    }
+
+    private void createCart(User user) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> cartRepository.save(Cart.builder()
+                    .user(user)
+                    .cartItems(new ArrayList<>())
+                    .build()));
+        }
+        catch (DataIntegrityViolationException ex) {
+            // Created by another instance in the meantime, the caller loads that one
+            log.debug("Cart for user {} was created concurrently", user.getId());
+        }
+    }
+
+    private CartView applyAll(HotCart cart, List<CartOperationDTO> operations, Map<Long, MenuSummaryDTO> menus) {
+        HotCart.State saved = cart.save();
+
+        // menuId -> quantity of items that have no row yet
+        Map<Long, Integer> toInsert = new LinkedHashMap<>();
+        try {
+            for (CartOperationDTO operation : operations) {
+                applyOperation(cart, operation, menus, toInsert);
+            }
+            if (!toInsert.isEmpty()) {
+                insertAll(cart, toInsert, menus);
+            }
+        }
+        catch (RuntimeException ex) {
+            cart.restore(saved);
+            throw ex;
+        }
+        return cart.view();
+    }
+
+    private void applyOperation(HotCart cart, CartOperationDTO operation, Map<Long, MenuSummaryDTO> menus,
+                                Map<Long, Integer> toInsert) {
+        Long menuId = operation.getMenuId();
+        Line line = cart.lines.get(menuId);
+        int current = line != null ? line.quantity : toInsert.getOrDefault(menuId, 0);
+
+        switch (operation.getType()) {
+            case ADD -> {
+                if (operation.getQuantity() <= 0) {
+                    throw new BadRequestException("Quantity to add must be positive");
+                }
+                setQuantity(cart, menuId, current + operation.getQuantity(), menus, toInsert);
+            }
+            case SET_QUANTITY -> {
+                if (operation.getQuantity() < 0) {
+                    throw new BadRequestException("Quantity cannot be negative");
+                }
+                setQuantity(cart, menuId, operation.getQuantity(), menus, toInsert);
+            }
+            case REMOVE -> {
+                if (current == 0) {
+                    throw new NotFoundException("Cart item not found");
+                }
+                setQuantity(cart, menuId, 0, menus, toInsert);
+            }
+        }
+    }
+
+    private void setQuantity(HotCart cart, Long menuId, int quantity, Map<Long, MenuSummaryDTO> menus,
+                             Map<Long, Integer> toInsert) {
+        Line line = cart.lines.get(menuId);
+        if (line != null) {
+            if (quantity == 0) {
+                cart.remove(line);
+            } else {
+                cart.changeQuantity(line, quantity);
+            }
+            return;
+        }
+
+        if (quantity == 0) {
+            toInsert.remove(menuId);
+            return;
+        }
+
+        MenuSummaryDTO menu = menus.get(menuId);
+        if (menu == null) {
+            throw new NotFoundException("Menu not found");
+        }
+
+        line = cart.removed.remove(menuId);
+        if (line != null) {
+            // Row is still there waiting to be deleted, reuse it
+            cart.lines.put(menuId, line);
+            cart.setLine(line, quantity, MinorUnits.of(menu.getPrice()));
+        } else {
+            toInsert.put(menuId, quantity);
+        }
+    }
+
+    private void insertAll(HotCart cart, Map<Long, Integer> quantities, Map<Long, MenuSummaryDTO> menus) {
+        List<CartItem> items = new ArrayList<>();
+
+        write(cart, () -> {
+            quantities.forEach((menuId, quantity) -> {
+                long unitMinor = MinorUnits.of(menus.get(menuId).getPrice());
+                items.add(CartItem.builder()
+                        .cart(cartRepository.getReferenceById(cart.cartId))
+                        .menu(menuRepository.getReferenceById(menuId))
+                        .quantity(quantity)
+                        .pricePerUnit(MinorUnits.toAmount(unitMinor))
+                        .subtotal(MinorUnits.toAmount(unitMinor * quantity))
+                        .build());
+            });
+            cartItemRepository.saveAll(items);
+
+            // Totals of new rows are written with them, the cart row always matches its stored items
+            long totalDelta = items.stream().mapToLong(item -> MinorUnits.of(item.getSubtotal())).sum();
+            int countDelta = items.stream().mapToInt(CartItem::getQuantity).sum();
+            cartRepository.addToTotals(cart.cartId, totalDelta, countDelta);
+        });
+
+        for (CartItem item : items) {
+            cart.addStoredLine(new Line(item.getId(), item.getMenu().getId(), item.getQuantity(),
+                    MinorUnits.of(item.getPricePerUnit()), item.getVersion()));
+        }
+    }
+
+    // Caller holds the user's lock
+    private void flush(HotCart cart) {
+        if (!cart.dirty) {
+            return;
+        }
+
+        List<Line> changed = new ArrayList<>(cart.lines.values().stream().filter(line -> line.dirty).toList());
+        changed.addAll(cart.removed.values());
+
+        write(cart, () -> {
+            changed.forEach(line -> store(cart, line));
+            // Read after storing: an item deleted elsewhere takes its part of the delta with it
+            if (cart.pendingTotalDelta != 0 || cart.pendingCountDelta != 0) {
+                cartRepository.addToTotals(cart.cartId, cart.pendingTotalDelta, cart.pendingCountDelta);
+            }
+        });
+
+        // A merge with another instance's change can bring a removed item back, or remove a kept one
+        cart.removed.clear();
+        for (Line line : changed) {
+            if (line.quantity > 0) {
+                cart.lines.putIfAbsent(line.menuId, line);
+            } else {
+                cart.lines.remove(line.menuId, line);
+            }
+        }
+        cart.pendingTotalDelta = 0;
+        cart.pendingCountDelta = 0;
+        cart.dirty = false;
+        flushedItems.increment(changed.size());
+    }
+
+    /**
+     * Writes one item, checking its version. If another instance changed the row since we last saw it,
+     * our own quantity change is re-applied on top of the stored quantity and written again.
+     */
+    private void store(HotCart cart, Line line) {
+        for (int attempt = 1; ; attempt++) {
+            int written = line.quantity > 0
+                    ? cartItemRepository.updateLine(line.cartItemId, line.quantity,
+                            MinorUnits.toAmount(line.unitMinor), MinorUnits.toAmount(line.subtotalMinor()), line.version)
+                    : cartItemRepository.deleteLine(line.cartItemId, line.version);
+
+            if (written == 1) {
+                line.version++;
+                line.storedQuantity = line.quantity;
+                line.storedUnitMinor = line.unitMinor;
+                line.dirty = false;
+                return;
+            }
+
+            conflicts.increment();
+            if (attempt == MAX_ATTEMPTS) {
+                throw new OptimisticLockingFailureException("Cart item " + line.cartItemId + " keeps changing");
+            }
+
+            Optional<CartItemRepository.StoredLine> stored = cartItemRepository.findStoredLine(line.cartItemId);
+            if (stored.isEmpty()) {
+                // Deleted elsewhere (e.g. checked out on another instance), our change goes with it
+                cart.forget(line);
+                line.dirty = false;
+                return;
+            }
+
+            // The other instance already added its own change to the stored cart totals
+            cart.absorb(line, Math.max(0, stored.get().getQuantity() + line.quantity - line.storedQuantity));
+            line.storedQuantity = stored.get().getQuantity();
+            line.version = stored.get().getVersion();
+        }
+    }
+
+    /**
+     * Runs database work for a cart in the current transaction, or a new one if there is none.
+     * If that transaction rolls back, the cart goes back to its state from before the transaction
+     * (which matches the database again), pending changes included.
+     */
+    private void write(HotCart cart, Runnable work) {
+        transactionTemplate.executeWithoutResult(status -> {
+            restoreOnRollback(cart);
+            work.run();
+        });
+    }
+
+    private void restoreOnRollback(HotCart cart) {
+        if (TransactionSynchronizationManager.hasResource(cart)) {
+            return; // already saved for this transaction
+        }
+
+        HotCart.State saved = cart.save();
+        TransactionSynchronizationManager.bindResource(cart, saved);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(cart);
+                if (status != STATUS_COMMITTED) {
+                    ReentrantLock lock = lockFor(cart.userId);
+                    lock.lock();
+                    try {
+                        cart.restore(saved);
+                    }
+                    finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Read-only copy of a cart, items in the order they were added.
+     */
+    public record CartView(Long cartId, List<Item> items, long totalMinor, int itemCount, String promoCode) {
+        public BigDecimal totalAmount() {
+            return MinorUnits.toAmount(totalMinor);
+        }
+    }
+
+    public record Item(Long cartItemId, Long menuId, int quantity, BigDecimal pricePerUnit, BigDecimal subtotal) {
+    }
+
+    private static final class Line {
+        private final Long cartItemId;
+        private final Long menuId;
+        private int quantity;
+        private long unitMinor;
+        private boolean dirty;
+
+        // Row as last read or written by us
+        private int storedQuantity;
+        private long storedUnitMinor;
+        private long version;
+
+        Line(Long cartItemId, Long menuId, int quantity, long unitMinor, long version) {
+            this.cartItemId = cartItemId;
+            this.menuId = menuId;
+            this.quantity = quantity;
+            this.unitMinor = unitMinor;
+            this.storedQuantity = quantity;
+            this.storedUnitMinor = unitMinor;
+            this.version = version;
+        }
+
+        Line copy() {
+            Line copy = new Line(cartItemId, menuId, quantity, unitMinor, version);
+            copy.storedQuantity = storedQuantity;
+            copy.storedUnitMinor = storedUnitMinor;
+            copy.dirty = dirty;
+            return copy;
+        }
+
+        long subtotalMinor() {
+            return unitMinor * quantity;
+        }
+    }
+
+    /**
+     * In-memory cart. Only used under its user's stripe lock.
+     */
+    private static final class HotCart {
+        private final Long userId;
+        private final Long cartId;
+
+        // menuId -> item
+        private Map<Long, Line> lines = new LinkedHashMap<>();
+
+        // Items removed since the last flush, rows still to be deleted (keyed by menuId)
+        private Map<Long, Line> removed = new HashMap<>();
+
+        // Current totals, and the part of them not written to the cart row yet
+        private long totalMinor;
+        private int itemCount;
+        private long pendingTotalDelta;
+        private int pendingCountDelta;
+
+        private String promoCode;
+
+        private boolean dirty;
+        private long lastAccess = System.currentTimeMillis();
+
+        HotCart(Long userId, Long cartId, long totalMinor, int itemCount, String promoCode) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.totalMinor = totalMinor;
+            this.itemCount = itemCount;
+            this.promoCode = promoCode;
+        }
+
+        Line line(Long menuId) {
+            Line line = lines.get(menuId);
+            if (line == null) {
+                throw new NotFoundException("Cart item not found");
+            }
+            return line;
+        }
+
+        void changeQuantity(Line line, int quantity) {
+            setLine(line, quantity, line.unitMinor);
+        }
+
+        /**
+         * Changes an item and moves the totals by the difference; nothing is summed.
+         */
+        void setLine(Line line, int quantity, long unitMinor) {
+            long totalDelta = quantity * unitMinor - line.subtotalMinor();
+            int countDelta = quantity - line.quantity;
+            line.quantity = quantity;
+            line.unitMinor = unitMinor;
+            line.dirty = true;
+            addToTotals(totalDelta, countDelta);
+        }
+
+        // For a row that was just inserted together with its share of the stored totals
+        void addStoredLine(Line line) {
+            lines.put(line.menuId, line);
+            totalMinor += line.subtotalMinor();
+            itemCount += line.quantity;
+        }
+
+        void remove(Line line) {
+            lines.remove(line.menuId);
+            setLine(line, 0, line.unitMinor);
+            removed.put(line.menuId, line);
+        }
+
+        void clear() {
+            lines.clear();
+            removed.clear();
+            totalMinor = 0;
+            itemCount = 0;
+            pendingTotalDelta = 0;
+            pendingCountDelta = 0;
+            promoCode = null;
+            dirty = false;
+        }
+
+        /**
+         * Drops an item whose row is gone, along with the part of the pending delta that was ours.
+         */
+        void forget(Line line) {
+            pendingTotalDelta -= line.subtotalMinor() - line.storedQuantity * line.storedUnitMinor;
+            pendingCountDelta -= line.quantity - line.storedQuantity;
+            absorb(line, 0);
+        }
+
+        /**
+         * Takes over a quantity that another instance already stored (totals included).
+         */
+        void absorb(Line line, int quantity) {
+            totalMinor += quantity * line.unitMinor - line.subtotalMinor();
+            itemCount += quantity - line.quantity;
+            line.quantity = quantity;
+        }
+
+        /**
+         * After a load: the items are the truth. Any difference to the stored totals (carts from before
+         * totals were kept) is queued as a delta, so the next flush repairs the cart row.
+         */
+        void reconcileTotals() {
+            long total = 0;
+            int count = 0;
+            for (Line line : lines.values()) {
+                total += line.subtotalMinor();
+                count += line.quantity;
+            }
+            if (total != totalMinor || count != itemCount) {
+                addToTotals(total - totalMinor, count - itemCount);
+            }
+            dirty |= !removed.isEmpty();
+        }
+
+        private void addToTotals(long totalDelta, int countDelta) {
+            totalMinor += totalDelta;
+            itemCount += countDelta;
+            pendingTotalDelta += totalDelta;
+            pendingCountDelta += countDelta;
+            dirty = true;
+        }
+
+        CartView view() {
+            List<Item> items = new ArrayList<>(lines.size());
+            for (Line line : lines.values()) {
+                items.add(new Item(line.cartItemId, line.menuId, line.quantity,
+                        MinorUnits.toAmount(line.unitMinor), MinorUnits.toAmount(line.subtotalMinor())));
+            }
+            return new CartView(cartId, items, totalMinor, itemCount, promoCode);
+        }
+
+        State save() {
+            return new State(copy(lines), copy(removed), totalMinor, itemCount, pendingTotalDelta, pendingCountDelta,
+                    promoCode, dirty);
+        }
+
+        void restore(State state) {
+            lines = copy(state.lines());
+            removed = copy(state.removed());
+            totalMinor = state.totalMinor();
+            itemCount = state.itemCount();
+            pendingTotalDelta = state.pendingTotalDelta();
+            pendingCountDelta = state.pendingCountDelta();
+            promoCode = state.promoCode();
+            dirty = state.dirty();
+        }
+
+        private static Map<Long, Line> copy(Map<Long, Line> source) {
+            Map<Long, Line> copy = source instanceof LinkedHashMap ? new LinkedHashMap<>() : new HashMap<>();
+            source.forEach((key, line) -> copy.put(key, line.copy()));
+            return copy;
+        }
+
+        record State(Map<Long, Line> lines, Map<Long, Line> removed, long totalMinor, int itemCount,
+                     long pendingTotalDelta, int pendingCountDelta, String promoCode, boolean dirty) {
+        }
+    }
+}
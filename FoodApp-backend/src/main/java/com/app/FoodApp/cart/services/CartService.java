@@ -1,6 +1,7 @@
 package com.app.FoodApp.cart.services;
 
 import com.app.FoodApp.cart.dtos.CartDTO;
+import com.app.FoodApp.cart.dtos.CartPatchDTO;
 import com.app.FoodApp.response.Response;
 
 public interface CartService {
@@ -10,5 +11,8 @@ public interface CartService {
     Response<?> removeItem(Long cartItemId);
     Response<CartDTO> getShoppingCart();
     Response<?> clearShoppingCart();
+    Response<CartDTO> updateCart(CartPatchDTO cartPatchDTO);
+    Response<CartDTO> applyPromoCode(String code);
+    Response<CartDTO> removePromoCode();
 
 }
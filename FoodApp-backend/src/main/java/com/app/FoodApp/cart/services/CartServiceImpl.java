@@ -3,38 +3,33 @@ package com.app.FoodApp.cart.services;
 import com.app.FoodApp.authUsers.entities.User;
 import com.app.FoodApp.authUsers.services.UserService;
 import com.app.FoodApp.cart.dtos.CartDTO;
-import com.app.FoodApp.cart.entities.Cart;
-import com.app.FoodApp.cart.entities.CartItem;
-import com.app.FoodApp.cart.repositories.CartItemRepository;
-import com.app.FoodApp.cart.repositories.CartRepository;
+import com.app.FoodApp.cart.dtos.CartItemDTO;
+import com.app.FoodApp.cart.dtos.CartPatchDTO;
 import com.app.FoodApp.exceptions.NotFoundException;
-import com.app.FoodApp.menu.entities.Menu;
-import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.dtos.MenuDTO;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.promo.services.PromoEngine;
+import com.app.FoodApp.promo.services.PromoEvaluation;
 import com.app.FoodApp.response.Response;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional          // Ensures all methods run inside a transaction
 public class CartServiceImpl implements CartService {
 
-    // Repositories and services injected via constructor
-    private final CartItemRepository cartItemRepository;
-    private final CartRepository cartRepository;
-    private final MenuRepository menuRepository;
+    // Carts are served from memory by the engine; it owns all cart writes
+    private final CartEngine cartEngine;
+    private final MenuCatalogCache menuCatalogCache;
+    private final PromoEngine promoEngine;
     private final UserService userService;
-    private final ModelMapper modelMapper;
 
     /**
      * Adds an item to the user's cart.
@@ -43,48 +38,10 @@ public class CartServiceImpl implements CartService {
      */
     @Override
     public Response<?> addItemToCart(CartDTO cartDTO) {
-        Long menuId = cartDTO.getMenuId();
-        int quantity = cartDTO.getQuantity();
-
         // Get currently logged-in user
         User user = userService.getCurrentLoggedInUser();
 
-        // Check if menu item exists
-        Menu menu = menuRepository.findById(menuId)
-                .orElseThrow(() -> new NotFoundException("Menu not found"));
-
-        // Get user's cart, or create one if it doesn’t exist
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    newCart.setCartItems(new ArrayList<>());
-                    return cartRepository.save(newCart);
-                });
-
-        // Look for the menu item in the cart
-        Optional<CartItem> optionalCartItem = cart.getCartItems().stream()
-                .filter(cartItem -> cartItem.getMenu().getId().equals(menuId))
-                .findFirst();
-
-        if (optionalCartItem.isPresent()) {
-            // Item already in cart → increase quantity and update subtotal
-            CartItem cartItem = optionalCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            cartItem.setSubtotal(cartItem.getPricePerUnit().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-            cartItemRepository.save(cartItem);
-        } else {
-            // Item not in cart → create a new CartItem
-            CartItem newCartItem = CartItem.builder()
-                    .cart(cart)
-                    .menu(menu)
-                    .quantity(quantity)
-                    .pricePerUnit(menu.getPrice())
-                    .subtotal(menu.getPrice().multiply(BigDecimal.valueOf(quantity)))
-                    .build();
-            cart.getCartItems().add(newCartItem);
-            cartItemRepository.save(newCartItem);
-        }
+        cartEngine.add(user, cartDTO.getMenuId(), cartDTO.getQuantity());
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -99,21 +56,7 @@ public class CartServiceImpl implements CartService {
     public Response<?> incrementItem(Long menuId) {
         User user = userService.getCurrentLoggedInUser();
 
-        // Find user's cart
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart not found"));
-
-        // Find specific cart item by menuId
-        CartItem cartItem = cart.getCartItems().stream()
-                .filter(item -> item.getMenu().getId().equals(menuId))
-                .findFirst().orElseThrow(() -> new NotFoundException("Cart item not found"));
-
-        // Update quantity and subtotal
-        int newQuantity = cartItem.getQuantity() + 1;
-        cartItem.setQuantity(newQuantity);
-        cartItem.setSubtotal(cartItem.getPricePerUnit().multiply(BigDecimal.valueOf(newQuantity)));
-
-        cartItemRepository.save(cartItem);
+        cartEngine.increment(user.getId(), menuId);
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -129,25 +72,7 @@ public class CartServiceImpl implements CartService {
     public Response<?> decrementItem(Long menuId) {
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart not found"));
-
-        CartItem cartItem = cart.getCartItems().stream()
-                .filter(item -> item.getMenu().getId().equals(menuId))
-                .findFirst().orElseThrow(() -> new NotFoundException("Cart item not found"));
-
-        int newQuantity = cartItem.getQuantity() - 1;
-
-        if (newQuantity > 0) {
-            // Update quantity and subtotal
-            cartItem.setQuantity(newQuantity);
-            cartItem.setSubtotal(cartItem.getPricePerUnit().multiply(BigDecimal.valueOf(newQuantity)));
-            cartItemRepository.save(cartItem);
-        } else {
-            // If quantity is zero, remove the item entirely
-            cart.getCartItems().remove(cartItem);
-            cartItemRepository.delete(cartItem);
-        }
+        cartEngine.decrement(user.getId(), menuId);
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -157,25 +82,13 @@ public class CartServiceImpl implements CartService {
 
     /**
      * Removes a specific item from the cart.
+     * Only items of the user's own cart can be removed.
      */
     @Override
     public Response<?> removeItem(Long cartItemId) {
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart not found"));
-
-        // Ensure the cartItem belongs to this user
-        CartItem cartItem = cartItemRepository.findById(cartItemId)
-                .orElseThrow(() -> new NotFoundException("Cart item not found"));
-
-        if (!cart.getCartItems().contains(cartItem)) {
-            throw new NotFoundException("Cart item does not belong to this user's cart");
-        }
-
-        // Remove item from cart
-        cart.getCartItems().remove(cartItem);
-        cartItemRepository.delete(cartItem);
+        cartEngine.remove(user.getId(), cartItemId);
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -184,63 +97,139 @@ public class CartServiceImpl implements CartService {
     }
 
     /**
-     * Retrieves the user's shopping cart along with total amount.
+     * Retrieves the user's shopping cart along with total amount and the discount of its promo code.
+     * Menu details come from the catalog cache, the total is kept up to date by the engine and promo rules
+     * are evaluated in memory, so this runs no queries for a hot cart.
      */
     @Override
-    @Transactional(readOnly = true)
     public Response<CartDTO> getShoppingCart() {
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUserId(user.getId())
+        CartEngine.CartView cart = cartEngine.find(user.getId())
                 .orElseThrow(() -> new NotFoundException("Cart not found for user"));
 
-        List<CartItem> cartItems = cart.getCartItems();
+        return Response.<CartDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Shopping cart retrieved successfully")
+                .data(toCartDTO(cart))
+                .build();
 
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
+    }
 
-        // Calculate total amount
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        if (cartItems != null) { // Add null check here
-            for (CartItem item : cartItems) {
-                totalAmount = totalAmount.add(item.getSubtotal());
-            }
-        }
+    /**
+     * Clears all items from the user's cart.
+     * Called inside a transaction (checkout), the items are deleted as part of it.
+     */
+    @Override
+    public Response<?> clearShoppingCart() {
+        User user = userService.getCurrentLoggedInUser();
 
-        cartDTO.setTotalAmount(totalAmount); //set the totalAmount
+        cartEngine.clear(user.getId());
 
-        //remove the review from the response
-        if (cartDTO.getCartItems() != null) {
-            cartDTO.getCartItems()
-                    .forEach(item -> item.getMenu().setReviews(null));
-        }
+        return Response.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Shopping cart cleared successfully")
+                .build();
+    }
+
+    /**
+     * Applies a batch of cart changes (add, set quantity, remove) in one go and returns the updated cart.
+     * Either every operation is applied or none is.
+     */
+    @Override
+    public Response<CartDTO> updateCart(CartPatchDTO cartPatchDTO) {
+        User user = userService.getCurrentLoggedInUser();
+
+        CartEngine.CartView cart = cartEngine.apply(user, cartPatchDTO.getOperations());
 
         return Response.<CartDTO>builder()
                 .statusCode(HttpStatus.OK.value())
-                .message("Shopping cart retrieved successfully")
-                .data(cartDTO)
+                .message("Shopping cart updated successfully")
+                .data(toCartDTO(cart))
                 .build();
-
     }
 
     /**
-     * Clears all items from the user's cart.
+     * Puts a promo code on the user's cart. A known code is kept even if the cart does not qualify yet
+     * (e.g. below the minimum order), the cart tells why.
      */
     @Override
-    public Response<?> clearShoppingCart() {
+    public Response<CartDTO> applyPromoCode(String code) {
         User user = userService.getCurrentLoggedInUser();
 
-        Cart cart = cartRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new NotFoundException("Cart not found for user"));
+        String promoCode = promoEngine.find(code)
+                .orElseThrow(() -> new NotFoundException("Promo code not found"))
+                .code();
+        CartEngine.CartView cart = cartEngine.setPromoCode(user.getId(), promoCode);
 
-        // Remove all cart items
-        cartItemRepository.deleteAll(cart.getCartItems());
-        cart.getCartItems().clear();
+        return Response.<CartDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Promo code applied successfully")
+                .data(toCartDTO(cart))
+                .build();
+    }
 
-        cartRepository.save(cart);
+    @Override
+    public Response<CartDTO> removePromoCode() {
+        User user = userService.getCurrentLoggedInUser();
 
-        return Response.builder()
+        CartEngine.CartView cart = cartEngine.setPromoCode(user.getId(), null);
+
+        return Response.<CartDTO>builder()
                 .statusCode(HttpStatus.OK.value())
-                .message("Shopping cart cleared successfully")
+                .message("Promo code removed successfully")
+                .data(toCartDTO(cart))
                 .build();
     }
+
+    private CartDTO toCartDTO(CartEngine.CartView cart) {
+        Map<Long, MenuSummaryDTO> menus = menuCatalogCache.snapshot().byId();
+
+        List<CartItemDTO> cartItems = cart.items().stream()
+                .map(item -> {
+                    CartItemDTO cartItemDTO = new CartItemDTO();
+                    cartItemDTO.setId(item.cartItemId());
+                    cartItemDTO.setMenu(toMenuDTO(item.menuId(), menus.get(item.menuId())));
+                    cartItemDTO.setQuantity(item.quantity());
+                    cartItemDTO.setPricePerUnit(item.pricePerUnit());
+                    cartItemDTO.setSubtotal(item.subtotal());
+                    return cartItemDTO;
+                })
+                .toList();
+
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setId(cart.cartId());
+        cartDTO.setCartItems(cartItems);
+        cartDTO.setTotalAmount(cart.totalAmount());
+        cartDTO.setItemCount(cart.itemCount());
+        cartDTO.setPayableAmount(cart.totalAmount());
+
+        if (cart.promoCode() != null) {
+            List<PromoEngine.PricedItem> pricedItems = cart.items().stream()
+                    .map(item -> new PromoEngine.PricedItem(item.menuId(), MinorUnits.of(item.subtotal())))
+                    .toList();
+            PromoEvaluation promo = promoEngine.evaluate(cart.promoCode(), pricedItems, cart.totalMinor());
+
+            cartDTO.setPromoCode(cart.promoCode());
+            cartDTO.setDiscountAmount(promo.discountAmount());
+            cartDTO.setPayableAmount(MinorUnits.toAmount(cart.totalMinor() - promo.discountMinor()));
+            cartDTO.setPromoMessage(promo.rejection());
+        }
+        return cartDTO;
+    }
+
+    private MenuDTO toMenuDTO(Long menuId, MenuSummaryDTO summary) {
+        MenuDTO menuDTO = new MenuDTO();
+        menuDTO.setId(menuId);
+
+        // Null when the menu was deleted after it went into the cart
+        if (summary != null) {
+            menuDTO.setName(summary.getName());
+            menuDTO.setDescription(summary.getDescription());
+            menuDTO.setPrice(summary.getPrice());
+            menuDTO.setImageUrl(summary.getImageUrl());
+            menuDTO.setCategoryId(summary.getCategoryId());
+        }
+        return menuDTO;
+    }
 }
@@ -4,6 +4,7 @@ import com.app.FoodApp.category.dtos.CategoryDTO;
 import com.app.FoodApp.category.entities.Category;
 import com.app.FoodApp.category.repositories.CategoryRepository;
 import com.app.FoodApp.exceptions.NotFoundException;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
 import com.app.FoodApp.response.Response;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,11 +20,13 @@ import java.util.List;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final ModelMapper modelMapper;
+    private final MenuCatalogCache menuCatalogCache;
 
     @Override
     public Response<CategoryDTO> addCategory(CategoryDTO categoryDTO) {
         Category category = modelMapper.map(categoryDTO, Category.class);
         categoryRepository.save(category);
+        menuCatalogCache.catalogChanged(); // Category names feed menu suggestions
 
         return Response.<CategoryDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -71,6 +74,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryRepository.save(category);
+        menuCatalogCache.catalogChanged();
 
         return Response.<CategoryDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -85,6 +89,9 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryRepository.deleteById(id);
+
+        // Deleting a category cascades to its menus
+        menuCatalogCache.catalogChanged();
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Category deleted successfully")
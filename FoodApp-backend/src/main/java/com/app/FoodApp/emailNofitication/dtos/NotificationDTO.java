@@ -8,6 +8,7 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -28,4 +29,9 @@ public class NotificationDTO {
     private LocalDateTime createdAt;
 
     private boolean isHtml;
+
+    // Optional Thymeleaf template, rendered with these variables instead of using body
+    private String templateName;
+
+    private Map<String, Object> templateVariables;
 }
@@ -0,0 +1,63 @@
+package com.app.FoodApp.emailNofitication.entities;
+
+import com.app.FoodApp.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Email waiting to be sent. Written in the same transaction as the business change (order, payment, ...)
+ * and delivered later by the outbox relay, so the email is sent exactly when that change commits.
+ */
+@Entity
+@Data
+@Table(name = "email_outbox", indexes = {
+        // Relay polling: pending rows that are due, oldest first
+        @Index(name = "idx_email_outbox_status_next", columnList = "status, next_attempt_at")
+})
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String recipient;
+
+    private String subject;
+
+    // Thymeleaf template rendered at delivery time; null when body is given as is
+    private String templateName;
+
+    // Template variables as JSON
+    @Lob
+    private String templateVariables;
+
+    @Lob
+    private String body;
+
+    private boolean isHtml;
+
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Builder.Default
+    private int attempts = 0;
+
+    @Builder.Default
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime sentAt;
+}
@@ -0,0 +1,217 @@
+package com.app.FoodApp.emailNofitication.services;
+
+import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
+import com.app.FoodApp.emailNofitication.entities.EmailOutbox;
+import com.app.FoodApp.emailNofitication.repositories.EmailOutboxRepository;
+import com.app.FoodApp.enums.OutboxStatus;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Drains the email outbox: claims due rows in batches, renders their template, sends them and marks them sent.
+ * Claimed batches are sent on the {@link NotificationExecutor}, not on the scheduler thread; a claim hides its rows
+ * from other polls for email.outbox.claim-timeout-ms. When the executor is full, polling stops until the next run.
+ * By default a batch goes out over shared SMTP connections ({@link NotificationService#deliverBatch(List)});
+ * set email.outbox.batched-send=false to send one connection per email.
+ * Failed sends are retried with exponential backoff until the attempt limit, then left as FAILED.
+ * Delivery is at least once: a crash between sending and saving the batch sends those emails again
+ * once the claim has expired.
+ */
+@Component
+@Slf4j
+public class EmailOutboxRelay {
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    // Sent rows are kept this long for troubleshooting, then purged
+    private static final Duration SENT_RETENTION = Duration.ofDays(7);
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final NotificationService notificationService;
+    private final EmailRenderer emailRenderer;
+    private final NotificationExecutor notificationExecutor;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.batched-send:true}")
+    private boolean batchedSend;
+
+    // Longer than a batch can wait in the executor queue and take to send, or it is sent twice
+    @Value("${email.outbox.claim-timeout-ms:300000}")
+    private long claimTimeoutMs;
+
+    public EmailOutboxRelay(EmailOutboxRepository emailOutboxRepository,
+                            NotificationService notificationService,
+                            EmailRenderer emailRenderer,
+                            NotificationExecutor notificationExecutor,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.notificationService = notificationService;
+        this.emailRenderer = emailRenderer;
+        this.notificationExecutor = notificationExecutor;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Claims everything that is due, one batch (and transaction) at a time, and queues each batch for sending.
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void relay() {
+        List<EmailOutbox> batch;
+        do {
+            batch = transactionTemplate.execute(status -> claimBatch());
+            if (batch == null || batch.isEmpty() || !submit(batch)) {
+                return;
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${email.outbox.purge-cron:0 30 3 * * *}")
+    public void purgeSent() {
+        Integer purged = transactionTemplate.execute(status -> emailOutboxRepository.deleteSentBefore(
+                OutboxStatus.SENT, LocalDateTime.now().minus(SENT_RETENTION)));
+        log.info("Purged {} sent emails from the outbox", purged);
+    }
+
+    private List<EmailOutbox> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> batch = emailOutboxRepository.claimDue(OutboxStatus.PENDING, now, Limit.of(batchSize));
+        batch.forEach(email -> email.setNextAttemptAt(now.plus(Duration.ofMillis(claimTimeoutMs))));
+        return batch;
+    }
+
+    /**
+     * Queues the claimed batch on a sender, which sends it and saves the outcome of every row.
+     *
+     * @return false if the executor is full; the batch is then handed back for the next poll
+     */
+    private boolean submit(List<EmailOutbox> batch) {
+        try {
+            notificationExecutor.execute(() -> {
+                try {
+                    deliverBatch(batch);
+                    transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.saveAll(batch));
+                }
+                catch (RuntimeException ex) {
+                    log.warn("Could not deliver {} outbox emails, retrying when their claim expires: {}",
+                            batch.size(), ex.getMessage());
+                }
+            });
+            return true;
+        }
+        catch (RejectedExecutionException ex) {
+            LocalDateTime now = LocalDateTime.now();
+            batch.forEach(email -> email.setNextAttemptAt(now));
+            transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.saveAll(batch));
+            return false;
+        }
+    }
+
+    private void deliverBatch(List<EmailOutbox> batch) {
+        if (!batchedSend) {
+            for (EmailOutbox email : batch) {
+                try {
+                    notificationService.deliver(toNotification(email));
+                    markSent(email);
+                }
+                catch (Exception ex) {
+                    scheduleRetry(email, ex);
+                }
+            }
+            return;
+        }
+
+        // Render everything first; a template error only holds back that one email
+        List<EmailOutbox> rendered = new ArrayList<>();
+        List<NotificationDTO> notifications = new ArrayList<>();
+        for (EmailOutbox email : batch) {
+            try {
+                notifications.add(toNotification(email));
+                rendered.add(email);
+            }
+            catch (Exception ex) {
+                scheduleRetry(email, ex);
+            }
+        }
+
+        Map<Integer, Exception> failures = notifications.isEmpty()
+                ? Map.of()
+                : notificationService.deliverBatch(notifications);
+        for (int i = 0; i < rendered.size(); i++) {
+            Exception failure = failures.get(i);
+            if (failure == null) {
+                markSent(rendered.get(i));
+            } else {
+                scheduleRetry(rendered.get(i), failure);
+            }
+        }
+    }
+
+    private static void markSent(EmailOutbox email) {
+        email.setStatus(OutboxStatus.SENT);
+        email.setSentAt(LocalDateTime.now());
+    }
+
+    private NotificationDTO toNotification(EmailOutbox email) throws Exception {
+        String body = email.getBody();
+
+        if (email.getTemplateName() != null) {
+            Map<String, Object> variables = email.getTemplateVariables() == null
+                    ? Map.of()
+                    : objectMapper.readValue(email.getTemplateVariables(), new TypeReference<Map<String, Object>>() {});
+            body = emailRenderer.render(email.getTemplateName(), variables);
+        }
+
+        return NotificationDTO.builder()
+                .recipient(email.getRecipient())
+                .subject(email.getSubject())
+                .body(body)
+                .isHtml(email.isHtml())
+                .build();
+    }
+
+    private void scheduleRetry(EmailOutbox email, Exception ex) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        String error = String.valueOf(ex.getMessage());
+        email.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+
+        if (attempts >= maxAttempts) {
+            email.setStatus(OutboxStatus.FAILED);
+            log.error("Giving up on email {} to {} after {} attempts: {}",
+                    email.getId(), email.getRecipient(), attempts, ex.getMessage());
+            return;
+        }
+
+        // 30s, 1m, 2m, 4m, ... capped at one hour
+        Duration delay = FIRST_RETRY_DELAY.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (delay.compareTo(MAX_RETRY_DELAY) > 0) {
+            delay = MAX_RETRY_DELAY;
+        }
+        email.setNextAttemptAt(LocalDateTime.now().plus(delay));
+        log.warn("Email {} to {} failed (attempt {}), retrying in {}s: {}",
+                email.getId(), email.getRecipient(), attempts, delay.toSeconds(), ex.getMessage());
+    }
+}
@@ -0,0 +1,64 @@
+package com.app.FoodApp.emailNofitication.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders the transactional email templates.
+ * Thymeleaf keeps every parsed template in its template cache, so the markup and the large static parts
+ * (styles, layout) are parsed once and only the expressions are evaluated per email.
+ * All email templates are parsed at startup so the first email after a deploy does not pay for it.
+ * Rendering happens in the outbox relay, never on the request thread that queued the email.
+ */
+@Component
+@Slf4j
+public class EmailRenderer {
+    // Templates under resources/templates used for emails
+    public static final List<String> EMAIL_TEMPLATES = List.of(
+            "order-confirmation",
+            "payment-success",
+            "payment-failed"
+    );
+
+    private final TemplateEngine templateEngine;
+    private final MeterRegistry meterRegistry;
+
+    public EmailRenderer(TemplateEngine templateEngine, MeterRegistry meterRegistry) {
+        this.templateEngine = templateEngine;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Parses every email template into the template cache.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (String templateName : EMAIL_TEMPLATES) {
+            try {
+                render(templateName, Map.of());
+            }
+            catch (Exception ex) {
+                // Not fatal: the template is parsed on first use instead
+                log.warn("Could not pre-parse email template {}: {}", templateName, ex.getMessage());
+            }
+        }
+    }
+
+    public String render(String templateName, Map<String, Object> variables) {
+        Timer timer = Timer.builder("notification.email.render")
+                .tag("template", templateName)
+                .register(meterRegistry);
+
+        return timer.record(() -> templateEngine.process(templateName, new Context(Locale.getDefault(), variables)));
+    }
+}
@@ -0,0 +1,74 @@
+package com.app.FoodApp.emailNofitication.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded executor for the {@link EmailOutboxRelay} batches, so a burst of notifications can neither grow
+ * without limit nor block the relay. A fixed number of senders drain a fixed-size queue; when the queue is full
+ * {@link #execute(Runnable)} throws RejectedExecutionException and the relay leaves the batch for its next poll.
+ * Senders can run on virtual threads. Publishes queue depth, active senders and send time as metrics.
+ * <p>
+ * Wraps its pool rather than being an {@code Executor} itself: an Executor bean would replace Boot's
+ * {@code applicationTaskExecutor}.
+ */
+@Component
+@Slf4j
+public class NotificationExecutor {
+    private final ThreadPoolExecutor pool;
+
+    private final Timer sendTimer;
+
+    public NotificationExecutor(@Value("${notification.executor.senders:4}") int senders,
+                                @Value("${notification.executor.queue-capacity:500}") int queueCapacity,
+                                @Value("${notification.executor.virtual-threads:false}") boolean virtualThreads,
+                                MeterRegistry meterRegistry) {
+        this.pool = new ThreadPoolExecutor(senders, senders, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory(virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.sendTimer = Timer.builder("notification.email.send").register(meterRegistry);
+        Gauge.builder("notification.executor.queue.depth", pool, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("notification.executor.active", pool, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory threadFactory(boolean virtualThreads) {
+        return virtualThreads
+                ? Thread.ofVirtual().name("notification-", 0).factory()
+                : Thread.ofPlatform().name("notification-", 0).factory();
+    }
+
+    /**
+     * Queues a send for the next free sender.
+     *
+     * @throws RejectedExecutionException if the queue is full or the executor is shutting down
+     */
+    public void execute(Runnable send) {
+        pool.execute(() -> sendTimer.record(send));
+    }
+
+    /**
+     * Lets queued sends finish on shutdown, for a bounded time.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        pool.shutdown();
+        if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Notification executor stopped with {} sends still queued", pool.shutdownNow().size());
+        }
+    }
+}
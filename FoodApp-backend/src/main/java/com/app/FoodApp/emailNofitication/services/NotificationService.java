@@ -2,6 +2,11 @@ package com.app.FoodApp.emailNofitication.services;
 
 import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
 
+import java.util.List;
+import java.util.Map;
+
 public interface NotificationService {
-    void sendEmail(NotificationDTO notificationDTO);
+    void enqueueEmail(NotificationDTO notificationDTO);
+    void deliver(NotificationDTO notificationDTO);
+    Map<Integer, Exception> deliverBatch(List<NotificationDTO> notificationDTOS);
 }
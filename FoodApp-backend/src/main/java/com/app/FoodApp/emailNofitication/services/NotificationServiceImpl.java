@@ -1,19 +1,31 @@
 package com.app.FoodApp.emailNofitication.services;
 
 import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
+import com.app.FoodApp.emailNofitication.entities.EmailOutbox;
 import com.app.FoodApp.emailNofitication.entities.Notification;
+import com.app.FoodApp.emailNofitication.repositories.EmailOutboxRepository;
 import com.app.FoodApp.emailNofitication.repositories.NotificationRepository;
 import com.app.FoodApp.enums.NotificationType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -21,38 +33,143 @@ import java.nio.charset.StandardCharsets;
 public class NotificationServiceImpl implements NotificationService {
     private final JavaMailSender mailSender;
     private final NotificationRepository notificationRepository;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final ObjectMapper objectMapper;
 
+    // Messages sent per SMTP connection in deliverBatch; servers cap this (Gmail allows about 100)
+    @Value("${notification.smtp.batch-size:50}")
+    private int smtpBatchSize = 50;
+
+    /**
+     * Stores the email in the outbox as part of the caller's transaction.
+     * It is sent by {@link EmailOutboxRelay} once that transaction has committed, and retried on failure.
+     */
+    @Override
+    @Transactional
+    public void enqueueEmail(NotificationDTO notificationDTO) {
+        EmailOutbox email = EmailOutbox.builder()
+                .recipient(notificationDTO.getRecipient())
+                .subject(notificationDTO.getSubject())
+                .body(notificationDTO.getBody())
+                .isHtml(notificationDTO.isHtml())
+                .templateName(notificationDTO.getTemplateName())
+                .templateVariables(toJson(notificationDTO.getTemplateVariables()))
+                .build();
+
+        emailOutboxRepository.save(email);
+    }
+
+    /**
+     * Sends the email on the calling thread and records it. Throws if sending fails.
+     */
     @Override
-    @Async
-    public void sendEmail(NotificationDTO notificationDTO) {
+    public void deliver(NotificationDTO notificationDTO) {
         log.info("Sending email");
         try {
-            MimeMessage mimeMessage = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(
-                    mimeMessage,
-                    MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
-                    StandardCharsets.UTF_8.name()
-            );
-            helper.setTo(notificationDTO.getRecipient());
-            helper.setSubject(notificationDTO.getSubject());
-            helper.setText(notificationDTO.getBody(), notificationDTO.isHtml());
+            MimeMessage mimeMessage = createMessage(notificationDTO);
 
             mailSender.send(mimeMessage);
 
             // Save to database
-            Notification notification = Notification.builder()
-                    .recipient(notificationDTO.getRecipient())
-                    .subject(notificationDTO.getSubject())
-                    .body(notificationDTO.getBody())
-                    .type(NotificationType.EMAIL)
-                    .isHtml(notificationDTO.isHtml())
-                    .build();
-
-            notificationRepository.save(notification);
+            notificationRepository.save(toNotification(notificationDTO));
             log.info("Saved to notification database");
         }
         catch (Exception ex) {
             throw new RuntimeException(ex.getMessage());
         }
     }
+
+    /**
+     * Sends several emails over shared SMTP connections: one connect and STARTTLS per
+     * {@code smtpBatchSize} messages instead of one per email. Sent emails are recorded.
+     *
+     * @return failures by position in the given list; empty if everything was sent
+     */
+    @Override
+    public Map<Integer, Exception> deliverBatch(List<NotificationDTO> notificationDTOS) {
+        Map<Integer, Exception> failures = new HashMap<>();
+
+        for (int from = 0; from < notificationDTOS.size(); from += smtpBatchSize) {
+            int to = Math.min(from + smtpBatchSize, notificationDTOS.size());
+            sendOverOneConnection(notificationDTOS, from, to, failures);
+        }
+
+        List<Notification> sent = new ArrayList<>();
+        for (int i = 0; i < notificationDTOS.size(); i++) {
+            if (!failures.containsKey(i)) {
+                sent.add(toNotification(notificationDTOS.get(i)));
+            }
+        }
+        notificationRepository.saveAll(sent);
+        log.info("Sent {} of {} emails in batch", sent.size(), notificationDTOS.size());
+
+        return failures;
+    }
+
+    private void sendOverOneConnection(List<NotificationDTO> notificationDTOS, int from, int to,
+                                       Map<Integer, Exception> failures) {
+        // Message -> its position in notificationDTOS
+        Map<MimeMessage, Integer> positions = new LinkedHashMap<>(); // MimeMessage uses identity equality
+        for (int i = from; i < to; i++) {
+            try {
+                positions.put(createMessage(notificationDTOS.get(i)), i);
+            }
+            catch (Exception ex) {
+                failures.put(i, ex); // e.g. invalid recipient address
+            }
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        try {
+            // JavaMailSender sends an array over a single transport connection
+            mailSender.send(positions.keySet().toArray(new MimeMessage[0]));
+        }
+        catch (MailSendException ex) {
+            if (ex.getFailedMessages().isEmpty()) {
+                positions.values().forEach(position -> failures.put(position, ex));
+            }
+            ex.getFailedMessages().forEach((message, cause) -> failures.put(positions.get(message), cause));
+        }
+        catch (Exception ex) {
+            // Connection or authentication failure: nothing in this chunk was sent
+            positions.values().forEach(position -> failures.put(position, ex));
+        }
+    }
+
+    private MimeMessage createMessage(NotificationDTO notificationDTO) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(
+                mimeMessage,
+                MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
+                StandardCharsets.UTF_8.name()
+        );
+        helper.setTo(notificationDTO.getRecipient());
+        helper.setSubject(notificationDTO.getSubject());
+        helper.setText(notificationDTO.getBody(), notificationDTO.isHtml());
+        return mimeMessage;
+    }
+
+    private static Notification toNotification(NotificationDTO notificationDTO) {
+        return Notification.builder()
+                .recipient(notificationDTO.getRecipient())
+                .subject(notificationDTO.getSubject())
+                .body(notificationDTO.getBody())
+                .type(NotificationType.EMAIL)
+                .isHtml(notificationDTO.isHtml())
+                .build();
+    }
+
+    private String toJson(Map<String, Object> variables) {
+        if (variables == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(variables);
+        }
+        catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Email template variables are not serializable: " + ex.getMessage());
+        }
+    }
 }
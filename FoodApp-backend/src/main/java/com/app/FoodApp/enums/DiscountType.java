@@ -0,0 +1,6 @@
+package com.app.FoodApp.enums;
+
+public enum DiscountType {
+    PERCENTAGE, // discountValue is a percentage of the eligible amount
+    FIXED       // discountValue is an amount off
+}
@@ -0,0 +1,18 @@
+package com.app.FoodApp.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Resized copies made of every uploaded image, by the longest side in pixels.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    THUMBNAIL("thumb", 160),
+    CARD("card", 480),
+    DETAIL("detail", 1200);
+
+    private final String suffix; // appended to the original's key
+    private final int maxSize;
+}
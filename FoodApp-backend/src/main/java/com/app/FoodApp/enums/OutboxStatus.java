@@ -0,0 +1,7 @@
+package com.app.FoodApp.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package com.app.FoodApp.exceptions;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
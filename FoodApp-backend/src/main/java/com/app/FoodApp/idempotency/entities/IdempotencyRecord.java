@@ -0,0 +1,46 @@
+package com.app.FoodApp.idempotency.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response of a request made with an Idempotency-Key, written in the same transaction as the request's work.
+ * Lets a retry that reaches another instance (or comes after a restart) get the original response.
+ */
+@Entity
+@Data
+@Table(name = "idempotency_records", indexes = {
+        // Purge of expired records
+        @Index(name = "idx_idempotency_records_expires_at", columnList = "expires_at")
+})
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdempotencyRecord {
+    // SHA-256 (hex) of operation, user and key
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    // SHA-256 (hex) of the request; a retry with the same key must send the same request
+    @Column(length = 64)
+    private String requestHash;
+
+    private int statusCode;
+
+    @Column(length = 1000)
+    private String message;
+
+    // Response data as JSON
+    @Lob
+    private String data;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,31 @@
+package com.app.FoodApp.idempotency.repositories;
+
+import com.app.FoodApp.idempotency.entities.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    Optional<IdempotencyRecord> findByIdAndExpiresAtAfter(String id, LocalDateTime now);
+
+    // Plain insert: save() would first select the row since the ID is assigned. A duplicate key means
+    // another request with the same key got there first
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_records (id, request_hash, status_code, message, data, created_at, expires_at) " +
+            "VALUES (:id, :requestHash, :statusCode, :message, :data, :createdAt, :expiresAt)", nativeQuery = true)
+    int insert(@Param("id") String id,
+               @Param("requestHash") String requestHash,
+               @Param("statusCode") int statusCode,
+               @Param("message") String message,
+               @Param("data") String data,
+               @Param("createdAt") LocalDateTime createdAt,
+               @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
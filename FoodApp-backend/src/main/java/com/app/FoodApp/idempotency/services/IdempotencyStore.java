@@ -0,0 +1,266 @@
+package com.app.FoodApp.idempotency.services;
+
+import com.app.FoodApp.exceptions.BadRequestException;
+import com.app.FoodApp.exceptions.ConflictException;
+import com.app.FoodApp.idempotency.entities.IdempotencyRecord;
+import com.app.FoodApp.idempotency.repositories.IdempotencyRecordRepository;
+import com.app.FoodApp.response.Response;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per Idempotency-Key and replays its response for retries.
+ * Keys are scoped to the operation and the user, so two users (or two endpoints) never share one.
+ * A key is also bound to the request it was first used with: reusing it for a different request is rejected
+ * with a conflict instead of replaying a response that belongs to something else.
+ * <p>
+ * Replays and duplicates still in flight are answered from memory. A new key costs one primary key lookup
+ * and one insert; the insert runs in the request's own transaction, so the stored response commits
+ * (or rolls back) together with the order or payment it belongs to. Two instances racing on the same key
+ * collide on that insert: the loser is rolled back and replays the winner's response.
+ * Failed requests are not stored, the client may retry them with the same key.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // key hash -> response, or a marker while the request runs
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Counter replays;
+    private final Counter conflicts;
+    private final Counter mismatches;
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                            @Value("${idempotency.memory.max-entries:100000}") int maxEntries,
+                            MeterRegistry meterRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.ttlMillis = ttlHours * 3_600_000;
+        this.maxEntries = maxEntries;
+
+        this.replays = Counter.builder("idempotency.requests").tag("result", "replayed").register(meterRegistry);
+        this.conflicts = Counter.builder("idempotency.requests").tag("result", "conflict").register(meterRegistry);
+        this.mismatches = Counter.builder("idempotency.requests").tag("result", "mismatch").register(meterRegistry);
+        Gauge.builder("idempotency.entries", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Runs the action, or returns the response of the earlier request with the same key.
+     * Without a key the action simply runs.
+     *
+     * @param request the request body (null if there is none); a retry must send an equal one
+     * @throws ConflictException if the key is still in use, or was used for a different request
+     */
+    public Response<?> execute(String key, String operation, Object request, Supplier<Response<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = hash(operation + '\n' + currentUser() + '\n' + key);
+        String requestHash = hash(requestJson(request));
+        long now = System.currentTimeMillis();
+
+        // Claim the key, unless a live entry already holds it
+        Entry claim = new Entry(requestHash, null, Long.MAX_VALUE);
+        Entry current = entries.compute(id, (k, existing) ->
+                existing != null && existing.expiresAt > now ? existing : claim);
+        if (current != claim) {
+            return replay(current, requestHash);
+        }
+
+        try {
+            Response<?> response = runOnce(id, requestHash, action, now);
+            if (entries.size() < maxEntries) {
+                entries.put(id, new Entry(requestHash, response, now + ttlMillis));
+            } else {
+                // Memory is full; the stored record still answers retries
+                entries.remove(id, claim);
+            }
+            return response;
+        }
+        catch (RuntimeException ex) {
+            entries.remove(id, claim);
+            throw ex;
+        }
+    }
+
+    /**
+     * Drops expired keys from memory and from the database.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+
+        try {
+            int purged = transactionTemplate.execute(status ->
+                    idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+            if (purged > 0) {
+                log.info("Purged {} expired idempotency records", purged);
+            }
+        }
+        catch (Exception ex) {
+            log.warn("Could not purge idempotency records: {}", ex.getMessage());
+        }
+    }
+
+    private Response<?> runOnce(String id, String requestHash, Supplier<Response<?>> action, long now) {
+        // Not in memory: answered before this instance started, or by another instance
+        Optional<Response<?>> stored = findStored(id, requestHash);
+        if (stored.isPresent()) {
+            replays.increment();
+            return stored.get();
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                Response<?> response = action.get(); // joins this transaction
+                idempotencyRecordRepository.insert(id, requestHash, response.getStatusCode(), truncate(response.getMessage()),
+                        toJson(response.getData()), toDateTime(now), toDateTime(now + ttlMillis));
+                return response;
+            });
+        }
+        catch (DataIntegrityViolationException ex) {
+            // Another instance finished a request with this key first; ours was rolled back
+            conflicts.increment();
+            return findStored(id, requestHash).orElseThrow(() ->
+                    new ConflictException("A request with this Idempotency-Key is already being processed"));
+        }
+    }
+
+    private Response<?> replay(Entry entry, String requestHash) {
+        checkSameRequest(entry.requestHash, requestHash);
+        if (entry.response == null) {
+            conflicts.increment();
+            throw new ConflictException("A request with this Idempotency-Key is already being processed");
+        }
+        replays.increment();
+        return entry.response;
+    }
+
+    private Optional<Response<?>> findStored(String id, String requestHash) {
+        Optional<IdempotencyRecord> stored = readOnlyTransaction.execute(status ->
+                idempotencyRecordRepository.findByIdAndExpiresAtAfter(id, LocalDateTime.now()));
+        return stored.map(record -> {
+            // Records stored before requests were hashed have none and match any request
+            if (record.getRequestHash() != null) {
+                checkSameRequest(record.getRequestHash(), requestHash);
+            }
+            return Response.builder()
+                    .statusCode(record.getStatusCode())
+                    .message(record.getMessage())
+                    .data(fromJson(record.getData()))
+                    .build();
+        });
+    }
+
+    private void checkSameRequest(String expectedHash, String requestHash) {
+        if (!expectedHash.equals(requestHash)) {
+            mismatches.increment();
+            throw new ConflictException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    private String requestJson(Object request) {
+        try {
+            // Sorted map keys, so equal requests hash alike on every instance
+            return request == null
+                    ? ""
+                    : objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsString(request);
+        }
+        catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Could not hash request for idempotency check", ex);
+        }
+    }
+
+    private String toJson(Object data) {
+        try {
+            return data == null ? null : objectMapper.writeValueAsString(data);
+        }
+        catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not store response for idempotent replay", ex);
+        }
+    }
+
+    private Object fromJson(String data) {
+        try {
+            return data == null ? null : objectMapper.readValue(data, Object.class);
+        }
+        catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not read stored response for idempotent replay", ex);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= MAX_MESSAGE_LENGTH
+                ? message
+                : message.substring(0, MAX_MESSAGE_LENGTH);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    // A null response marks a request still running
+    private record Entry(String requestHash, Response<?> response, long expiresAt) {
+    }
+}
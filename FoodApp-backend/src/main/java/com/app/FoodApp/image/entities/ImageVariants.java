@@ -0,0 +1,30 @@
+package com.app.FoodApp.image.entities;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.stream.Stream;
+
+/**
+ * URLs of the resized copies of an uploaded image, filled in once the image pipeline has produced them.
+ * Until then (or when processing failed) they are null and clients show the original.
+ */
+@Embeddable
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageVariants {
+    private String thumbnailUrl;
+
+    private String cardUrl;
+
+    private String detailUrl;
+
+    public Stream<String> urls() {
+        return Stream.of(thumbnailUrl, cardUrl, detailUrl).filter(url -> url != null && !url.isEmpty());
+    }
+}
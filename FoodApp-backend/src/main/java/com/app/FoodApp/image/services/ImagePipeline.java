@@ -0,0 +1,296 @@
+package com.app.FoodApp.image.services;
+
+import com.app.FoodApp.aws.AwsS3Service;
+import com.app.FoodApp.enums.ImageVariant;
+import com.app.FoodApp.image.entities.ImageVariants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Makes the resized variants ({@link ImageVariant}) of uploaded images in the background.
+ * <p>
+ * The request only copies the upload to a temporary file (the servlet container deletes its own copy when the
+ * request ends) and queues it; a small fixed pool decodes each image once, at the lowest resolution the largest
+ * variant needs, scales it down for every variant, and stores them as JPEG next to the original.
+ * The resulting URLs are handed to a callback in a transaction. The pool and its queue are bounded: when the
+ * queue is full the image is skipped and clients keep showing the original.
+ */
+@Component
+@Slf4j
+public class ImagePipeline {
+    private static final int LARGEST_VARIANT = ImageVariant.DETAIL.getMaxSize();
+
+    private final AwsS3Service awsS3Service;
+    private final TransactionTemplate transactionTemplate;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor workers;
+
+    private final Timer processTimer;
+    private final Counter failed;
+    private final Counter skipped;
+
+    public ImagePipeline(AwsS3Service awsS3Service,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${image.pipeline.workers:2}") int workers,
+                         @Value("${image.pipeline.queue-capacity:50}") int queueCapacity,
+                         @Value("${image.pipeline.jpeg-quality:0.82}") float jpegQuality,
+                         MeterRegistry meterRegistry) {
+        this.awsS3Service = awsS3Service;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jpegQuality = jpegQuality;
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("image-pipeline-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.processTimer = Timer.builder("image.pipeline.process").register(meterRegistry);
+        this.failed = Counter.builder("image.pipeline.images").tag("result", "failed").register(meterRegistry);
+        this.skipped = Counter.builder("image.pipeline.images").tag("result", "skipped").register(meterRegistry);
+        Gauge.builder("image.pipeline.queue.depth", this.workers, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues an uploaded image (already stored under {@code originalKey}) for resizing. Returns right away.
+     * {@code onReady} runs in a transaction on a pipeline thread once all variants are stored; when called inside
+     * a transaction, processing starts after it commits, so the callback finds the rows it wrote.
+     * Call it after the original is stored: the upload's temporary file may be moved here.
+     */
+    public void submit(String originalKey, MultipartFile file, Consumer<ImageVariants> onReady) {
+        Path source;
+        try {
+            source = Files.createTempFile("image-pipeline-", ".upload");
+            file.transferTo(source);
+        }
+        catch (IOException ex) {
+            log.warn("Could not queue image {} for resizing: {}", originalKey, ex.getMessage());
+            failed.increment();
+            return;
+        }
+
+        Runnable start = () -> enqueue(originalKey, source, onReady);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        start.run();
+                    } else {
+                        deleteQuietly(source);
+                    }
+                }
+            });
+        } else {
+            start.run();
+        }
+    }
+
+    /**
+     * Key a variant of the original is stored under: the original's key without extension, plus the suffix.
+     */
+    public static String variantKey(String originalKey, ImageVariant variant) {
+        int slash = originalKey.lastIndexOf('/');
+        int dot = originalKey.lastIndexOf('.');
+        String base = dot > slash ? originalKey.substring(0, dot) : originalKey;
+        return base + "_" + variant.getSuffix() + ".jpg";
+    }
+
+    /**
+     * Keys of all variants of the original.
+     */
+    public static List<String> variantKeys(String originalKey) {
+        return Arrays.stream(ImageVariant.values())
+                .map(variant -> variantKey(originalKey, variant))
+                .toList();
+    }
+
+    private void enqueue(String originalKey, Path source, Consumer<ImageVariants> onReady) {
+        try {
+            workers.execute(() -> process(originalKey, source, onReady));
+        }
+        catch (RejectedExecutionException ex) {
+            log.warn("Image pipeline is full, {} keeps only its original", originalKey);
+            skipped.increment();
+            deleteQuietly(source);
+        }
+    }
+
+    private void process(String originalKey, Path source, Consumer<ImageVariants> onReady) {
+        long started = System.nanoTime();
+        try {
+            ImageVariants variants = createVariants(originalKey, source);
+            transactionTemplate.executeWithoutResult(status -> onReady.accept(variants));
+            log.info("Stored image variants of {}", originalKey);
+        }
+        catch (Exception ex) {
+            log.warn("Could not create image variants of {}: {}", originalKey, ex.getMessage());
+            failed.increment();
+        }
+        finally {
+            deleteQuietly(source);
+            processTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private ImageVariants createVariants(String originalKey, Path source) throws IOException {
+        BufferedImage image = decode(source);
+
+        // Largest first, so every smaller variant is scaled from the previous one instead of the full image
+        Map<ImageVariant, String> urls = new EnumMap<>(ImageVariant.class);
+        BufferedImage current = image;
+        for (ImageVariant variant : new ImageVariant[]{ImageVariant.DETAIL, ImageVariant.CARD, ImageVariant.THUMBNAIL}) {
+            current = scale(current, variant.getMaxSize());
+            URL url = awsS3Service.uploadBytes(variantKey(originalKey, variant), encodeJpeg(current), "image/jpeg");
+            urls.put(variant, url.toString());
+        }
+
+        return ImageVariants.builder()
+                .thumbnailUrl(urls.get(ImageVariant.THUMBNAIL))
+                .cardUrl(urls.get(ImageVariant.CARD))
+                .detailUrl(urls.get(ImageVariant.DETAIL))
+                .build();
+    }
+
+    /**
+     * Decodes the image once, skipping rows and columns the largest variant does not need
+     * (a 4000px photo is read at about 1300px), which keeps both decode time and memory down.
+     */
+    static BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longest / LARGEST_VARIANT);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the image down so its longest side fits {@code maxSize}, halving in steps for quality.
+     * Smaller images are not enlarged. The result is always opaque RGB (transparency becomes white).
+     */
+    static BufferedImage scale(BufferedImage image, int maxSize) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        double ratio = Math.min(1.0, (double) maxSize / longest);
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        }
+        finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT); // progressive: cards render while loading
+
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException ex) {
+            log.warn("Could not delete temporary image {}: {}", path, ex.getMessage());
+        }
+    }
+
+    /**
+     * Lets queued images finish on shutdown, for a bounded time.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Image pipeline stopped with {} images still queued", workers.shutdownNow().size());
+        }
+    }
+}
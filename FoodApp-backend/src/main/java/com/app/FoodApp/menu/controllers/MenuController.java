@@ -1,6 +1,8 @@
 package com.app.FoodApp.menu.controllers;
 
 import com.app.FoodApp.menu.dtos.MenuDTO;
+import com.app.FoodApp.menu.dtos.MenuSuggestionDTO;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
 import com.app.FoodApp.menu.services.MenuService;
 import com.app.FoodApp.response.Response;
 import jakarta.validation.Valid;
@@ -48,9 +50,16 @@ public class MenuController {
     }
 
     @GetMapping
-    public ResponseEntity<Response<List<MenuDTO>>> getAllMenus(
+    public ResponseEntity<Response<List<MenuSummaryDTO>>> getAllMenus(
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) String search) {
         return ResponseEntity.ok(menuService.getAllMenus(categoryId, search));
     }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<Response<List<MenuSuggestionDTO>>> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(menuService.suggest(query, limit));
+    }
 }
@@ -1,5 +1,6 @@
 package com.app.FoodApp.menu.dtos;
 
+import com.app.FoodApp.image.entities.ImageVariants;
 import com.app.FoodApp.review.dtos.ReviewDTO;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -29,6 +30,8 @@ public class MenuDTO {
 
     private String imageUrl;
 
+    private ImageVariants imageVariants; // Resized copies of the image, once they are ready
+
     @NotNull(message = "Category is required")
     private Long categoryId;
 
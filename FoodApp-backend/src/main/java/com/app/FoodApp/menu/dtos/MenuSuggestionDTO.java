@@ -0,0 +1,22 @@
+package com.app.FoodApp.menu.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MenuSuggestionDTO {
+    public enum Type { MENU, CATEGORY }
+
+    private Type type;
+
+    private Long id; // Menu ID or category ID, depending on type
+
+    private String text;
+}
@@ -0,0 +1,55 @@
+package com.app.FoodApp.menu.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Lightweight menu row for listings. Unlike {@link MenuDTO} it carries no reviews,
+ * only their aggregates (kept on the menu row), and is read with a single projection query.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MenuSummaryDTO {
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private BigDecimal price;
+
+    private String imageUrl;
+
+    // Resized copies for menu cards, null until the image pipeline has made them
+    private String thumbnailUrl;
+
+    private String cardImageUrl;
+
+    private Long categoryId;
+
+    private Double averageRating;
+
+    private Long reviewCount;
+
+    // Used by the MenuRepository projection queries
+    public MenuSummaryDTO(Long id, String name, String description, BigDecimal price, String imageUrl,
+                          String thumbnailUrl, String cardImageUrl,
+                          Long categoryId, long ratingSum, long ratingCount) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.thumbnailUrl = thumbnailUrl;
+        this.cardImageUrl = cardImageUrl;
+        this.categoryId = categoryId;
+        this.averageRating = ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+        this.reviewCount = ratingCount;
+    }
+}
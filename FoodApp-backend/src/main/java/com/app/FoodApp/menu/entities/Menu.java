@@ -1,6 +1,7 @@
 package com.app.FoodApp.menu.entities;
 
 import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.image.entities.ImageVariants;
 import com.app.FoodApp.order.entities.OrderItem;
 import com.app.FoodApp.review.entities.Review;
 import jakarta.persistence.*;
@@ -13,7 +14,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
 @Data
@@ -37,6 +40,16 @@ public class Menu {
 
     private String imageUrl;
 
+    // Resized copies of the image, set by the image pipeline once they are stored.
+    // Written only by MenuRepository.updateImageVariants/clearImageVariants, never by saving a menu
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "thumbnailUrl", column = @Column(name = "thumbnail_url", updatable = false)),
+            @AttributeOverride(name = "cardUrl", column = @Column(name = "card_url", updatable = false)),
+            @AttributeOverride(name = "detailUrl", column = @Column(name = "detail_url", updatable = false))
+    })
+    private ImageVariants imageVariants;
+
     @ManyToOne
     @JoinColumn(name = "category_id")
     private Category category;
@@ -46,4 +59,48 @@ public class Menu {
 
     @OneToMany(mappedBy = "menu", cascade = CascadeType.ALL)
     private List<Review> reviews;
+
+    // Running rating aggregates, maintained on review write so averages never scan the review table.
+    // Moved only by MenuRepository.addRating/setRatingTotals: saving a menu edited from a stale copy
+    // must not undo a review committed meanwhile
+    @Builder.Default
+    @Column(nullable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long ratingSum = 0;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long ratingCount = 0;
+
+    // rating value -> number of reviews with that rating
+    @Builder.Default
+    @ElementCollection
+    @CollectionTable(name = "menu_rating_histogram", joinColumns = @JoinColumn(name = "menu_id"))
+    @MapKeyColumn(name = "rating")
+    @Column(name = "review_count")
+    private Map<Integer, Long> ratingHistogram = new HashMap<>();
+
+    /**
+     * Adds one review rating to the aggregates. Callers must hold a write lock on the menu row,
+     * and write the totals with {@code MenuRepository.addRating}.
+     */
+    public void recordRating(int rating) {
+        ratingSum += rating;
+        ratingCount++;
+        ratingHistogram.merge(rating, 1L, Long::sum);
+    }
+
+    /**
+     * Replaces the aggregates with a histogram recomputed from the review table.
+     * Callers write the totals with {@code MenuRepository.setRatingTotals}.
+     */
+    public void resetRatings(Map<Integer, Long> histogram) {
+        ratingHistogram.clear();
+        ratingHistogram.putAll(histogram);
+        ratingSum = histogram.entrySet().stream().mapToLong(e -> e.getKey() * e.getValue()).sum();
+        ratingCount = histogram.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public double getAverageRating() {
+        return ratingCount == 0 ? 0.0 : (double) ratingSum / ratingCount;
+    }
 }
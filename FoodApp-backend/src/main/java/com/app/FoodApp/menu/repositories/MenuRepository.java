@@ -1,8 +1,78 @@
 package com.app.FoodApp.menu.repositories;
 
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
 import com.app.FoodApp.menu.entities.Menu;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface MenuRepository extends JpaRepository<Menu, Long>, JpaSpecificationExecutor<Menu> {
+
+    // Menu listing rows with rating aggregates, fetched in one query (reviews are never read)
+    @Query("SELECT new com.app.FoodApp.menu.dtos.MenuSummaryDTO(" +
+            "m.id, m.name, m.description, m.price, m.imageUrl, " +
+            "m.imageVariants.thumbnailUrl, m.imageVariants.cardUrl, c.id, m.ratingSum, m.ratingCount) " +
+            "FROM Menu m LEFT JOIN m.category c")
+    List<MenuSummaryDTO> findAllSummaries();
+
+    @Query("SELECT new com.app.FoodApp.menu.dtos.MenuSummaryDTO(" +
+            "m.id, m.name, m.description, m.price, m.imageUrl, " +
+            "m.imageVariants.thumbnailUrl, m.imageVariants.cardUrl, c.id, m.ratingSum, m.ratingCount) " +
+            "FROM Menu m LEFT JOIN m.category c " +
+            "WHERE m.id = :menuId")
+    Optional<MenuSummaryDTO> findSummaryById(@Param("menuId") Long menuId);
+
+    // Row lock for review writes, so concurrent reviews of one menu update its rating aggregates in turn
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM Menu m WHERE m.id = :menuId")
+    Optional<Menu> findByIdForUpdate(@Param("menuId") Long menuId);
+
+    // Records the resized copies of a menu's image, unless the image was replaced in the meantime
+    @Modifying
+    @Query("UPDATE Menu m SET m.imageVariants.thumbnailUrl = :thumbnailUrl, " +
+            "m.imageVariants.cardUrl = :cardUrl, m.imageVariants.detailUrl = :detailUrl " +
+            "WHERE m.id = :menuId AND m.imageUrl = :imageUrl")
+    int updateImageVariants(@Param("menuId") Long menuId,
+                            @Param("imageUrl") String imageUrl,
+                            @Param("thumbnailUrl") String thumbnailUrl,
+                            @Param("cardUrl") String cardUrl,
+                            @Param("detailUrl") String detailUrl);
+
+    // Menu saves never write the variant columns; a new image drops the copies of the old one here
+    @Modifying
+    @Query("UPDATE Menu m SET m.imageVariants.thumbnailUrl = NULL, " +
+            "m.imageVariants.cardUrl = NULL, m.imageVariants.detailUrl = NULL WHERE m.id = :menuId")
+    int clearImageVariants(@Param("menuId") Long menuId);
+
+    // Rating totals are only moved by these two, under the row lock, never by saving a menu.
+    // Native: in JPQL the parameter would be cast to the column definition, which includes its DEFAULT
+    @Modifying
+    @Query(value = "UPDATE menu SET rating_sum = rating_sum + :rating, rating_count = rating_count + 1 " +
+            "WHERE id = :menuId", nativeQuery = true)
+    int addRating(@Param("menuId") Long menuId, @Param("rating") int rating);
+
+    @Modifying
+    @Query("UPDATE Menu m SET m.ratingSum = :ratingSum, m.ratingCount = :ratingCount WHERE m.id = :menuId")
+    int setRatingTotals(@Param("menuId") Long menuId,
+                        @Param("ratingSum") long ratingSum,
+                        @Param("ratingCount") long ratingCount);
+
+    // [menuId, ratingSum, ratingCount] for every menu
+    @Query("SELECT m.id, m.ratingSum, m.ratingCount FROM Menu m")
+    List<Object[]> findRatingTotals();
+
+    // [menuId, rating, reviewCount] for every stored histogram bucket
+    @Query("SELECT m.id, KEY(h), VALUE(h) FROM Menu m JOIN m.ratingHistogram h")
+    List<Object[]> findRatingHistograms();
+
+    // Image URLs still in use, for the storage garbage collector
+    @Query("SELECT m.imageUrl FROM Menu m WHERE m.imageUrl IS NOT NULL")
+    List<String> findAllImageUrls();
 }
@@ -0,0 +1,207 @@
+package com.app.FoodApp.menu.services;
+
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory cache of the menu catalog.
+ * Reads are served from an immutable {@link MenuCatalogSnapshot} without touching the database.
+ * A full rebuild costs two queries (menu summaries and categories) no matter how many menus or reviews exist.
+ * Writers (menu, category and review services) patch or rebuild the snapshot once their transaction commits.
+ * The {@link MenuSearchIndex} and {@link MenuSuggester} are updated together with the snapshot.
+ */
+@Component
+@Slf4j
+public class MenuCatalogCache {
+    private final MenuRepository menuRepository;
+    private final CategoryRepository categoryRepository;
+    private final MenuSearchIndex menuSearchIndex;
+    private final MenuSuggester menuSuggester;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Current catalog; null until the first build
+    private final AtomicReference<MenuCatalogSnapshot> snapshot = new AtomicReference<>();
+
+    // Serializes writers so concurrent patches never overwrite each other
+    private final Object writeLock = new Object();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer rebuildTimer;
+
+    public MenuCatalogCache(MenuRepository menuRepository,
+                            CategoryRepository categoryRepository,
+                            MenuSearchIndex menuSearchIndex,
+                            MenuSuggester menuSuggester,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.menuRepository = menuRepository;
+        this.categoryRepository = categoryRepository;
+        this.menuSearchIndex = menuSearchIndex;
+        this.menuSuggester = menuSuggester;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Own transaction: reloads also run from afterCommit callbacks of the writer's transaction
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.hits = Counter.builder("menu.catalog.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("menu.catalog.requests").tag("result", "miss").register(meterRegistry);
+        this.rebuildTimer = Timer.builder("menu.catalog.rebuild").register(meterRegistry);
+        Gauge.builder("menu.catalog.version", snapshot, ref -> ref.get() == null ? 0 : ref.get().version())
+                .register(meterRegistry);
+        Gauge.builder("menu.catalog.size", snapshot, ref -> ref.get() == null ? 0 : ref.get().menus().size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the catalog once the application is up so the first request is already a hit.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        }
+        catch (Exception ex) {
+            // Not fatal: the first read retries the build
+            log.warn("Could not warm up menu catalog: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the current catalog, building it on the very first access.
+     */
+    public MenuCatalogSnapshot snapshot() {
+        MenuCatalogSnapshot current = snapshot.get();
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+
+        misses.increment();
+        return rebuild();
+    }
+
+    /**
+     * Reloads the whole catalog from the database.
+     */
+    public MenuCatalogSnapshot rebuild() {
+        synchronized (writeLock) {
+            MenuCatalogSnapshot rebuilt = rebuildTimer.record(() -> {
+                List<MenuSummaryDTO> menus = readOnlyTransaction.execute(status -> menuRepository.findAllSummaries());
+                List<Category> categories = readOnlyTransaction.execute(status -> categoryRepository.findAll());
+
+                MenuCatalogSnapshot previous = snapshot.get();
+                long version = previous == null ? 1 : previous.version() + 1;
+                MenuCatalogSnapshot built = MenuCatalogSnapshot.of(version, menus);
+
+                menuSearchIndex.rebuild(built.menus());
+                menuSuggester.rebuild(built.menus(), categories);
+                return built;
+            });
+
+            snapshot.set(rebuilt);
+            log.info("Menu catalog rebuilt: version {}, {} menus", rebuilt.version(), rebuilt.menus().size());
+            return rebuilt;
+        }
+    }
+
+    /**
+     * Re-reads a single menu and patches it into the catalog after the current transaction commits.
+     */
+    public void menuChanged(Long menuId) {
+        afterCommit(() -> refresh(menuId));
+    }
+
+    /**
+     * Drops a menu from the catalog after the current transaction commits.
+     */
+    public void menuDeleted(Long menuId) {
+        afterCommit(() -> remove(menuId));
+    }
+
+    /**
+     * Rebuilds the catalog after the current transaction commits (e.g. a category was added or removed).
+     */
+    public void catalogChanged() {
+        afterCommit(this::rebuild);
+    }
+
+    private void refresh(Long menuId) {
+        Optional<MenuSummaryDTO> summary = readOnlyTransaction.execute(status ->
+                menuRepository.findSummaryById(menuId));
+
+        if (summary == null || summary.isEmpty()) {
+            remove(menuId);
+            return;
+        }
+
+        synchronized (writeLock) {
+            if (patch(current -> current.withMenu(summary.get()))) {
+                menuSearchIndex.put(summary.get());
+                menuSuggester.put(summary.get());
+            }
+        }
+    }
+
+    private void remove(Long menuId) {
+        synchronized (writeLock) {
+            if (patch(current -> current.withoutMenu(menuId))) {
+                menuSearchIndex.remove(menuId);
+                menuSuggester.remove(menuId);
+            }
+        }
+    }
+
+    /**
+     * Swaps in a patched snapshot. Returns false when nothing has been built yet,
+     * in which case the first read loads everything anyway.
+     */
+    private boolean patch(UnaryOperator<MenuCatalogSnapshot> change) {
+        synchronized (writeLock) {
+            MenuCatalogSnapshot current = snapshot.get();
+            if (current == null) {
+                return false;
+            }
+            snapshot.set(change.apply(current));
+            return true;
+        }
+    }
+
+    /**
+     * Runs the action once the surrounding transaction has committed, or right away when there is none.
+     * This keeps rolled-back writes out of the catalog.
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
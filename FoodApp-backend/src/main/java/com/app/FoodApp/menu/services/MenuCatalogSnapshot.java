@@ -0,0 +1,90 @@
+package com.app.FoodApp.menu.services;
+
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of the whole menu catalog.
+ * A new snapshot is built for every change; readers never see a half-applied update.
+ *
+ * @param version    monotonically increasing catalog version
+ * @param menus      all menus, newest first
+ * @param byId       menus indexed by ID
+ * @param byCategory menus grouped by category ID, newest first
+ */
+public record MenuCatalogSnapshot(
+        long version,
+        List<MenuSummaryDTO> menus,
+        Map<Long, MenuSummaryDTO> byId,
+        Map<Long, List<MenuSummaryDTO>> byCategory) {
+
+    // Newest first, same ordering the API has always returned
+    private static final Comparator<MenuSummaryDTO> NEWEST_FIRST =
+            Comparator.comparing(MenuSummaryDTO::getId, Comparator.reverseOrder());
+
+    public static MenuCatalogSnapshot empty() {
+        return of(0, List.of());
+    }
+
+    /**
+     * Builds a snapshot from a list of menus (in any order).
+     */
+    public static MenuCatalogSnapshot of(long version, List<MenuSummaryDTO> menus) {
+        List<MenuSummaryDTO> sorted = new ArrayList<>(menus);
+        sorted.sort(NEWEST_FIRST);
+
+        Map<Long, MenuSummaryDTO> byId = new HashMap<>();
+        Map<Long, List<MenuSummaryDTO>> byCategory = new HashMap<>();
+        for (MenuSummaryDTO menu : sorted) {
+            byId.put(menu.getId(), menu);
+            if (menu.getCategoryId() != null) {
+                byCategory.computeIfAbsent(menu.getCategoryId(), id -> new ArrayList<>()).add(menu);
+            }
+        }
+        byCategory.replaceAll((id, list) -> List.copyOf(list));
+
+        return new MenuCatalogSnapshot(version, List.copyOf(sorted), Map.copyOf(byId), Map.copyOf(byCategory));
+    }
+
+    /**
+     * Returns a new snapshot with the given menu added or replaced.
+     */
+    public MenuCatalogSnapshot withMenu(MenuSummaryDTO menu) {
+        List<MenuSummaryDTO> updated = new ArrayList<>(menus.size() + 1);
+        for (MenuSummaryDTO existing : menus) {
+            if (!existing.getId().equals(menu.getId())) {
+                updated.add(existing);
+            }
+        }
+        updated.add(menu);
+        return of(version + 1, updated);
+    }
+
+    /**
+     * Returns a new snapshot without the given menu.
+     */
+    public MenuCatalogSnapshot withoutMenu(Long menuId) {
+        if (!byId.containsKey(menuId)) {
+            return this;
+        }
+        List<MenuSummaryDTO> updated = menus.stream()
+                .filter(menu -> !menu.getId().equals(menuId))
+                .toList();
+        return of(version + 1, updated);
+    }
+
+    /**
+     * Menus of the given category, or all menus when the category is null.
+     */
+    public List<MenuSummaryDTO> menusOf(Long categoryId) {
+        if (categoryId == null) {
+            return menus;
+        }
+        return byCategory.getOrDefault(categoryId, List.of());
+    }
+}
@@ -0,0 +1,184 @@
+package com.app.FoodApp.menu.services;
+
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over menu names and descriptions.
+ * Supports prefix matching ("chick" finds "chicken") and ranks results by relevance:
+ * name matches weigh more than description matches, and whole-word matches more than prefix matches.
+ * Kept up to date by {@link MenuCatalogCache} whenever the catalog changes.
+ */
+@Component
+public class MenuSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_TERM_BOOST = 2;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // term -> (menuId -> weight); sorted so prefix lookups are a range scan
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // menuId -> terms it was indexed under, used to unindex a menu
+    private final Map<Long, Set<String>> termsByMenu = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Splits text into lowercase, accent-free terms.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        List<String> terms = new ArrayList<>();
+        for (String term : NON_WORD.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Replaces the whole index content.
+     */
+    public void rebuild(Collection<MenuSummaryDTO> menus) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByMenu.clear();
+            menus.forEach(this::addUnlocked);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a menu, or re-indexes it if it is already present.
+     */
+    public void put(MenuSummaryDTO menu) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(menu.getId());
+            addUnlocked(menu);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long menuId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(menuId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns IDs of menus matching every term of the query, most relevant first.
+     * Each term also matches as a prefix so results show up while the user is still typing.
+     */
+    public List<Long> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> scores = null;
+
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                Map<Long, Integer> termScores = scoreTerm(term);
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // AND semantics: keep only menus that matched every term so far
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((menuId, score) -> score + termScores.get(menuId));
+                }
+
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, Integer> ranked = scores;
+        return ranked.keySet().stream()
+                .sorted((a, b) -> {
+                    int byScore = Integer.compare(ranked.get(b), ranked.get(a));
+                    return byScore != 0 ? byScore : Long.compare(b, a); // ties: newest first
+                })
+                .toList();
+    }
+
+    private Map<Long, Integer> scoreTerm(String term) {
+        Map<Long, Integer> termScores = new HashMap<>();
+
+        // Every indexed term starting with the query term
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            int boost = entry.getKey().equals(term) ? EXACT_TERM_BOOST : 1;
+            entry.getValue().forEach((menuId, weight) -> termScores.merge(menuId, weight * boost, Integer::sum));
+        }
+        return termScores;
+    }
+
+    private void addUnlocked(MenuSummaryDTO menu) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(menu.getName()).forEach(term -> weights.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(menu.getDescription()).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(menu.getId(), weight));
+        termsByMenu.put(menu.getId(), new HashSet<>(weights.keySet()));
+    }
+
+    private void removeUnlocked(Long menuId) {
+        Set<String> terms = termsByMenu.remove(menuId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            Map<Long, Integer> menus = postings.get(term);
+            if (menus != null) {
+                menus.remove(menuId);
+                if (menus.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
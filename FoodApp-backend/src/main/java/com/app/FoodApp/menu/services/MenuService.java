@@ -1,6 +1,8 @@
 package com.app.FoodApp.menu.services;
 
 import com.app.FoodApp.menu.dtos.MenuDTO;
+import com.app.FoodApp.menu.dtos.MenuSuggestionDTO;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
 import com.app.FoodApp.response.Response;
 
 import java.util.List;
@@ -9,6 +11,7 @@ public interface MenuService {
     Response<MenuDTO> createMenu(MenuDTO menuDTO);
     Response<MenuDTO> updateMenu(MenuDTO menuDTO);
     Response<MenuDTO> getMenuById(Long id);
-    Response<List<MenuDTO>> getAllMenus(Long categoryId, String search);
+    Response<List<MenuSummaryDTO>> getAllMenus(Long categoryId, String search);
     Response<?> deleteMenu(Long id);
+    Response<List<MenuSuggestionDTO>> suggest(String query, int limit);
 }
@@ -1,30 +1,31 @@
 package com.app.FoodApp.menu.services;
 
-import com.app.FoodApp.aws.AwsS3Service;
 import com.app.FoodApp.category.entities.Category;
 import com.app.FoodApp.category.repositories.CategoryRepository;
 import com.app.FoodApp.exceptions.BadRequestException;
 import com.app.FoodApp.exceptions.NotFoundException;
+import com.app.FoodApp.image.entities.ImageVariants;
+import com.app.FoodApp.image.services.ImagePipeline;
 import com.app.FoodApp.menu.dtos.MenuDTO;
+import com.app.FoodApp.menu.dtos.MenuSuggestionDTO;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
 import com.app.FoodApp.menu.entities.Menu;
 import com.app.FoodApp.menu.repositories.MenuRepository;
 import com.app.FoodApp.response.Response;
 import com.app.FoodApp.review.dtos.ReviewDTO;
-import jakarta.persistence.criteria.Predicate;
+import com.app.FoodApp.storage.services.ContentAddressedStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.net.URL;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.UUID;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -39,18 +40,30 @@ public class MenuServiceImpl implements MenuService {
     // Utility to map between entities and DTOs
     private final ModelMapper modelMapper;
 
-    // Service to interact with AWS S3 (for image upload and deletion)
-    private final AwsS3Service awsS3Service;
+    // Stores menu images in S3 once per distinct content (for image upload and deletion)
+    private final ContentAddressedStorage contentAddressedStorage;
+
+    // Makes resized copies of uploaded images in the background
+    private final ImagePipeline imagePipeline;
+
+    // In-memory catalog, full-text index and autocomplete trie serving menu listings
+    private final MenuCatalogCache menuCatalogCache;
+    private final MenuSearchIndex menuSearchIndex;
+    private final MenuSuggester menuSuggester;
+
+    // Runs the database part of creating and updating a menu, after the image upload
+    private final TransactionTemplate transactionTemplate;
+
+    // Upper bound for the number of suggestions a client can ask for
+    private static final int MAX_SUGGESTIONS = 20;
 
     /**
      * Creates a new menu item, uploads its image to S3, and saves it to the database.
+     * The image is uploaded first, without holding a database connection; the rest is one transaction,
+     * like the update and delete below: the image reference is taken with the row or not at all.
      */
     @Override
     public Response<MenuDTO> createMenu(MenuDTO menuDTO) {
-        // Ensure the category exists
-        Category category = categoryRepository.findById(menuDTO.getCategoryId())
-                .orElseThrow(() -> new NotFoundException("Category not found"));
-
         MultipartFile imageFile = menuDTO.getImageFile();
 
         // Validate image presence
@@ -58,27 +71,35 @@ public class MenuServiceImpl implements MenuService {
             throw new BadRequestException("Menu image is required");
         }
 
-        // Generate a unique image name to avoid conflicts
-        // Generate a unique image name to avoid conflicts, replace spaces with "_"
-        String originalName = imageFile.getOriginalFilename();
-        String safeName = originalName != null ? originalName.replaceAll("\\s+", "_") : "image";
-        String imageName = UUID.randomUUID() + "_" + safeName;
+        // Upload image to S3 under the "menus/" directory, keyed by its content
+        ContentAddressedStorage.StoredFile image = contentAddressedStorage.upload("menus/", imageFile);
 
+        return transactionTemplate.execute(status -> createMenu(menuDTO, image));
+    }
 
-        // Upload image to S3 under the "menus/" directory
-        URL s3Url = awsS3Service.uploadFile("menus/" + imageName, imageFile);
+    private Response<MenuDTO> createMenu(MenuDTO menuDTO, ContentAddressedStorage.StoredFile image) {
+        // Ensure the category exists
+        Category category = categoryRepository.findById(menuDTO.getCategoryId())
+                .orElseThrow(() -> new NotFoundException("Category not found"));
+
+        contentAddressedStorage.reference(image);
 
         // Build Menu entity from DTO
         Menu menu = Menu.builder()
                 .name(menuDTO.getName())
                 .description(menuDTO.getDescription())
                 .price(menuDTO.getPrice())
-                .imageUrl(s3Url.toString())
+                .imageUrl(image.url().toString())
                 .category(category)
                 .build();
 
         // Save to DB
         Menu savedMenu = menuRepository.save(menu);
+        menuCatalogCache.menuChanged(savedMenu.getId());
+
+        // Resized copies are recorded on the menu once they are ready
+        imagePipeline.submit(image.key(), menuDTO.getImageFile(),
+                variants -> menuImageResized(savedMenu.getId(), savedMenu.getImageUrl(), variants));
 
         // Return response with mapped DTO
         return Response.<MenuDTO>builder()
@@ -90,9 +111,19 @@ public class MenuServiceImpl implements MenuService {
 
     /**
      * Updates an existing menu item, replacing its image in S3 if provided.
+     * A new image is uploaded before the transaction starts, like in {@link #createMenu(MenuDTO)}.
      */
     @Override
     public Response<MenuDTO> updateMenu(MenuDTO menuDTO) {
+        MultipartFile imageFile = menuDTO.getImageFile();
+        ContentAddressedStorage.StoredFile image = imageFile != null && !imageFile.isEmpty()
+                ? contentAddressedStorage.upload("menus/", imageFile)
+                : null;
+
+        return transactionTemplate.execute(status -> updateMenu(menuDTO, image));
+    }
+
+    private Response<MenuDTO> updateMenu(MenuDTO menuDTO, ContentAddressedStorage.StoredFile image) {
         // Ensure menu exists
         Menu existingMenu = menuRepository.findById(menuDTO.getId())
                 .orElseThrow(() -> new NotFoundException("Menu not found"));
@@ -102,23 +133,23 @@ public class MenuServiceImpl implements MenuService {
                 .orElseThrow(() -> new NotFoundException("Category not found"));
 
         String imageUrl = existingMenu.getImageUrl();
-        MultipartFile imageFile = menuDTO.getImageFile();
+        String newImageKey = null;
+
+        // If new image is uploaded → reference it first, then release the old one
+        // (re-saving the same photo only moves a reference, nothing is uploaded or deleted)
+        if (image != null) {
+            contentAddressedStorage.reference(image);
 
-        // If new image is uploaded → delete old one from S3 and upload the new one
-        if (imageFile != null && !imageFile.isEmpty()) {
             if (imageUrl != null && !imageUrl.isEmpty()) {
-                // Extract file name from URL and delete from S3
-                String keyName = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-                awsS3Service.deleteFile("menus/" + keyName);
+                releaseImage(imageUrl);
             }
 
-            // Upload new image with unique name
-            String originalName = imageFile.getOriginalFilename();
-            String safeName = originalName != null ? originalName.replaceAll("\\s+", "_") : "image";
-            String imageName = UUID.randomUUID() + "_" + safeName;
-            URL newImageUrl = awsS3Service.uploadFile("menus/" + imageName, imageFile);
-
-            imageUrl = newImageUrl.toString();
+            if (!image.url().toString().equals(imageUrl)) {
+                menuRepository.clearImageVariants(existingMenu.getId());
+                existingMenu.setImageVariants(null);
+                imageUrl = image.url().toString();
+                newImageKey = image.key();
+            }
         }
 
         // Update fields if provided
@@ -135,6 +166,12 @@ public class MenuServiceImpl implements MenuService {
 
         // Save updated menu
         Menu updatedMenu = menuRepository.save(existingMenu);
+        menuCatalogCache.menuChanged(updatedMenu.getId());
+
+        if (newImageKey != null) {
+            imagePipeline.submit(newImageKey, menuDTO.getImageFile(),
+                    variants -> menuImageResized(updatedMenu.getId(), updatedMenu.getImageUrl(), variants));
+        }
 
         // Return response with mapped DTO
         return Response.<MenuDTO>builder()
@@ -146,6 +183,7 @@ public class MenuServiceImpl implements MenuService {
 
     /**
      * Retrieves a menu by ID and sorts its reviews in descending order.
+     * This is the only read path that returns full reviews; listings use {@link MenuSummaryDTO}.
      */
     @Override
     public Response<MenuDTO> getMenuById(Long id) {
@@ -168,22 +206,27 @@ public class MenuServiceImpl implements MenuService {
 
     /**
      * Retrieves all menus, filtered by category and/or search keyword if provided.
+     * Served from the in-memory catalog of {@link MenuSummaryDTO} rows, so no query runs per request.
+     * Without a keyword menus come newest first; with one they are ranked by relevance.
      */
     @Override
-    public Response<List<MenuDTO>> getAllMenus(Long categoryId, String search) {
-        // Build dynamic query specification
-        Specification<Menu> specification = buildSpecification(categoryId, search);
-        Sort sort = Sort.by(Sort.Direction.DESC, "id"); // Sort newest first
-
-        // Fetch from DB
-        List<Menu> menuList = menuRepository.findAll(specification, sort);
-
-        // Convert to DTOs
-        List<MenuDTO> menuDTOS = menuList.stream()
-                .map(menu -> modelMapper.map(menu, MenuDTO.class))
-                .toList();
+    public Response<List<MenuSummaryDTO>> getAllMenus(Long categoryId, String search) {
+        MenuCatalogSnapshot catalog = menuCatalogCache.snapshot();
+        List<MenuSummaryDTO> menuDTOS;
+
+        if (search == null || search.isBlank()) {
+            // Already sorted newest first
+            menuDTOS = catalog.menusOf(categoryId);
+        } else {
+            // Ranked matches from the full-text index, intersected with the category filter
+            menuDTOS = menuSearchIndex.search(search).stream()
+                    .map(catalog.byId()::get)
+                    .filter(Objects::nonNull)
+                    .filter(menu -> categoryId == null || categoryId.equals(menu.getCategoryId()))
+                    .toList();
+        }
 
-        return Response.<List<MenuDTO>>builder()
+        return Response.<List<MenuSummaryDTO>>builder()
                 .statusCode(HttpStatus.OK.value())
                 .message("Menus retrieved successfully")
                 .data(menuDTOS)
@@ -194,20 +237,21 @@ public class MenuServiceImpl implements MenuService {
      * Deletes a menu by ID and removes its image from S3 if it exists.
      */
     @Override
+    @Transactional
     public Response<?> deleteMenu(Long id) {
         // Ensure menu exists
         Menu menuToDelete = menuRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Menu not found"));
 
-        // Delete associated image from S3
+        // Release associated image, deleted from S3 when no other menu uses it
         String imageUrl = menuToDelete.getImageUrl();
         if (imageUrl != null && !imageUrl.isEmpty()) {
-            String keyName = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-            awsS3Service.deleteFile("menus/" + keyName);
+            releaseImage(imageUrl);
         }
 
         // Delete menu from DB
         menuRepository.deleteById(id);
+        menuCatalogCache.menuDeleted(id);
 
         return Response.builder()
                 .statusCode(HttpStatus.OK.value())
@@ -216,28 +260,43 @@ public class MenuServiceImpl implements MenuService {
     }
 
     /**
-     * Builds a dynamic query specification for filtering menus by category and/or search keyword.
+     * Autocomplete suggestions (menu and category names) for the text typed so far.
+     * Tolerates small typos and is answered entirely from memory.
      */
-    private Specification<Menu> buildSpecification(Long categoryId, String search) {
-        return (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
+    @Override
+    public Response<List<MenuSuggestionDTO>> suggest(String query, int limit) {
+        // Make sure the suggester has been filled at least once
+        menuCatalogCache.snapshot();
 
-            // Filter by category if provided
-            if (categoryId != null) {
-                predicates.add(criteriaBuilder.equal(root.get("category").get("id"), categoryId));
-            }
+        List<MenuSuggestionDTO> suggestions = menuSuggester.suggest(query, Math.min(limit, MAX_SUGGESTIONS));
 
-            // Filter by search keyword in name/description
-            if (search != null && !search.isBlank()) {
-                String searchTerm = "%" + search.toLowerCase() + "%";
-                predicates.add(criteriaBuilder.or(
-                        criteriaBuilder.like(criteriaBuilder.lower(root.get("name")), searchTerm),
-                        criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), searchTerm)
-                ));
-            }
+        return Response.<List<MenuSuggestionDTO>>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Suggestions retrieved successfully")
+                .data(suggestions)
+                .build();
+    }
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+    /**
+     * Records the resized copies of a menu's image, unless the menu got another image in the meantime.
+     */
+    private void menuImageResized(Long menuId, String imageUrl, ImageVariants variants) {
+        int updated = menuRepository.updateImageVariants(menuId, imageUrl,
+                variants.getThumbnailUrl(), variants.getCardUrl(), variants.getDetailUrl());
+        if (updated > 0) {
+            menuCatalogCache.menuChanged(menuId);
+        }
     }
-}
 
+    /**
+     * Releases a menu's reference to its image; the last one deletes the image and its resized copies from S3.
+     */
+    private void releaseImage(String imageUrl) {
+        String key = contentAddressedStorage.keyOf(imageUrl);
+        if (key == null) {
+            log.warn("Menu image {} is not in our storage, not deleted", imageUrl);
+            return;
+        }
+        contentAddressedStorage.release(key, ImagePipeline.variantKeys(key));
+    }
+}
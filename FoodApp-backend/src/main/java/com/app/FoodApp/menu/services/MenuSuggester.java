@@ -0,0 +1,382 @@
+package com.app.FoodApp.menu.services;
+
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.dtos.MenuSuggestionDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant autocomplete over menu and category names.
+ * Names are stored in a compact prefix trie (children kept in sorted char arrays, no per-node maps).
+ * Lookups walk the trie with a Levenshtein row per level, so a query matches any name that starts
+ * with something within a small edit distance of it ("chiken" still suggests "Chicken Burger").
+ * Every word of a name is also indexed as a starting point, so "burger" suggests "Chicken Burger".
+ * A lookup keeps only the best {@code limit} candidates and skips branches that cannot beat them.
+ */
+@Component
+public class MenuSuggester {
+    // Longer input is cut off; suggestions are meant for the first few words
+    private static final int MAX_QUERY_LENGTH = 40;
+
+    // Only the first words of a name start a key, keeps the trie small for long names
+    private static final int MAX_KEY_START_WORDS = 4;
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final MenuSuggestionDTO[] NO_SUGGESTIONS = new MenuSuggestionDTO[0];
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingInt(Candidate::distance)
+            .thenComparingInt(Candidate::wordOffset)
+            .thenComparing(candidate -> candidate.suggestion().getType())
+            .thenComparingInt(candidate -> candidate.suggestion().getText().length())
+            .thenComparing(candidate -> candidate.suggestion().getText());
+
+    private Node root = new Node();
+
+    // "MENU:12" -> keys the suggestion was inserted under, used to remove it again
+    private final Map<String, List<String>> keysBySuggestion = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replaces the trie content with the given menus and categories.
+     */
+    public void rebuild(Collection<MenuSummaryDTO> menus, Collection<Category> categories) {
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            keysBySuggestion.clear();
+            menus.forEach(menu -> addUnlocked(menuSuggestion(menu)));
+            categories.forEach(category -> addUnlocked(
+                    new MenuSuggestionDTO(MenuSuggestionDTO.Type.CATEGORY, category.getId(), category.getName())));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a menu, or replaces its entry if the name changed.
+     */
+    public void put(MenuSummaryDTO menu) {
+        MenuSuggestionDTO suggestion = menuSuggestion(menu);
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(MenuSuggestionDTO.Type.MENU, menu.getId());
+            addUnlocked(suggestion);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long menuId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(MenuSuggestionDTO.Type.MENU, menuId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions for the typed text, best first:
+     * closest edit distance, then matches at the start of the name, then menus before categories.
+     */
+    public List<MenuSuggestionDTO> suggest(String query, int limit) {
+        String key = normalize(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (key.length() > MAX_QUERY_LENGTH) {
+            key = key.substring(0, MAX_QUERY_LENGTH);
+        }
+
+        Search search = new Search(key.toCharArray(), maxEditsFor(key.length()), limit);
+
+        lock.readLock().lock();
+        try {
+            search.walk(root, 0, Integer.MAX_VALUE);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        return search.top.stream()
+                .sorted(RANKING)
+                .map(Candidate::suggestion)
+                .toList();
+    }
+
+    /**
+     * Short queries must match exactly, longer ones tolerate one or two typos.
+     */
+    private static int maxEditsFor(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? 1 : 2;
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", MenuSearchIndex.tokenize(text));
+    }
+
+    private static String idOf(MenuSuggestionDTO.Type type, Long id) {
+        return type + ":" + id;
+    }
+
+    private static MenuSuggestionDTO menuSuggestion(MenuSummaryDTO menu) {
+        return new MenuSuggestionDTO(MenuSuggestionDTO.Type.MENU, menu.getId(), menu.getName());
+    }
+
+    private void addUnlocked(MenuSuggestionDTO suggestion) {
+        List<String> words = MenuSearchIndex.tokenize(suggestion.getText());
+        List<String> keys = new ArrayList<>();
+        int textLength = suggestion.getText().length();
+
+        for (int start = 0; start < words.size() && start < MAX_KEY_START_WORDS; start++) {
+            String key = String.join(" ", words.subList(start, words.size()));
+            Node node = root;
+            node.shortestText = Math.min(node.shortestText, textLength);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                node.shortestText = Math.min(node.shortestText, textLength);
+            }
+            node.add(suggestion, start);
+            keys.add(key);
+        }
+
+        keysBySuggestion.put(idOf(suggestion.getType(), suggestion.getId()), keys);
+    }
+
+    private void removeUnlocked(MenuSuggestionDTO.Type type, Long id) {
+        List<String> keys = keysBySuggestion.remove(idOf(type, id));
+        if (keys == null) {
+            return;
+        }
+
+        for (String key : keys) {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node != null) {
+                node.remove(type, id);
+            }
+        }
+    }
+
+    /**
+     * Trie node. Children are kept in parallel arrays sorted by label for binary search.
+     * Nodes are not pruned on removal; the next full rebuild drops empty branches.
+     */
+    private static final class Node {
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+
+        // Suggestions whose key ends at this node, with the word the key starts at.
+        // One suggestion is the same instance under every key of its name
+        private MenuSuggestionDTO[] suggestions = NO_SUGGESTIONS;
+        private int[] wordOffsets = new int[0];
+
+        // Length of the shortest name in this subtree; not raised on removal, so only a lower bound
+        private int shortestText = Integer.MAX_VALUE;
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -(index + 1);
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+
+            Node created = new Node();
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = created;
+            labels = newLabels;
+            children = newChildren;
+            return created;
+        }
+
+        void add(MenuSuggestionDTO suggestion, int wordOffset) {
+            suggestions = Arrays.copyOf(suggestions, suggestions.length + 1);
+            wordOffsets = Arrays.copyOf(wordOffsets, wordOffsets.length + 1);
+            suggestions[suggestions.length - 1] = suggestion;
+            wordOffsets[wordOffsets.length - 1] = wordOffset;
+        }
+
+        void remove(MenuSuggestionDTO.Type type, Long id) {
+            int kept = 0;
+            for (int i = 0; i < suggestions.length; i++) {
+                if (suggestions[i].getType() != type || !suggestions[i].getId().equals(id)) {
+                    suggestions[kept] = suggestions[i];
+                    wordOffsets[kept] = wordOffsets[i];
+                    kept++;
+                }
+            }
+            suggestions = kept == 0 ? NO_SUGGESTIONS : Arrays.copyOf(suggestions, kept);
+            wordOffsets = Arrays.copyOf(wordOffsets, kept);
+        }
+    }
+
+    private record Candidate(MenuSuggestionDTO suggestion, int distance, int wordOffset) {
+    }
+
+    /**
+     * State of one lookup: the query, one Levenshtein row per trie depth, and the best candidates so far.
+     */
+    private static final class Search {
+        private final char[] query;
+        private final int maxEdits;
+        private final int limit;
+
+        // rows[depth][j] = edit distance between the first j query chars and the trie path of that depth
+        private final int[][] rows;
+
+        // The best candidates so far, worst on top; at most limit of them
+        private final PriorityQueue<Candidate> top;
+
+        // Candidate in top per suggestion, found again under each word of its name
+        private final Map<MenuSuggestionDTO, Candidate> inTop = new IdentityHashMap<>();
+
+        Search(char[] query, int maxEdits, int limit) {
+            this.query = query;
+            this.maxEdits = maxEdits;
+            this.limit = limit;
+            this.top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            // A path longer than query + maxEdits can no longer get within maxEdits of the full query
+            this.rows = new int[query.length + maxEdits + 1][query.length + 1];
+            for (int j = 0; j <= query.length; j++) {
+                rows[0][j] = j;
+            }
+        }
+
+        /**
+         * @param bestDistance smallest distance between the whole query and a prefix of the current path,
+         *                     or MAX_VALUE if no prefix is close enough yet
+         */
+        void walk(Node node, int depth, int bestDistance) {
+            if (bestDistance <= maxEdits) {
+                collect(node, bestDistance);
+            }
+
+            // Whether the path can still get close enough to the query by going deeper
+            boolean alive = depth + 1 < rows.length && rowMin(depth) <= maxEdits;
+
+            for (int c = 0; c < node.labels.length; c++) {
+                Node child = node.children[c];
+                if (alive) {
+                    fillRow(depth + 1, node.labels[c]);
+                    int distance = rows[depth + 1][query.length];
+                    int childBest = Math.min(bestDistance, distance <= maxEdits ? distance : Integer.MAX_VALUE);
+                    // Rows never get smaller going deeper, so nothing below ends closer than this
+                    if (canStillRank(child, Math.min(childBest, rowMin(depth + 1)))) {
+                        walk(child, depth + 1, childBest);
+                    }
+                } else if (bestDistance <= maxEdits) {
+                    // The query already matched a prefix of this path, everything below completes it
+                    collectSubtree(child, bestDistance);
+                }
+            }
+        }
+
+        private void collectSubtree(Node node, int distance) {
+            if (!canStillRank(node, distance)) {
+                return;
+            }
+            collect(node, distance);
+            for (Node child : node.children) {
+                collectSubtree(child, distance);
+            }
+        }
+
+        /**
+         * Whether a suggestion below {@code node} could still make it into the top: at best it is found at
+         * {@code distance}, at the start of its name, as a menu, with the shortest name of the subtree.
+         */
+        private boolean canStillRank(Node node, int distance) {
+            if (top.size() < limit) {
+                return true;
+            }
+            Candidate worst = top.peek();
+            if (worst.distance() != distance) {
+                return worst.distance() > distance;
+            }
+            return worst.wordOffset() > 0
+                    || worst.suggestion().getType() != MenuSuggestionDTO.Type.MENU
+                    || worst.suggestion().getText().length() >= node.shortestText;
+        }
+
+        private void collect(Node node, int distance) {
+            for (int i = 0; i < node.suggestions.length; i++) {
+                offer(new Candidate(node.suggestions[i], distance, node.wordOffsets[i]));
+            }
+        }
+
+        private void offer(Candidate candidate) {
+            Candidate kept = inTop.get(candidate.suggestion());
+            if (kept != null) {
+                // Already in the top under another word of its name: keep the better of the two
+                if (RANKING.compare(candidate, kept) < 0) {
+                    top.remove(kept);
+                    top.add(candidate);
+                    inTop.put(candidate.suggestion(), candidate);
+                }
+                return;
+            }
+
+            if (top.size() == limit) {
+                if (RANKING.compare(candidate, top.peek()) >= 0) {
+                    return;
+                }
+                inTop.remove(top.poll().suggestion());
+            }
+            top.add(candidate);
+            inTop.put(candidate.suggestion(), candidate);
+        }
+
+        private void fillRow(int depth, char label) {
+            int[] previous = rows[depth - 1];
+            int[] current = rows[depth];
+            current[0] = depth;
+            for (int j = 1; j <= query.length; j++) {
+                int substitution = previous[j - 1] + (query[j - 1] == label ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j] + 1, current[j - 1] + 1));
+            }
+        }
+
+        private int rowMin(int depth) {
+            int min = Integer.MAX_VALUE;
+            for (int value : rows[depth]) {
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+    }
+}
@@ -2,15 +2,18 @@ package com.app.FoodApp.order.controllers;
 
 
 import com.app.FoodApp.enums.OrderStatus;
+import com.app.FoodApp.idempotency.services.IdempotencyStore;
 import com.app.FoodApp.order.dtos.OrderDTO;
 import com.app.FoodApp.order.dtos.OrderItemDTO;
 import com.app.FoodApp.order.services.OrderService;
 import com.app.FoodApp.response.Response;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -19,11 +22,15 @@ import java.util.List;
 @RequestMapping("/api/orders")
 public class OrderController {
     private final OrderService orderService;
+    private final IdempotencyStore idempotencyStore;
 
+    // A retried checkout with the same Idempotency-Key gets the first response instead of a second order
     @PostMapping("/checkout")
     @PreAuthorize("hasAuthority('CUSTOMER')")
-    public ResponseEntity<Response<?>> checkout() {
-        return ResponseEntity.ok(orderService.placeOrderFromCart());
+    public ResponseEntity<Response<?>> checkout(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyStore.execute(idempotencyKey, "checkout", null,
+                orderService::placeOrderFromCart));
     }
 
     @GetMapping("/{id}")
@@ -51,12 +58,28 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders(orderStatus, page, size));
     }
 
+    // Cursor variant of /all, picked when a limit is given: pass meta.nextAfterId back as afterId
+    @GetMapping(value = "/all", params = "limit")
+    @PreAuthorize("hasAnyAuthority('ADMIN', 'DELIVERY')")
+    public ResponseEntity<Response<List<OrderDTO>>> getOrdersAfter(
+            @RequestParam(required = false) OrderStatus orderStatus,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam int limit
+    ) {
+        return ResponseEntity.ok(orderService.getOrdersAfter(orderStatus, afterId, limit));
+    }
+
     @PutMapping("/update")
     @PreAuthorize("hasAnyAuthority('ADMIN', 'DELIVERY')")
     public ResponseEntity<Response<OrderDTO>> updateOrderStatus(@RequestBody OrderDTO orderDTO) {
         return ResponseEntity.ok(orderService.updateOrderStatus(orderDTO));
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderStatus() {
+        return orderService.subscribeToOrderStatus();
+    }
+
     @GetMapping("/unique-customers")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<Response<Long>> countUniqueCustomers() {
@@ -22,6 +22,10 @@ public class OrderDTO {
 
     private BigDecimal totalAmount;
 
+    private String promoCode;
+
+    private BigDecimal discountAmount;
+
     private OrderStatus orderStatus;
 
     private PaymentStatus paymentStatus;
@@ -0,0 +1,33 @@
+package com.app.FoodApp.order.dtos;
+
+import com.app.FoodApp.enums.OrderStatus;
+import com.app.FoodApp.enums.PaymentStatus;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Status change of an order, pushed to subscribers of the order status stream.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OrderStatusEventDTO {
+    private Long orderId;
+
+    private Long userId; // Customer who placed the order
+
+    private OrderStatus orderStatus;
+
+    private PaymentStatus paymentStatus;
+
+    private LocalDateTime changedAt;
+}
@@ -16,7 +16,10 @@ import java.util.List;
 
 @Entity
 @Data
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Keyset pagination of the order listing filtered by status
+        @Index(name = "idx_orders_status_id", columnList = "order_status, id")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
@@ -31,7 +34,11 @@ public class Order {
 
     private LocalDateTime orderDate;
 
-    private BigDecimal totalAmount;
+    private BigDecimal totalAmount; // After the promo discount
+
+    private String promoCode;
+
+    private BigDecimal discountAmount;
 
     @Enumerated(EnumType.STRING)
     private OrderStatus orderStatus;
@@ -16,8 +16,15 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @Builder
 public class OrderItem {
+    // IDs are handed out in blocks, so the items of an order go out as one JDBC batch (IDENTITY cannot be batched)
+    public static final String ID_GENERATOR_TABLE = "id_generators";
+    public static final String ID_GENERATOR_KEY = "order_item";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_ids")
+    @TableGenerator(name = "order_item_ids", table = ID_GENERATOR_TABLE, pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = ID_GENERATOR_KEY, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne
@@ -2,6 +2,7 @@ package com.app.FoodApp.order.repositories;
 
 import com.app.FoodApp.order.entities.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -13,4 +14,20 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     boolean existByOrderIdAndMenuId(
             @Param("orderId") Long orderId,
             @Param("menuId") Long menuId);
+
+    @Query("SELECT COALESCE(MAX(oi.id), 0) FROM OrderItem oi")
+    long findMaxId();
+
+    // The ID generator row (see OrderItem), kept in native SQL since it is no entity
+    @Modifying
+    @Query(value = "UPDATE id_generators SET next_val = :nextVal WHERE name = :name AND next_val < :nextVal",
+            nativeQuery = true)
+    int raiseIdGenerator(@Param("name") String name, @Param("nextVal") long nextVal);
+
+    @Query(value = "SELECT COUNT(*) FROM id_generators WHERE name = :name", nativeQuery = true)
+    long countIdGenerator(@Param("name") String name);
+
+    @Modifying
+    @Query(value = "INSERT INTO id_generators (name, next_val) VALUES (:name, :nextVal)", nativeQuery = true)
+    int insertIdGenerator(@Param("name") String name, @Param("nextVal") long nextVal);
 }
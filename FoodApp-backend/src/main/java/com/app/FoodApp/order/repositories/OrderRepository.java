@@ -3,6 +3,7 @@ package com.app.FoodApp.order.repositories;
 import com.app.FoodApp.authUsers.entities.User;
 import com.app.FoodApp.enums.OrderStatus;
 import com.app.FoodApp.order.entities.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -13,6 +14,11 @@ import java.util.List;
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByOrderStatus(OrderStatus orderStatus, Pageable pageable);
 
+    // Keyset pages, newest first; both are range reads on the (order_status, id) index / primary key
+    List<Order> findByOrderStatusAndIdLessThanOrderByIdDesc(OrderStatus orderStatus, Long id, Limit limit);
+
+    List<Order> findByIdLessThanOrderByIdDesc(Long id, Limit limit);
+
     List<Order> findByUserOrderByOrderDateDesc(User user);
 
     @Query("SELECT COUNT(DISTINCT o.user.id) FROM Order o")
@@ -0,0 +1,234 @@
+package com.app.FoodApp.order.services;
+
+import com.app.FoodApp.order.dtos.OrderStatusEventDTO;
+import com.app.FoodApp.order.entities.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes order and payment status changes to Server-Sent Events subscribers.
+ * Customers get the events of their own orders, staff (admin, delivery) get all of them.
+ * <p>
+ * Connections are async servlet requests, so an idle subscriber holds no thread. Publishing only puts the
+ * event into each subscriber's bounded buffer; a virtual thread per busy subscriber writes it out, so a slow
+ * client never holds up the publisher or other subscribers. When a buffer is full the oldest event is dropped
+ * (clients only need the latest status, and can reload the order). A periodic heartbeat keeps proxies from
+ * closing idle streams and finds dead connections.
+ * <p>
+ * An event is built into its frame once and the same read-only frame is written to every subscriber;
+ * {@link SseEmitter.SseEventBuilder} is mutable (each {@code build()} appends to it), so it is never shared.
+ */
+@Component
+@Slf4j
+public class OrderEventHub {
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    // userId -> streams of that customer
+    private final ConcurrentHashMap<Long, Set<Subscriber>> customers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> staff = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("order-events-", 0).factory());
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong subscriberCount = new AtomicLong();
+
+    private final Counter published;
+    private final Counter dropped;
+
+    public OrderEventHub(@Value("${order.events.buffer-size:32}") int bufferSize,
+                         @Value("${order.events.timeout-minutes:30}") long timeoutMinutes,
+                         MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMinutes * 60_000;
+
+        this.published = Counter.builder("order.events.published").register(meterRegistry);
+        this.dropped = Counter.builder("order.events.dropped").register(meterRegistry);
+        Gauge.builder("order.events.subscribers", subscriberCount, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for a customer's own orders, or for all orders when {@code allOrders} is set.
+     */
+    public SseEmitter subscribe(Long userId, boolean allOrders) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        register(emitter, userId, allOrders);
+        return emitter;
+    }
+
+    /**
+     * Adds an emitter as subscriber; it is dropped again once it completes, times out or fails.
+     */
+    public void register(SseEmitter emitter, Long userId, boolean allOrders) {
+        Subscriber subscriber = new Subscriber(emitter, userId, allOrders);
+        if (allOrders) {
+            staff.add(subscriber);
+        } else {
+            customers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        subscriberCount.incrementAndGet();
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(ex -> remove(subscriber));
+
+        // Sends the response headers right away, so the client sees the stream is open
+        subscriber.offer(frame(SseEmitter.event().comment("connected")));
+    }
+
+    /**
+     * Publishes the order's current status once the surrounding transaction commits
+     * (right away when there is none), so subscribers never see a change that is rolled back.
+     */
+    public void orderChanged(Order order) {
+        OrderStatusEventDTO event = OrderStatusEventDTO.builder()
+                .orderId(order.getId())
+                .userId(order.getUser() != null ? order.getUser().getId() : null)
+                .orderStatus(order.getOrderStatus())
+                .paymentStatus(order.getPaymentStatus())
+                .changedAt(LocalDateTime.now())
+                .build();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    /**
+     * Hands the event to the order's customer and to staff. Never blocks.
+     */
+    public void publish(OrderStatusEventDTO event) {
+        Set<DataWithMediaType> message = frame(SseEmitter.event()
+                .id(String.valueOf(sequence.incrementAndGet()))
+                .name("order-status")
+                .data(event));
+
+        Set<Subscriber> owners = event.getUserId() != null ? customers.get(event.getUserId()) : null;
+        if (owners != null) {
+            owners.forEach(subscriber -> subscriber.offer(message));
+        }
+        staff.forEach(subscriber -> subscriber.offer(message));
+        published.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${order.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        Set<DataWithMediaType> message = frame(SseEmitter.event().comment("heartbeat"));
+        staff.forEach(subscriber -> subscriber.offer(message));
+        customers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.offer(message)));
+    }
+
+    public long subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void stop() {
+        staff.forEach(subscriber -> subscriber.emitter.complete());
+        customers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        writers.shutdownNow();
+    }
+
+    // Builds the frame exactly once; the result is only read from then on
+    private static Set<DataWithMediaType> frame(SseEmitter.SseEventBuilder event) {
+        return Collections.unmodifiableSet(event.build());
+    }
+
+    private void remove(Subscriber subscriber) {
+        boolean removed;
+        if (subscriber.allOrders) {
+            removed = staff.remove(subscriber);
+        } else {
+            removed = false;
+            Set<Subscriber> subscribers = customers.get(subscriber.userId);
+            if (subscribers != null) {
+                removed = subscribers.remove(subscriber);
+                // Drop the user's entry with its last stream; a concurrent subscribe re-creates it
+                customers.computeIfPresent(subscriber.userId, (id, set) -> set.isEmpty() ? null : set);
+            }
+        }
+        if (removed) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long userId;
+        private final boolean allOrders;
+
+        private final ArrayBlockingQueue<Set<DataWithMediaType>> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        // Set while a writer is draining the buffer; at most one writer per subscriber
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Long userId, boolean allOrders) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.allOrders = allOrders;
+        }
+
+        void offer(Set<DataWithMediaType> message) {
+            while (!buffer.offer(message)) {
+                if (buffer.poll() != null) {
+                    dropped.increment();
+                }
+            }
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> message;
+                while ((message = buffer.poll()) != null) {
+                    emitter.send(message);
+                }
+            }
+            catch (Exception ex) {
+                // Client went away; the servlet container completes the request
+                log.debug("Dropping order event subscriber: {}", ex.getMessage());
+                remove(this);
+                buffer.clear();
+                return;
+            }
+            finally {
+                writing.set(false);
+            }
+
+            // An event may have arrived after the last poll but before the flag was cleared
+            if (!buffer.isEmpty() && writing.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+    }
+}
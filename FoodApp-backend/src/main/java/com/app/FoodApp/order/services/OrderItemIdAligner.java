@@ -0,0 +1,48 @@
+package com.app.FoodApp.order.services;
+
+import com.app.FoodApp.order.entities.OrderItem;
+import com.app.FoodApp.order.repositories.OrderItemRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Order items used to get their IDs from an auto-increment column; they now come from a table generator.
+ * On startup this moves the generator past the highest existing ID, so existing databases keep working.
+ * Runs before the web server starts taking requests.
+ */
+@Component
+@Slf4j
+public class OrderItemIdAligner {
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderItemIdAligner(OrderItemRepository orderItemRepository, PlatformTransactionManager transactionManager) {
+        this.orderItemRepository = orderItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void align() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // One block of headroom: the pooled optimizer hands out the block below the stored value
+                long nextVal = orderItemRepository.findMaxId() + OrderItem.ID_ALLOCATION_SIZE + 1;
+                String name = OrderItem.ID_GENERATOR_KEY;
+
+                if (orderItemRepository.raiseIdGenerator(name, nextVal) == 0
+                        && orderItemRepository.countIdGenerator(name) == 0) {
+                    orderItemRepository.insertIdGenerator(name, nextVal);
+                }
+            });
+        }
+        catch (DataIntegrityViolationException ex) {
+            // Another instance starting at the same time inserted the row first, aligned the same way.
+            // Anything else fails startup: handing out IDs that already exist would break every checkout
+            log.warn("Could not align order item IDs: {}", ex.getMessage());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.app.FoodApp.order.dtos.OrderDTO;
 import com.app.FoodApp.order.dtos.OrderItemDTO;
 import com.app.FoodApp.response.Response;
 import org.springframework.data.domain.Page;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -12,8 +13,10 @@ public interface OrderService {
     Response<?> placeOrderFromCart();
     Response<OrderDTO> getOrderById(Long id);
     Response<Page<OrderDTO>> getAllOrders(OrderStatus orderStatus, int page, int size);
+    Response<List<OrderDTO>> getOrdersAfter(OrderStatus orderStatus, Long afterId, int limit);
     Response<List<OrderDTO>> getOrdersOfUser();
     Response<OrderItemDTO> getOrderItemById(Long orderItemId);
     Response<OrderDTO> updateOrderStatus(OrderDTO orderDTO);
+    SseEmitter subscribeToOrderStatus();
     Response<Long> countUniqueCustomers();
 }
@@ -2,10 +2,10 @@ package com.app.FoodApp.order.services;
 
 import com.app.FoodApp.authUsers.entities.User;
 import com.app.FoodApp.authUsers.services.UserService;
-import com.app.FoodApp.cart.entities.Cart;
-import com.app.FoodApp.cart.entities.CartItem;
+import com.app.FoodApp.cart.repositories.CartItemRepository;
 import com.app.FoodApp.cart.repositories.CartRepository;
-import com.app.FoodApp.cart.services.CartService;
+import com.app.FoodApp.cart.services.CartEngine;
+import com.app.FoodApp.cart.services.MinorUnits;
 import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
 import com.app.FoodApp.emailNofitication.services.NotificationService;
 import com.app.FoodApp.enums.OrderStatus;
@@ -13,33 +13,41 @@ import com.app.FoodApp.enums.PaymentStatus;
 import com.app.FoodApp.exceptions.BadRequestException;
 import com.app.FoodApp.exceptions.NotFoundException;
 import com.app.FoodApp.menu.dtos.MenuDTO;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
 import com.app.FoodApp.order.dtos.OrderDTO;
 import com.app.FoodApp.order.dtos.OrderItemDTO;
 import com.app.FoodApp.order.entities.Order;
 import com.app.FoodApp.order.entities.OrderItem;
 import com.app.FoodApp.order.repositories.OrderItemRepository;
 import com.app.FoodApp.order.repositories.OrderRepository;
+import com.app.FoodApp.promo.services.PromoEngine;
+import com.app.FoodApp.promo.services.PromoEvaluation;
 import com.app.FoodApp.response.Response;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.Year;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -51,9 +59,16 @@ public class OrderServiceImpl implements OrderService {
     private final UserService userService;
     private final NotificationService notificationService;
     private final ModelMapper modelMapper;
-    private final TemplateEngine templateEngine;
-    private final CartService cartService;
+    private final CartEngine cartEngine;
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final MenuRepository menuRepository;
+    private final MenuCatalogCache menuCatalogCache;
+    private final PromoEngine promoEngine;
+    private final OrderEventHub orderEventHub;
+
+    // Upper bound for one keyset page of the admin order listing
+    private static final int MAX_ORDER_PAGE_SIZE = 500;
 
     // Base link used for generating payment URLs
     @Value("${base.payment.link}")
@@ -65,10 +80,13 @@ public class OrderServiceImpl implements OrderService {
      * 1. Validate user and delivery address.
      * 2. Fetch the user's cart and check that it has items.
      * 3. Convert cart items into order items.
-     * 4. Create and save a new order.
-     * 5. Save order items and link them to the order.
+     * 4. Redeem the cart's promo code, if any, and apply its discount.
+     * 5. Save the order together with its items.
      * 6. Clear the cart.
-     * 7. Send an order confirmation email with a payment link.
+     * 7. Queue an order confirmation email with a payment link.
+     * The statement count does not grow with the number of items: the cart and its items are read
+     * with one projection query each, the items are inserted as one JDBC batch and the cart is
+     * cleared with two bulk statements.
      */
     @Transactional
     @Override
@@ -84,56 +102,77 @@ public class OrderServiceImpl implements OrderService {
             throw new NotFoundException("Delivery address not found for the user");
         }
 
+        // Write pending cart changes first, the order is built from the stored cart
+        cartEngine.flush(user.getId());
+
         // Retrieve the user's cart
-        Cart cart = cartRepository.findByUserId(user.getId())
+        CartRepository.CartSummary cart = cartRepository.findSummaryByUserId(user.getId())
                 .orElseThrow(() -> new NotFoundException("Cart not found for the user"));
 
-        List<CartItem> cartItems = cart.getCartItems();
-
-        // Check that the cart has items
-        if (cartItems == null || cartItems.isEmpty()) {
+        // Check that the cart has items (the count is kept on the cart, no need to load them for this)
+        if (cart.getItemCount() == 0) {
             throw new BadRequestException("Cart is empty");
         }
 
-        // Build order items and calculate total amount
+        Order order = Order.builder()
+                .user(user)
+                .orderDate(LocalDateTime.now())
+                .orderStatus(OrderStatus.INITIALIZED)
+                .paymentStatus(PaymentStatus.PENDING)
+                .build();
+
+        // Build order items; their sum and count double as a checksum of the cart's running totals
         List<OrderItem> orderItems = new ArrayList<>();
-        BigDecimal totalAmount = BigDecimal.ZERO;
+        List<PromoEngine.PricedItem> pricedItems = new ArrayList<>();
+        long itemsMinor = 0;
+        int itemCount = 0;
 
-        for (CartItem cartItem : cartItems) {
+        for (CartItemRepository.CheckoutLine line : cartItemRepository.findCheckoutLines(cart.getId())) {
             OrderItem orderItem = OrderItem.builder()
-                    .menu(cartItem.getMenu())
-                    .quantity(cartItem.getQuantity())
-                    .pricePerUnit(cartItem.getPricePerUnit())
-                    .subtotal(cartItem.getSubtotal())
+                    .order(order)
+                    .menu(menuRepository.getReferenceById(line.getMenuId())) // no query, only the ID is written
+                    .quantity(line.getQuantity())
+                    .pricePerUnit(line.getPricePerUnit())
+                    .subtotal(line.getSubtotal())
                     .build();
 
             orderItems.add(orderItem);
-            totalAmount = totalAmount.add(orderItem.getSubtotal());
+            pricedItems.add(new PromoEngine.PricedItem(line.getMenuId(), MinorUnits.of(line.getSubtotal())));
+            itemsMinor += MinorUnits.of(line.getSubtotal());
+            itemCount += line.getQuantity();
         }
 
-        // Create the order
-        Order order = Order.builder()
-                .user(user)
-                .orderItems(orderItems)
-                .orderDate(LocalDateTime.now())
-                .totalAmount(totalAmount)
-                .orderStatus(OrderStatus.INITIALIZED)
-                .paymentStatus(PaymentStatus.PENDING)
-                .build();
+        if (itemsMinor != cart.getTotalMinor() || itemCount != cart.getItemCount()) {
+            // The items are what gets ordered; the totals are reset with the cart below
+            log.warn("Cart {} totals out of sync: stored {} for {} items, items add up to {} for {}",
+                    cart.getId(), cart.getTotalMinor(), cart.getItemCount(), itemsMinor, itemCount);
+        }
+
+        // The redemption is given back if the order rolls back
+        long discountMinor = 0;
+        if (cart.getPromoCode() != null) {
+            PromoEvaluation promo = promoEngine.redeem(cart.getPromoCode(), pricedItems, itemsMinor);
+            if (!promo.applied()) {
+                throw new BadRequestException(promo.rejection());
+            }
+            discountMinor = promo.discountMinor();
+        }
+
+        order.setTotalAmount(MinorUnits.toAmount(itemsMinor - discountMinor));
+        if (discountMinor > 0) {
+            order.setPromoCode(cart.getPromoCode());
+            order.setDiscountAmount(MinorUnits.toAmount(discountMinor));
+        }
 
-        // Save the order and link order items to it
+        // Items are linked before saving, so the cascade inserts them complete (no follow-up updates)
+        order.setOrderItems(orderItems);
         Order savedOrder = orderRepository.save(order);
-        orderItems.forEach(orderItem -> orderItem.setOrder(savedOrder));
-        orderItemRepository.saveAll(orderItems);
 
         // Clear cart after placing the order
-        cartService.clearShoppingCart();
+        cartEngine.clear(user.getId(), cart.getId());
 
-        // Convert entity to DTO
-        OrderDTO orderDTO = modelMapper.map(savedOrder, OrderDTO.class);
-
-        // Send confirmation email
-        sendOrderConfirmationEmail(user, orderDTO);
+        // Queue confirmation email
+        sendOrderConfirmationEmail(user, toConfirmationDTO(savedOrder));
 
         // Return API response
         return Response.builder()
@@ -188,6 +227,52 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
+    /**
+     * Retrieve orders newest first, one keyset page at a time, with optional filtering by status.
+     * Each page continues below the last order ID of the previous one, so it is an index range read
+     * on (order_status, id) no matter how deep the client pages. No total count is computed.
+     */
+    @Override
+    public Response<List<OrderDTO>> getOrdersAfter(OrderStatus orderStatus, Long afterId, int limit) {
+        if (limit < 1) {
+            throw new BadRequestException("Limit must be at least 1");
+        }
+        int pageSize = Math.min(limit, MAX_ORDER_PAGE_SIZE);
+        long belowId = afterId != null ? afterId : Long.MAX_VALUE;
+
+        // One extra row tells whether another page follows
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<Order> orders = orderStatus != null
+                ? orderRepository.findByOrderStatusAndIdLessThanOrderByIdDesc(orderStatus, belowId, fetchLimit)
+                : orderRepository.findByIdLessThanOrderByIdDesc(belowId, fetchLimit);
+
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) {
+            orders = orders.subList(0, pageSize);
+        }
+
+        // Convert to DTOs and strip unnecessary fields
+        List<OrderDTO> orderDTOS = orders.stream().map(order -> {
+            OrderDTO orderDTO = modelMapper.map(order, OrderDTO.class);
+            orderDTO.getOrderItems().forEach(orderItemDTO -> orderItemDTO.getMenu().setReviews(null));
+            return orderDTO;
+        }).toList();
+
+        // Cursor for the next request; absent on the last page
+        HashMap<String, Serializable> meta = new HashMap<>();
+        meta.put("hasMore", hasMore);
+        if (hasMore) {
+            meta.put("nextAfterId", orders.get(orders.size() - 1).getId());
+        }
+
+        return Response.<List<OrderDTO>>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Orders retrieved successfully")
+                .data(orderDTOS)
+                .meta(meta)
+                .build();
+    }
+
     /**
      * Retrieve all orders for the current user.
      */
@@ -244,6 +329,7 @@ public class OrderServiceImpl implements OrderService {
 
         order.setOrderStatus(orderDTO.getOrderStatus());
         orderRepository.save(order);
+        orderEventHub.orderChanged(order);
 
         return Response.<OrderDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -251,6 +337,19 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
+    /**
+     * Open a live stream of order status changes: the customer's own orders, or all orders for staff.
+     */
+    @Override
+    public SseEmitter subscribeToOrderStatus() {
+        User user = userService.getCurrentLoggedInUser();
+        boolean staff = SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(authority -> authority.equals("ADMIN") || authority.equals("DELIVERY"));
+
+        return orderEventHub.subscribe(user.getId(), staff);
+    }
+
     /**
      * Count how many unique customers have placed orders.
      */
@@ -264,46 +363,81 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
+    /**
+     * What the confirmation email needs of a new order. Menu names come from the catalog cache,
+     * so the items' menus are never loaded.
+     */
+    private OrderDTO toConfirmationDTO(Order order) {
+        Map<Long, MenuSummaryDTO> menus = menuCatalogCache.snapshot().byId();
+
+        List<OrderItemDTO> orderItemDTOS = order.getOrderItems().stream()
+                .map(orderItem -> {
+                    Long menuId = orderItem.getMenu().getId();
+                    MenuSummaryDTO summary = menus.get(menuId);
+
+                    MenuDTO menuDTO = new MenuDTO();
+                    menuDTO.setId(menuId);
+                    menuDTO.setName(summary != null ? summary.getName() : "Menu #" + menuId);
+
+                    OrderItemDTO orderItemDTO = new OrderItemDTO();
+                    orderItemDTO.setId(orderItem.getId());
+                    orderItemDTO.setMenuId(menuId);
+                    orderItemDTO.setMenu(menuDTO);
+                    orderItemDTO.setQuantity(orderItem.getQuantity());
+                    orderItemDTO.setPricePerUnit(orderItem.getPricePerUnit());
+                    orderItemDTO.setSubtotal(orderItem.getSubtotal());
+                    return orderItemDTO;
+                })
+                .toList();
+
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setId(order.getId());
+        orderDTO.setOrderDate(order.getOrderDate());
+        orderDTO.setTotalAmount(order.getTotalAmount());
+        orderDTO.setPromoCode(order.getPromoCode());
+        orderDTO.setDiscountAmount(order.getDiscountAmount());
+        orderDTO.setOrderStatus(order.getOrderStatus());
+        orderDTO.setPaymentStatus(order.getPaymentStatus());
+        orderDTO.setOrderItems(orderItemDTOS);
+        return orderDTO;
+    }
+
     /**
      * Send order confirmation email to the customer with order details and payment link.
      */
     private void sendOrderConfirmationEmail(User user, OrderDTO orderDTO) {
         String subject = "Your Order Confirmation - Order #" + orderDTO.getId();
 
-        // Setup Thymeleaf context for email template
-        Context context = new Context(Locale.getDefault());
-        context.setVariable("customerName", user.getName());
-        context.setVariable("orderId", String.valueOf(orderDTO.getId()));
-        context.setVariable("orderDate", String.valueOf(orderDTO.getOrderDate()));
-        context.setVariable("totalAmount", orderDTO.getTotalAmount().toString());
-        context.setVariable("deliveryAddress", orderDTO.getUser().getAddress());
-        context.setVariable("currentYear", Year.now().getValue());
-
-        // Build HTML for order items
-        StringBuilder orderItemsHtml = new StringBuilder();
-        for (OrderItemDTO item : orderDTO.getOrderItems()) {
-            orderItemsHtml.append("<div class=\"order-item\">")
-                    .append("<p>").append(item.getMenu().getName()).append(" x ").append(item.getQuantity()).append("</p>")
-                    .append("<p> $ ").append(item.getSubtotal()).append("</p>")
-                    .append("</div>");
-        }
-        context.setVariable("orderItemsHtml", orderItemsHtml.toString());
-        context.setVariable("totalItems", orderDTO.getOrderItems().size());
+        // Variables for the Thymeleaf email template, rendered by the outbox relay
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("customerName", user.getName());
+        variables.put("orderId", String.valueOf(orderDTO.getId()));
+        variables.put("orderDate", String.valueOf(orderDTO.getOrderDate()));
+        variables.put("totalAmount", orderDTO.getTotalAmount().toString());
+        variables.put("deliveryAddress", user.getAddress());
+        variables.put("currentYear", Year.now().getValue());
+
+        // Item rows, rendered by the template's th:each loop
+        List<Map<String, Object>> orderItems = orderDTO.getOrderItems().stream()
+                .map(item -> Map.<String, Object>of(
+                        "name", item.getMenu().getName(),
+                        "quantity", item.getQuantity(),
+                        "subtotal", item.getSubtotal().toString()))
+                .toList();
+        variables.put("orderItems", orderItems);
+        variables.put("totalItems", orderDTO.getOrderItems().size());
 
         // Payment link for completing the order
         String paymentLink = basePaymentLink + orderDTO.getId() + "&amount=" + orderDTO.getTotalAmount();
-        context.setVariable("paymentLink", paymentLink);
-
-        // Render Thymeleaf template to HTML string
-        String emailBody = templateEngine.process("order-confirmation", context);
+        variables.put("paymentLink", paymentLink);
 
-        // Send the email
-        notificationService.sendEmail(NotificationDTO.builder()
+        // Queue the email in the checkout transaction; it is sent once the order is committed
+        notificationService.enqueueEmail(NotificationDTO.builder()
                 .recipient(user.getEmail())
                 .subject(subject)
-                .body(emailBody)
+                .templateName("order-confirmation")
+                .templateVariables(variables)
                 .isHtml(true)
                 .build());
     }
 }
-
@@ -1,6 +1,7 @@
 package com.app.FoodApp.payment.controllers;
 
 import com.app.FoodApp.enums.PaymentStatus;
+import com.app.FoodApp.idempotency.services.IdempotencyStore;
 import com.app.FoodApp.payment.dtos.PaymentDTO;
 import com.app.FoodApp.payment.services.PaymentService;
 import com.app.FoodApp.response.Response;
@@ -18,10 +19,15 @@ import java.util.List;
 @RequestMapping("api/payments")
 public class PaymentController {
     private final PaymentService paymentService;
+    private final IdempotencyStore idempotencyStore;
 
+    // A retried payment with the same Idempotency-Key gets the first payment intent instead of a new one
     @PostMapping("/pay")
-    public ResponseEntity<Response<?>> initializePayment(@RequestBody @Valid PaymentDTO paymentDTO) {
-        return ResponseEntity.ok(paymentService.initializePayment(paymentDTO));
+    public ResponseEntity<Response<?>> initializePayment(
+            @RequestBody @Valid PaymentDTO paymentDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(idempotencyStore.execute(idempotencyKey, "pay", paymentDTO,
+                () -> paymentService.initializePayment(paymentDTO)));
     }
 
     @PutMapping("/update")
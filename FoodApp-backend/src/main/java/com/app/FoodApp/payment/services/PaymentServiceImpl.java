@@ -9,6 +9,7 @@ import com.app.FoodApp.exceptions.BadRequestException;
 import com.app.FoodApp.exceptions.NotFoundException;
 import com.app.FoodApp.order.entities.Order;
 import com.app.FoodApp.order.repositories.OrderRepository;
+import com.app.FoodApp.order.services.OrderEventHub;
 import com.app.FoodApp.payment.dtos.PaymentDTO;
 import com.app.FoodApp.payment.entities.Payment;
 import com.app.FoodApp.payment.repositories.PaymentRepository;
@@ -27,15 +28,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.Year;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -44,8 +45,8 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentRepository paymentRepository;
     private final NotificationService notificationService;
     private final OrderRepository orderRepository;
-    private final TemplateEngine templateEngine;
     private final ModelMapper modelMapper;
+    private final OrderEventHub orderEventHub;
 
     // Stripe API secret key (from application.properties or environment variables)
     @Value("${stripe.api.secret.key}")
@@ -110,7 +111,9 @@ public class PaymentServiceImpl implements PaymentService {
 
     /**
      * Updates payment status for an order after payment attempt (success/failure).
+     * The payment, the order status and the outbox email are committed together.
      */
+    @Transactional
     @Override
     public void updatePaymentForOrder(PaymentDTO paymentDTO) {
         Long orderId = paymentDTO.getOrderId();
@@ -137,32 +140,31 @@ public class PaymentServiceImpl implements PaymentService {
         // Persist payment to database
         paymentRepository.save(payment);
 
-        // Prepare Thymeleaf email context
-        Context context = new Context(Locale.getDefault());
-        context.setVariable("customerName", order.getUser().getName());
-        context.setVariable("orderId", order.getId());
-        context.setVariable("currentYear", Year.now().getValue());
-        context.setVariable("amount", "$" + paymentDTO.getAmount());
+        // Prepare Thymeleaf email variables, rendered by the outbox relay
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("customerName", order.getUser().getName());
+        variables.put("orderId", order.getId());
+        variables.put("currentYear", Year.now().getValue());
+        variables.put("amount", "$" + paymentDTO.getAmount());
 
         if (paymentDTO.isSuccess()) {
             // If payment successful → update order to confirmed
             order.setPaymentStatus(PaymentStatus.COMPLETED);
             order.setOrderStatus(OrderStatus.CONFIRMED);
             orderRepository.save(order);
+            orderEventHub.orderChanged(order);
 
             // Add extra info to success email
-            context.setVariable("transactionId", paymentDTO.getTransactionId());
-            context.setVariable("paymentDate", LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a")));
-            context.setVariable("frontendBaseUrl", this.frontendBaseUrl);
+            variables.put("transactionId", paymentDTO.getTransactionId());
+            variables.put("paymentDate", LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a")));
+            variables.put("frontendBaseUrl", this.frontendBaseUrl);
 
-            // Generate success email template
-            String emailBody = templateEngine.process("payment-success", context);
-
-            // Send success notification
-            notificationService.sendEmail(NotificationDTO.builder()
+            // Queue success notification
+            notificationService.enqueueEmail(NotificationDTO.builder()
                     .recipient(order.getUser().getEmail())
                     .subject("Payment Successful - Order #" + order.getId())
-                    .body(emailBody)
+                    .templateName("payment-success")
+                    .templateVariables(variables)
                     .isHtml(true)
                     .build());
         }
@@ -171,18 +173,17 @@ public class PaymentServiceImpl implements PaymentService {
             order.setPaymentStatus(PaymentStatus.FAILED);
             order.setOrderStatus(OrderStatus.CANCELLED);
             orderRepository.save(order);
+            orderEventHub.orderChanged(order);
 
             // Add failure reason to failure email
-            context.setVariable("failureReason", paymentDTO.getFailureReason());
-
-            // Generate failure email template
-            String emailBody = templateEngine.process("payment-failed", context);
+            variables.put("failureReason", paymentDTO.getFailureReason());
 
-            // Send failure notification
-            notificationService.sendEmail(NotificationDTO.builder()
+            // Queue failure notification
+            notificationService.enqueueEmail(NotificationDTO.builder()
                     .recipient(order.getUser().getEmail())
                     .subject("Payment Failed - Order #" + order.getId())
-                    .body(emailBody)
+                    .templateName("payment-failed")
+                    .templateVariables(variables)
                     .isHtml(true)
                     .build());
         }
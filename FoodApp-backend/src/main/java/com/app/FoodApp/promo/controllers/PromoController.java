@@ -0,0 +1,40 @@
+package com.app.FoodApp.promo.controllers;
+
+import com.app.FoodApp.promo.dtos.PromoCodeDTO;
+import com.app.FoodApp.promo.services.PromoService;
+import com.app.FoodApp.response.Response;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/promos")
+@PreAuthorize("hasAuthority('ADMIN')")
+public class PromoController {
+    private final PromoService promoService;
+
+    @PostMapping
+    public ResponseEntity<Response<PromoCodeDTO>> addPromoCode(@RequestBody @Valid PromoCodeDTO promoCodeDTO) {
+        return ResponseEntity.ok(promoService.addPromoCode(promoCodeDTO));
+    }
+
+    @PutMapping
+    public ResponseEntity<Response<PromoCodeDTO>> updatePromoCode(@RequestBody @Valid PromoCodeDTO promoCodeDTO) {
+        return ResponseEntity.ok(promoService.updatePromoCode(promoCodeDTO));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Response<?>> deletePromoCode(@PathVariable Long id) {
+        return ResponseEntity.ok(promoService.deletePromoCode(id));
+    }
+
+    @GetMapping("/all")
+    public ResponseEntity<Response<List<PromoCodeDTO>>> getAllPromoCodes() {
+        return ResponseEntity.ok(promoService.getAllPromoCodes());
+    }
+}
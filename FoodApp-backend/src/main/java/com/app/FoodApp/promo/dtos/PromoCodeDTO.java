@@ -0,0 +1,46 @@
+package com.app.FoodApp.promo.dtos;
+
+import com.app.FoodApp.enums.DiscountType;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PromoCodeDTO {
+    private Long id;
+
+    @NotBlank(message = "Code is required")
+    private String code;
+
+    @NotNull(message = "Discount type is required")
+    private DiscountType discountType;
+
+    @NotNull(message = "Discount value is required")
+    @Positive(message = "Discount value must be positive")
+    private BigDecimal discountValue;
+
+    private Long categoryId;
+
+    @PositiveOrZero(message = "Minimum order amount cannot be negative")
+    private BigDecimal minOrderAmount;
+
+    @PositiveOrZero(message = "Usage limit cannot be negative")
+    private Long usageLimit;
+
+    private Long usedCount; // Read only
+
+    private Boolean active;
+
+    private LocalDateTime startsAt;
+
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,53 @@
+package com.app.FoodApp.promo.entities;
+
+import com.app.FoodApp.enums.DiscountType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "promo_codes")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PromoCode {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private String code; // Stored upper case
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DiscountType discountType;
+
+    @Column(nullable = false)
+    private BigDecimal discountValue;
+
+    private Long categoryId; // Only items of this category are discounted; null for the whole cart
+
+    private BigDecimal minOrderAmount;
+
+    private Long usageLimit; // Null for unlimited
+
+    // Only moved by PromoEngine's delta updates, never by saving the entity
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long usedCount;
+
+    private boolean active;
+
+    private LocalDateTime startsAt;
+
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,16 @@
+package com.app.FoodApp.promo.repositories;
+
+import com.app.FoodApp.promo.entities.PromoCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface PromoCodeRepository extends JpaRepository<PromoCode, Long> {
+    boolean existsByCode(String code);
+
+    // Redemptions are added as deltas, so instances persisting the same code add up
+    @Modifying
+    @Query("UPDATE PromoCode p SET p.usedCount = p.usedCount + :delta WHERE p.id = :id")
+    int addToUsedCount(@Param("id") Long id, @Param("delta") long delta);
+}
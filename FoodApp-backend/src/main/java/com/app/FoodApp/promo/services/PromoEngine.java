@@ -0,0 +1,290 @@
+package com.app.FoodApp.promo.services;
+
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.promo.entities.PromoCode;
+import com.app.FoodApp.promo.repositories.PromoCodeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Evaluates promo codes against carts.
+ * Promo codes are compiled once into an immutable index keyed by code and rebuilt after admin changes commit,
+ * so evaluating a cart runs no queries.
+ * <p>
+ * Redemptions are counted in memory with a lock-free counter per promo and persisted as deltas every few seconds,
+ * so a popular code never serializes checkouts on its row. Every persist also reads the stored counts,
+ * which brings in redemptions made on other instances. The usage limit is therefore exact within an instance
+ * and can be overshot by what other instances redeemed within one persist interval.
+ */
+@Component
+@Slf4j
+public class PromoEngine {
+    private final PromoCodeRepository promoCodeRepository;
+    private final MenuCatalogCache menuCatalogCache;
+    private final TransactionTemplate transactionTemplate;
+
+    // code -> rule; null until the first build
+    private final AtomicReference<Map<String, PromoRule>> rules = new AtomicReference<>();
+
+    // promoId -> redemptions
+    private final ConcurrentHashMap<Long, Redemptions> redemptions = new ConcurrentHashMap<>();
+
+    private final Counter redeemed;
+    private final Counter rejected;
+
+    public PromoEngine(PromoCodeRepository promoCodeRepository,
+                       MenuCatalogCache menuCatalogCache,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.promoCodeRepository = promoCodeRepository;
+        this.menuCatalogCache = menuCatalogCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Own transaction: rebuilds also run from afterCommit callbacks of the admin's transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.redeemed = Counter.builder("promo.redemptions").tag("result", "redeemed").register(meterRegistry);
+        this.rejected = Counter.builder("promo.redemptions").tag("result", "rejected").register(meterRegistry);
+    }
+
+    /**
+     * Compiles the rules once the application is up so the first cart read is served from memory.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        }
+        catch (Exception ex) {
+            // Not fatal: the first evaluation retries the build
+            log.warn("Could not warm up promo rules: {}", ex.getMessage());
+        }
+    }
+
+    public static String normalize(String code) {
+        return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public Optional<PromoRule> find(String code) {
+        return Optional.ofNullable(rules().get(normalize(code)));
+    }
+
+    /**
+     * Works out the discount of a code for the given items and order total, without redeeming it.
+     */
+    public PromoEvaluation evaluate(String code, List<PricedItem> items, long orderMinor) {
+        PromoRule rule = rules().get(normalize(code));
+        if (rule == null) {
+            return PromoEvaluation.rejected(code, "Promo code not found");
+        }
+
+        String rejection = rule.rejection(orderMinor, LocalDateTime.now());
+        if (rejection != null) {
+            return PromoEvaluation.rejected(rule.code(), rejection);
+        }
+        if (rule.usageLimit() != null && counter(rule).used.get() >= rule.usageLimit()) {
+            return PromoEvaluation.rejected(rule.code(), "Promo code has been fully redeemed");
+        }
+
+        long eligibleMinor = eligible(rule, items, orderMinor);
+        if (eligibleMinor == 0) {
+            return PromoEvaluation.rejected(rule.code(), "No items in the cart qualify for this promo code");
+        }
+        return new PromoEvaluation(rule.code(), rule.discount(eligibleMinor), null);
+    }
+
+    /**
+     * Evaluates the code and, if it applies, takes one redemption within the usage limit.
+     * Inside a transaction the redemption is given back if that transaction rolls back.
+     */
+    public PromoEvaluation redeem(String code, List<PricedItem> items, long orderMinor) {
+        PromoEvaluation evaluation = evaluate(code, items, orderMinor);
+        if (!evaluation.applied()) {
+            rejected.increment();
+            return evaluation;
+        }
+
+        PromoRule rule = rules().get(evaluation.code());
+        Redemptions counter = counter(rule);
+        if (!counter.tryRedeem(rule.usageLimit())) {
+            rejected.increment();
+            return PromoEvaluation.rejected(rule.code(), "Promo code has been fully redeemed");
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        counter.release();
+                    }
+                }
+            });
+        }
+        redeemed.increment();
+        return evaluation;
+    }
+
+    /**
+     * Writes redemptions made since the last run as deltas, then picks up the stored counts,
+     * which include redemptions made on other instances.
+     */
+    @Scheduled(fixedDelayString = "${promo.redemptions.persist-interval-ms:5000}")
+    public void persistRedemptions() {
+        redemptions.forEach((promoId, counter) -> {
+            long delta = counter.unpersisted.getAndSet(0);
+            if (delta == 0) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> promoCodeRepository.addToUsedCount(promoId, delta));
+            }
+            catch (Exception ex) {
+                // Kept and retried on the next run
+                counter.unpersisted.addAndGet(delta);
+                log.warn("Could not persist redemptions of promo {}: {}", promoId, ex.getMessage());
+            }
+        });
+
+        try {
+            List<PromoCode> stored = transactionTemplate.execute(status -> promoCodeRepository.findAll());
+            stored.forEach(promo -> counter(promo.getId(), promo.getUsedCount()).sync(promo.getUsedCount()));
+        }
+        catch (Exception ex) {
+            log.warn("Could not refresh promo usage: {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persistRedemptions();
+    }
+
+    /**
+     * Recompiles the rules after the current transaction commits (a promo code was added, changed or removed).
+     */
+    public void promosChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                }
+            });
+        } else {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reloads and compiles all promo codes.
+     */
+    public synchronized Map<String, PromoRule> rebuild() {
+        List<PromoCode> promos = transactionTemplate.execute(status -> promoCodeRepository.findAll());
+
+        Map<String, PromoRule> compiled = new HashMap<>();
+        for (PromoCode promo : promos) {
+            compiled.put(promo.getCode(), PromoRule.compile(promo));
+            counter(promo.getId(), promo.getUsedCount()).sync(promo.getUsedCount());
+        }
+
+        rules.set(Map.copyOf(compiled));
+        log.info("Promo rules rebuilt: {} codes", compiled.size());
+        return compiled;
+    }
+
+    private Map<String, PromoRule> rules() {
+        Map<String, PromoRule> current = rules.get();
+        return current != null ? current : rebuild();
+    }
+
+    private long eligible(PromoRule rule, List<PricedItem> items, long orderMinor) {
+        if (rule.categoryId() == null) {
+            return orderMinor;
+        }
+
+        Map<Long, MenuSummaryDTO> menus = menuCatalogCache.snapshot().byId();
+        long eligibleMinor = 0;
+        for (PricedItem item : items) {
+            MenuSummaryDTO menu = menus.get(item.menuId());
+            if (menu != null && rule.categoryId().equals(menu.getCategoryId())) {
+                eligibleMinor += item.subtotalMinor();
+            }
+        }
+        return eligibleMinor;
+    }
+
+    private Redemptions counter(PromoRule rule) {
+        return counter(rule.id(), 0);
+    }
+
+    private Redemptions counter(Long promoId, long storedCount) {
+        return redemptions.computeIfAbsent(promoId, id -> new Redemptions(storedCount));
+    }
+
+    /**
+     * An item of the cart or order being priced.
+     */
+    public record PricedItem(Long menuId, long subtotalMinor) {
+    }
+
+    private static final class Redemptions {
+        // Stored count plus what this instance redeemed since
+        private final AtomicLong used;
+
+        // Redeemed here but not written to the promo row yet
+        private final AtomicLong unpersisted = new AtomicLong();
+
+        Redemptions(long storedCount) {
+            this.used = new AtomicLong(storedCount);
+        }
+
+        boolean tryRedeem(Long usageLimit) {
+            while (true) {
+                long current = used.get();
+                if (usageLimit != null && current >= usageLimit) {
+                    return false;
+                }
+                if (used.compareAndSet(current, current + 1)) {
+                    unpersisted.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            used.decrementAndGet();
+            unpersisted.decrementAndGet();
+        }
+
+        /**
+         * Only ever raises the count, so a redemption racing with the sync is never lost; at worst a
+         * released redemption is counted until the next sync.
+         */
+        void sync(long storedCount) {
+            long expected = storedCount + unpersisted.get();
+            used.accumulateAndGet(expected, Math::max);
+        }
+    }
+}
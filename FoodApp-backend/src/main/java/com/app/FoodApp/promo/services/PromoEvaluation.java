@@ -0,0 +1,23 @@
+package com.app.FoodApp.promo.services;
+
+import com.app.FoodApp.cart.services.MinorUnits;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of a promo code against a cart: the discount, or why it does not apply.
+ */
+public record PromoEvaluation(String code, long discountMinor, String rejection) {
+
+    static PromoEvaluation rejected(String code, String rejection) {
+        return new PromoEvaluation(code, 0, rejection);
+    }
+
+    public boolean applied() {
+        return rejection == null;
+    }
+
+    public BigDecimal discountAmount() {
+        return MinorUnits.toAmount(discountMinor);
+    }
+}
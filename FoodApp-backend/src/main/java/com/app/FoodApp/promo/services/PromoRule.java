@@ -0,0 +1,65 @@
+package com.app.FoodApp.promo.services;
+
+import com.app.FoodApp.cart.services.MinorUnits;
+import com.app.FoodApp.enums.DiscountType;
+import com.app.FoodApp.promo.entities.PromoCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A promo code compiled for evaluation: money in minor units, percentages in basis points,
+ * so evaluating a cart is plain long arithmetic.
+ */
+public record PromoRule(Long id,
+                        String code,
+                        DiscountType discountType,
+                        long value, // basis points for PERCENTAGE, minor units for FIXED
+                        Long categoryId,
+                        long minOrderMinor,
+                        Long usageLimit,
+                        boolean active,
+                        LocalDateTime startsAt,
+                        LocalDateTime expiresAt) {
+
+    static PromoRule compile(PromoCode promo) {
+        long value = promo.getDiscountType() == DiscountType.PERCENTAGE
+                ? promo.getDiscountValue().multiply(BigDecimal.valueOf(100)).longValue()
+                : MinorUnits.of(promo.getDiscountValue());
+
+        return new PromoRule(promo.getId(), promo.getCode(), promo.getDiscountType(), value,
+                promo.getCategoryId(),
+                promo.getMinOrderAmount() == null ? 0 : MinorUnits.of(promo.getMinOrderAmount()),
+                promo.getUsageLimit(), promo.isActive(), promo.getStartsAt(), promo.getExpiresAt());
+    }
+
+    /**
+     * Why the code cannot be used on an order of this total right now, or null if it can.
+     * The usage limit is checked separately against the live counter.
+     */
+    String rejection(long orderMinor, LocalDateTime now) {
+        if (!active) {
+            return "Promo code is not active";
+        }
+        if (startsAt != null && now.isBefore(startsAt)) {
+            return "Promo code is not valid yet";
+        }
+        if (expiresAt != null && now.isAfter(expiresAt)) {
+            return "Promo code has expired";
+        }
+        if (orderMinor < minOrderMinor) {
+            return "Order total must be at least " + MinorUnits.toAmount(minOrderMinor) + " for this promo code";
+        }
+        return null;
+    }
+
+    /**
+     * Discount on the eligible amount; percentages are rounded down to the minor unit.
+     */
+    long discount(long eligibleMinor) {
+        return switch (discountType) {
+            case PERCENTAGE -> Math.min(eligibleMinor, eligibleMinor * value / 10_000);
+            case FIXED -> Math.min(eligibleMinor, value);
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.app.FoodApp.promo.services;
+
+import com.app.FoodApp.promo.dtos.PromoCodeDTO;
+import com.app.FoodApp.response.Response;
+
+import java.util.List;
+
+public interface PromoService {
+    Response<PromoCodeDTO> addPromoCode(PromoCodeDTO promoCodeDTO);
+    Response<List<PromoCodeDTO>> getAllPromoCodes();
+    Response<PromoCodeDTO> updatePromoCode(PromoCodeDTO promoCodeDTO);
+    Response<?> deletePromoCode(Long id);
+}
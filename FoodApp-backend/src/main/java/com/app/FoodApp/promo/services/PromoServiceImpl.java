@@ -0,0 +1,158 @@
+package com.app.FoodApp.promo.services;
+
+import com.app.FoodApp.enums.DiscountType;
+import com.app.FoodApp.exceptions.BadRequestException;
+import com.app.FoodApp.exceptions.NotFoundException;
+import com.app.FoodApp.promo.dtos.PromoCodeDTO;
+import com.app.FoodApp.promo.entities.PromoCode;
+import com.app.FoodApp.promo.repositories.PromoCodeRepository;
+import com.app.FoodApp.response.Response;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PromoServiceImpl implements PromoService {
+    private final PromoCodeRepository promoCodeRepository;
+    private final ModelMapper modelMapper;
+    private final PromoEngine promoEngine;
+
+    @Override
+    @Transactional
+    public Response<PromoCodeDTO> addPromoCode(PromoCodeDTO promoCodeDTO) {
+        String code = PromoEngine.normalize(promoCodeDTO.getCode());
+        if (promoCodeRepository.existsByCode(code)) {
+            throw new BadRequestException("Promo code already exists");
+        }
+
+        PromoCode promoCode = PromoCode.builder()
+                .code(code)
+                .discountType(promoCodeDTO.getDiscountType())
+                .discountValue(promoCodeDTO.getDiscountValue())
+                .categoryId(promoCodeDTO.getCategoryId())
+                .minOrderAmount(promoCodeDTO.getMinOrderAmount())
+                .usageLimit(promoCodeDTO.getUsageLimit())
+                .active(promoCodeDTO.getActive() == null || promoCodeDTO.getActive())
+                .startsAt(promoCodeDTO.getStartsAt())
+                .expiresAt(promoCodeDTO.getExpiresAt())
+                .createdAt(LocalDateTime.now())
+                .build();
+        validate(promoCode);
+
+        promoCodeRepository.save(promoCode);
+        promoEngine.promosChanged();
+
+        return Response.<PromoCodeDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Promo code added successfully")
+                .build();
+    }
+
+    @Override
+    public Response<List<PromoCodeDTO>> getAllPromoCodes() {
+        List<PromoCodeDTO> promoCodeDTOS = promoCodeRepository.findAll().stream()
+                .map(promoCode -> modelMapper.map(promoCode, PromoCodeDTO.class)).toList();
+
+        return Response.<List<PromoCodeDTO>>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Retrieved all promo codes successfully")
+                .data(promoCodeDTOS)
+                .build();
+    }
+
+    /**
+     * Updates the given fields of a promo code. The code itself and its usage count cannot be changed.
+     */
+    @Override
+    @Transactional
+    public Response<PromoCodeDTO> updatePromoCode(PromoCodeDTO promoCodeDTO) {
+        if (promoCodeDTO.getId() == null) {
+            throw new BadRequestException("Promo code id is required");
+        }
+        PromoCode promoCode = promoCodeRepository.findById(promoCodeDTO.getId())
+                .orElseThrow(() -> new NotFoundException("Promo code not found"));
+
+        if (promoCodeDTO.getDiscountType() != null) {
+            promoCode.setDiscountType(promoCodeDTO.getDiscountType());
+        }
+        if (promoCodeDTO.getDiscountValue() != null) {
+            promoCode.setDiscountValue(promoCodeDTO.getDiscountValue());
+        }
+        if (promoCodeDTO.getCategoryId() != null) {
+            promoCode.setCategoryId(promoCodeDTO.getCategoryId());
+        }
+        if (promoCodeDTO.getMinOrderAmount() != null) {
+            promoCode.setMinOrderAmount(promoCodeDTO.getMinOrderAmount());
+        }
+        if (promoCodeDTO.getUsageLimit() != null) {
+            promoCode.setUsageLimit(promoCodeDTO.getUsageLimit());
+        }
+        if (promoCodeDTO.getActive() != null) {
+            promoCode.setActive(promoCodeDTO.getActive());
+        }
+        if (promoCodeDTO.getStartsAt() != null) {
+            promoCode.setStartsAt(promoCodeDTO.getStartsAt());
+        }
+        if (promoCodeDTO.getExpiresAt() != null) {
+            promoCode.setExpiresAt(promoCodeDTO.getExpiresAt());
+        }
+        validate(promoCode);
+
+        promoCodeRepository.save(promoCode);
+        promoEngine.promosChanged();
+
+        return Response.<PromoCodeDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Promo code updated successfully")
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public Response<?> deletePromoCode(Long id) {
+        if (!promoCodeRepository.existsById(id)) {
+            throw new NotFoundException("Promo code not found");
+        }
+
+        promoCodeRepository.deleteById(id);
+        promoEngine.promosChanged();
+
+        return Response.builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Promo code deleted successfully")
+                .build();
+    }
+
+    /**
+     * Checked on the promo as saved, since an update only carries the fields it changes.
+     * Orders subtract the discount from the items total, so it must be positive.
+     */
+    private void validate(PromoCode promoCode) {
+        if (promoCode.getDiscountValue() == null || promoCode.getDiscountValue().signum() <= 0) {
+            throw new BadRequestException("Discount value must be positive");
+        }
+        if (promoCode.getMinOrderAmount() != null && promoCode.getMinOrderAmount().signum() < 0) {
+            throw new BadRequestException("Minimum order amount cannot be negative");
+        }
+        if (promoCode.getUsageLimit() != null && promoCode.getUsageLimit() < 0) {
+            throw new BadRequestException("Usage limit cannot be negative");
+        }
+        if (promoCode.getDiscountType() == DiscountType.PERCENTAGE
+                && promoCode.getDiscountValue().compareTo(BigDecimal.valueOf(100)) > 0) {
+            throw new BadRequestException("Percentage discount cannot exceed 100");
+        }
+        if (promoCode.getStartsAt() != null && promoCode.getExpiresAt() != null
+                && promoCode.getExpiresAt().isBefore(promoCode.getStartsAt())) {
+            throw new BadRequestException("Promo code cannot expire before it starts");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.app.FoodApp.review.controllers;
 
 import com.app.FoodApp.response.Response;
+import com.app.FoodApp.review.dtos.MenuRatingDTO;
 import com.app.FoodApp.review.dtos.ReviewDTO;
 import com.app.FoodApp.review.services.ReviewService;
 import jakarta.validation.Valid;
@@ -39,4 +40,18 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getAverageRating(menuId));
     }
 
+    @GetMapping("/menu-item/rating/{menuId}")
+    public ResponseEntity<Response<MenuRatingDTO>> getRatingSummary(
+            @PathVariable Long menuId
+    ) {
+        return ResponseEntity.ok(reviewService.getRatingSummary(menuId));
+    }
+
+    // Recomputes the rating aggregates stored on menus from the review table
+    @PostMapping("/aggregates/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Response<Integer>> rebuildRatingAggregates() {
+        return ResponseEntity.ok(reviewService.rebuildRatingAggregates());
+    }
+
 }
@@ -0,0 +1,24 @@
+package com.app.FoodApp.review.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MenuRatingDTO {
+    private Long menuId;
+
+    private Double averageRating;
+
+    private Long ratingCount;
+
+    private Map<Integer, Long> histogram; // Rating (1-10) -> number of reviews, every rating present
+}
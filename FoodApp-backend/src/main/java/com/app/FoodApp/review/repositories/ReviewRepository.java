@@ -10,8 +10,12 @@ import java.util.List;
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByMenuIdOrderByIdDesc(Long menuId);
 
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.menu.id = :menuId")
-    Double calculateAverageRatingByMenuId(@Param("menuId") Long menuId);
+    // [menuId, rating, reviewCount], source of truth for the rating aggregates stored on Menu
+    @Query("SELECT r.menu.id, r.rating, COUNT(r) FROM Review r GROUP BY r.menu.id, r.rating")
+    List<Object[]> countRatingsByMenu();
+
+    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.menu.id = :menuId GROUP BY r.rating")
+    List<Object[]> countRatingsByMenuId(@Param("menuId") Long menuId);
 
     @Query("SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END " +
             "FROM Review r " +
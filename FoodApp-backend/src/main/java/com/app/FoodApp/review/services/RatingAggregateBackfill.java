@@ -0,0 +1,29 @@
+package com.app.FoodApp.review.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings the rating aggregates stored on menus in line with the review table at startup.
+ * Covers menus created before the aggregates existed and any drift from writes outside createReview.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RatingAggregateBackfill {
+    private final ReviewService reviewService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            reviewService.rebuildRatingAggregates();
+        }
+        catch (Exception ex) {
+            // Not fatal: averages stay as stored until an admin triggers a rebuild
+            log.warn("Could not backfill rating aggregates: {}", ex.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.app.FoodApp.review.services;
 
 import com.app.FoodApp.response.Response;
+import com.app.FoodApp.review.dtos.MenuRatingDTO;
 import com.app.FoodApp.review.dtos.ReviewDTO;
 
 import java.util.List;
@@ -9,4 +10,6 @@ public interface ReviewService {
     Response<ReviewDTO> createReview(ReviewDTO reviewDTO);
     Response<List<ReviewDTO>> getReviewsForMenu(Long menuId);
     Response<Double> getAverageRating(Long menuId);
+    Response<MenuRatingDTO> getRatingSummary(Long menuId);
+    Response<Integer> rebuildRatingAggregates();
 }
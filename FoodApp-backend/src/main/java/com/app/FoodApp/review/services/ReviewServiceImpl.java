@@ -5,12 +5,15 @@ import com.app.FoodApp.authUsers.services.UserService;
 import com.app.FoodApp.enums.OrderStatus;
 import com.app.FoodApp.exceptions.BadRequestException;
 import com.app.FoodApp.exceptions.NotFoundException;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
 import com.app.FoodApp.menu.entities.Menu;
 import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
 import com.app.FoodApp.order.entities.Order;
 import com.app.FoodApp.order.repositories.OrderItemRepository;
 import com.app.FoodApp.order.repositories.OrderRepository;
 import com.app.FoodApp.response.Response;
+import com.app.FoodApp.review.dtos.MenuRatingDTO;
 import com.app.FoodApp.review.dtos.ReviewDTO;
 import com.app.FoodApp.review.entities.Review;
 import com.app.FoodApp.review.repositories.ReviewRepository;
@@ -19,10 +22,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -34,6 +41,11 @@ public class ReviewServiceImpl implements ReviewService {
     private final OrderItemRepository orderItemRepository;
     private final ModelMapper modelMapper;
     private final UserService userService;
+    private final MenuCatalogCache menuCatalogCache;
+
+    // Same bounds as ReviewDTO.rating
+    private static final int MIN_RATING = 1;
+    private static final int MAX_RATING = 10;
 
     @Transactional
     @Override
@@ -44,7 +56,8 @@ public class ReviewServiceImpl implements ReviewService {
             throw new BadRequestException("Order ID and Menu Item ID are required");
         }
 
-        Menu menu = menuRepository.findById(reviewDTO.getMenuId())
+        // Locked until commit: the rating aggregates below are a read-modify-write of the menu row
+        Menu menu = menuRepository.findByIdForUpdate(reviewDTO.getMenuId())
                 .orElseThrow(() -> new NotFoundException("Menu not found"));
 
         Order order = orderRepository.findById(reviewDTO.getOrderId())
@@ -88,6 +101,11 @@ public class ReviewServiceImpl implements ReviewService {
                 .build();
 
         Review savedReview = reviewRepository.save(review);
+        menu.recordRating(savedReview.getRating());
+        menuRepository.addRating(menu.getId(), savedReview.getRating());
+
+        // Cached menus carry their rating aggregates, refresh this one once the review is committed
+        menuCatalogCache.menuChanged(menu.getId());
 
         ReviewDTO savedReviewDTO = modelMapper.map(savedReview, ReviewDTO.class);
         savedReviewDTO.setUserName(user.getName());
@@ -117,7 +135,9 @@ public class ReviewServiceImpl implements ReviewService {
 
     @Override
     public Response<Double> getAverageRating(Long menuId) {
-        Double averageRating = reviewRepository.calculateAverageRatingByMenuId(menuId);
+        // Served from the catalog snapshot, which carries the aggregates stored on the menu row
+        MenuSummaryDTO summary = menuCatalogCache.snapshot().byId().get(menuId);
+        Double averageRating = summary != null ? summary.getAverageRating() : null;
 
         return Response.<Double>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -125,4 +145,86 @@ public class ReviewServiceImpl implements ReviewService {
                 .data(averageRating != null ? averageRating : 0.0)
                 .build();
     }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Response<MenuRatingDTO> getRatingSummary(Long menuId) {
+        Menu menu = menuRepository.findById(menuId)
+                .orElseThrow(() -> new NotFoundException("Menu not found"));
+
+        // Every rating gets a bucket so the client can draw the bars without filling gaps
+        Map<Integer, Long> histogram = new TreeMap<>();
+        for (int rating = MIN_RATING; rating <= MAX_RATING; rating++) {
+            histogram.put(rating, menu.getRatingHistogram().getOrDefault(rating, 0L));
+        }
+
+        MenuRatingDTO ratingDTO = new MenuRatingDTO(menu.getId(), menu.getAverageRating(),
+                menu.getRatingCount(), histogram);
+
+        return Response.<MenuRatingDTO>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Rating summary retrieved successfully")
+                .data(ratingDTO)
+                .build();
+    }
+
+    // READ_COMMITTED so the per-menu recount after taking the row lock sees reviews committed meanwhile
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @Override
+    public Response<Integer> rebuildRatingAggregates() {
+        Map<Long, Map<Integer, Long>> actual = groupByMenu(reviewRepository.countRatingsByMenu());
+        Map<Long, Map<Integer, Long>> stored = groupByMenu(menuRepository.findRatingHistograms());
+
+        int corrected = 0;
+        for (Object[] row : menuRepository.findRatingTotals()) {
+            Long menuId = (Long) row[0];
+            Map<Integer, Long> histogram = actual.getOrDefault(menuId, Map.of());
+
+            if (histogram.equals(stored.getOrDefault(menuId, Map.of()))
+                    && (long) row[1] == ratingSum(histogram)
+                    && (long) row[2] == ratingCount(histogram)) {
+                continue;
+            }
+
+            // Drifted: recount under the row lock so a review written meanwhile is not lost
+            Menu menu = menuRepository.findByIdForUpdate(menuId).orElse(null);
+            if (menu == null) {
+                continue;
+            }
+            Map<Integer, Long> recounted = new HashMap<>();
+            for (Object[] bucket : reviewRepository.countRatingsByMenuId(menuId)) {
+                recounted.put((Integer) bucket[0], (Long) bucket[1]);
+            }
+            menu.resetRatings(recounted);
+            menuRepository.setRatingTotals(menuId, menu.getRatingSum(), menu.getRatingCount());
+            corrected++;
+        }
+
+        if (corrected > 0) {
+            log.warn("Rating aggregates were out of date for {} menus, rebuilt from reviews", corrected);
+            menuCatalogCache.catalogChanged();
+        }
+
+        return Response.<Integer>builder()
+                .statusCode(HttpStatus.OK.value())
+                .message("Rating aggregates rebuilt successfully")
+                .data(corrected)
+                .build();
+    }
+
+    private static Map<Long, Map<Integer, Long>> groupByMenu(List<Object[]> rows) {
+        Map<Long, Map<Integer, Long>> byMenu = new HashMap<>();
+        for (Object[] row : rows) {
+            byMenu.computeIfAbsent((Long) row[0], id -> new HashMap<>()).put((Integer) row[1], (Long) row[2]);
+        }
+        return byMenu;
+    }
+
+    private static long ratingSum(Map<Integer, Long> histogram) {
+        return histogram.entrySet().stream().mapToLong(e -> e.getKey() * e.getValue()).sum();
+    }
+
+    private static long ratingCount(Map<Integer, Long> histogram) {
+        return histogram.values().stream().mapToLong(Long::longValue).sum();
+    }
 }
@@ -6,6 +6,7 @@ import com.app.FoodApp.response.Response;
 import com.app.FoodApp.role.dtos.RoleDTO;
 import com.app.FoodApp.role.entities.Role;
 import com.app.FoodApp.role.repositories.RoleRepository;
+import com.app.FoodApp.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
@@ -22,6 +23,7 @@ public class RoleServiceImpl implements RoleService {
     // Injected dependencies: repository for Role persistence and ModelMapper for DTO ↔ entity mapping
     private final RoleRepository roleRepository;
     private final ModelMapper modelMapper;
+    private final PrincipalCache principalCache;
 
     // Create a new role in the system
     @Override
@@ -55,6 +57,9 @@ public class RoleServiceImpl implements RoleService {
         existingRole.setName(roleDTO.getName());
         Role updatedRole = roleRepository.save(existingRole);
 
+        // Cached principals carry role names as authorities
+        principalCache.invalidateAll();
+
         // Build and return a success response with updated role
         return Response.<RoleDTO>builder()
                 .statusCode(HttpStatus.OK.value())
@@ -90,6 +95,7 @@ public class RoleServiceImpl implements RoleService {
 
         // Delete the role
         roleRepository.deleteById(id);
+        principalCache.invalidateAll();
 
         // Build and return a success response without data
         return Response.builder()
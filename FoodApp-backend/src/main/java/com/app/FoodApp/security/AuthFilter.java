@@ -1,6 +1,7 @@
 package com.app.FoodApp.security;
 
 import com.app.FoodApp.exceptions.CustomAuthenticationEntryPoint;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -46,11 +47,11 @@ public class AuthFilter extends OncePerRequestFilter {
         String token = getTokenFromRequest(request);
 
         if (token != null) {
-            String email;
+            Claims claims;
 
             try {
-                // Try to extract email (subject) from token
-                email = jwtUtils.getUserNameFromToken(token);
+                // Verify the token once; subject and expiry are read from these claims below
+                claims = jwtUtils.parseClaims(token);
             }
             catch (Exception ex) {
                 // If token parsing fails -> reject request with 401
@@ -59,11 +60,13 @@ public class AuthFilter extends OncePerRequestFilter {
                 return; // Stop filter chain execution
             }
 
+            String email = claims.getSubject();
+
             // Load user details from DB by email
             UserDetails userDetails = customUserDetailsService.loadUserByUsername(email);
 
             // If email exists AND token is valid, authenticate the request
-            if (StringUtils.hasText(email) && jwtUtils.isTokenValid(token, userDetails)) {
+            if (StringUtils.hasText(email) && jwtUtils.isTokenValid(claims, userDetails)) {
                 // Create authentication token with user's authorities
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -10,14 +10,20 @@ import org.springframework.stereotype.Service;
 
 // CustomUserDetailsService loads your domain User from the DB.
 // AuthUser adapts the entity into a Spring Security-friendly UserDetails.
+// Principals are served from PrincipalCache, so steady-state requests do not query the users table.
 
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return principalCache.get(username, this::loadFromDatabase);
+    }
+
+    private AuthUser loadFromDatabase(String username) {
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
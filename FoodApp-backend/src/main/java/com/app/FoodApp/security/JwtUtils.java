@@ -1,6 +1,7 @@
 package com.app.FoodApp.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -13,7 +14,6 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.function.Function;
 
 @Service
 @Slf4j
@@ -24,6 +24,9 @@ public class JwtUtils {
     // Key used to sign and verify JWT tokens
     private SecretKey secretKey;
 
+    // Immutable and thread-safe, built once and shared by all requests
+    private JwtParser jwtParser;
+
     // Secret string loaded from application.properties or application.yml
     @Value("${secretJwtString}")
     private String secretJwtString;
@@ -36,6 +39,9 @@ public class JwtUtils {
     private void init() {
         // Convert secret string into bytes and generate HMAC-SHA256 key
         this.secretKey = Keys.hmacShaKeyFor(secretJwtString.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey) // verify tokens with signing key
+                .build();
         log.info("JWT secret key initialized successfully");
     }
 
@@ -61,49 +67,45 @@ public class JwtUtils {
      * @return subject (username/email)
      */
     public String getUserNameFromToken(String token) {
-        return extractClaims(token, Claims::getSubject);
+        return parseClaims(token).getSubject();
     }
 
     /**
-     * Validates a token by checking:
-     * 1. If the username matches the authenticated user
-     * 2. If the token is not expired
+     * Parses a token and verifies its signature, once.
+     * The returned claims carry everything a request needs (subject, expiration),
+     * so callers should keep them instead of parsing the same token again.
      *
      * @param token - JWT token
-     * @param userDetails - Spring Security's UserDetails
-     * @return true if valid, false otherwise
+     * @return verified claims (payload)
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
      */
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = getUserNameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    public Claims parseClaims(String token) {
+        return jwtParser
+                .parseSignedClaims(token) // parse and validate signature
+                .getPayload(); // return claims (payload)
     }
 
     /**
-     * Extracts any claim from the token using a resolver function.
-     * Example: subject, expiration date, etc.
+     * Validates already verified claims by checking:
+     * 1. If the username matches the authenticated user
+     * 2. If the token is not expired
      *
-     * @param token - JWT token
-     * @param claimsResolver - function to extract a specific claim
-     * @return extracted claim
+     * @param claims - claims returned by {@link #parseClaims(String)}
+     * @param userDetails - Spring Security's UserDetails
+     * @return true if valid, false otherwise
      */
-    private <T> T extractClaims(String token, Function<Claims, T> claimsResolver) {
-        return claimsResolver.apply(
-                Jwts.parser()
-                        .verifyWith(secretKey) // verify token with signing key
-                        .build()
-                        .parseSignedClaims(token) // parse and validate signature
-                        .getPayload() // return claims (payload)
-        );
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
     }
 
     /**
      * Checks if the token is expired by comparing expiration date with current time.
      *
-     * @param token - JWT token
+     * @param claims - verified token claims
      * @return true if expired, false otherwise
      */
-    private boolean isTokenExpired(String token) {
-        return extractClaims(token, Claims::getExpiration).before(new Date());
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 }
 
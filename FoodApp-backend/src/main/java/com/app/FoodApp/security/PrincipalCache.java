@@ -0,0 +1,94 @@
+package com.app.FoodApp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded, time-limited cache of authenticated principals keyed by email.
+ * Saves the user (and roles) lookup that {@link AuthFilter} would otherwise run on every request.
+ * Entries expire after a TTL and the least recently used ones are dropped once the cache is full.
+ * Services that change a user or roles must call {@link #invalidate(String)} or {@link #invalidateAll()}.
+ */
+@Component
+public class PrincipalCache {
+    private final long ttlMillis;
+    private final int maxSize;
+
+    // email -> cached principal, in access order for LRU eviction; guarded by "this"
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Bumped on every invalidation, so a load that raced with an update is not cached
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PrincipalCache(@Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${security.principal-cache.max-size:10000}") int maxSize,
+                          MeterRegistry meterRegistry) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PrincipalCache.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("security.principal.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("security.principal.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("security.principal.cache.size", this, PrincipalCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached principal for the email, or loads and caches it.
+     * The loader runs outside the lock; its exceptions propagate and nothing is cached.
+     */
+    public AuthUser get(String email, Function<String, AuthUser> loader) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+
+        synchronized (this) {
+            Entry entry = entries.get(email);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return entry.principal();
+            }
+            loadGeneration = generation;
+        }
+
+        misses.increment();
+        AuthUser principal = loader.apply(email);
+
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                entries.put(email, new Entry(principal, now + ttlMillis));
+            }
+        }
+        return principal;
+    }
+
+    public synchronized void invalidate(String email) {
+        generation++;
+        entries.remove(email);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(AuthUser principal, long expiresAt) {
+    }
+}
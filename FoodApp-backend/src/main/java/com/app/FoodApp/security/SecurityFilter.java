@@ -2,6 +2,7 @@ package com.app.FoodApp.security;
 
 import com.app.FoodApp.exceptions.CustomAccessDenialHandler;
 import com.app.FoodApp.exceptions.CustomAuthenticationEntryPoint;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -53,11 +54,14 @@ public class SecurityFilter {
 
                 // Define authorization rules
                 .authorizeHttpRequests(req -> req
+                        // Order status streams write from async dispatches; the request was authorized when it opened
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints (accessible without authentication)
                         .requestMatchers("/api/auth/**",
                                 "/api/categories/**",
                                 "/api/menu/**",
-                                "/api/reviews/**").permitAll()
+                                "/api/reviews/**",
+                                "/api/files/**").permitAll()
                         // All other endpoints require authentication
                         .anyRequest().authenticated())
 
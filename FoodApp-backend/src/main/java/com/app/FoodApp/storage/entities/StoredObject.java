@@ -0,0 +1,41 @@
+package com.app.FoodApp.storage.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An uploaded file stored under its content hash, with the number of rows (menus, users) pointing at it.
+ * The object is deleted from storage when the last reference is released.
+ */
+@Entity
+@Data
+@Table(name = "stored_objects")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StoredObject {
+    // Storage key: prefix, SHA-256 (hex) of the content and the original file extension
+    @Id
+    @Column(name = "object_key")
+    private String key;
+
+    private long size;
+
+    private long refCount;
+
+    // Uploads whose reference is not taken yet (see ContentAddressedStorage.upload); the object is kept meanwhile.
+    // One whose request failed stays counted, the garbage collector removes the object once nothing uses it
+    @Builder.Default
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 0")
+    private int pendingCount = 0;
+
+    private LocalDateTime createdAt;
+
+    // Last time a reference was taken; the garbage collector leaves recently referenced objects alone
+    private LocalDateTime referencedAt;
+}
@@ -0,0 +1,46 @@
+package com.app.FoodApp.storage.repositories;
+
+import com.app.FoodApp.storage.entities.StoredObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String> {
+
+    // Plain insert with one pending upload: save() would first select the row since the key is assigned.
+    // A duplicate key means another request stored the same content first
+    @Modifying
+    @Query(value = "INSERT INTO stored_objects (object_key, size, ref_count, pending_count, created_at, referenced_at) " +
+            "VALUES (:key, :size, 0, 1, :createdAt, :createdAt)", nativeQuery = true)
+    int insert(@Param("key") String key, @Param("size") long size, @Param("createdAt") LocalDateTime createdAt);
+
+    // Another upload of content that is already stored
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.pendingCount = o.pendingCount + 1, o.referencedAt = :now WHERE o.key = :key")
+    int addPending(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    // Turns a pending upload into a reference. Counted in the database, so concurrent uploads of the same
+    // content never lose a reference
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount + 1, o.pendingCount = o.pendingCount - 1, " +
+            "o.referencedAt = :now WHERE o.key = :key AND o.pendingCount > 0")
+    int addReference(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount - 1 WHERE o.key = :key AND o.refCount > 0")
+    int removeReference(@Param("key") String key);
+
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.key = :key AND o.refCount = 0 AND o.pendingCount = 0")
+    int deleteUnreferenced(@Param("key") String key);
+
+    // Counters of objects the garbage collector found unused; a reference taken since the cutoff keeps the row
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.key IN :keys " +
+            "AND (o.referencedAt IS NULL OR o.referencedAt < :cutoff)")
+    int deleteReferencedBefore(@Param("keys") Collection<String> keys, @Param("cutoff") LocalDateTime cutoff);
+}
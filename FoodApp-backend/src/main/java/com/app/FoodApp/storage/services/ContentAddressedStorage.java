@@ -0,0 +1,231 @@
+package com.app.FoodApp.storage.services;
+
+import com.app.FoodApp.aws.AwsS3Service;
+import com.app.FoodApp.storage.repositories.StoredObjectRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Stores uploads under the SHA-256 of their content, so the same photo uploaded again (an admin re-saving
+ * a menu, two menus sharing a picture) is stored once and not sent to S3 a second time.
+ * <p>
+ * Every row pointing at an object holds a reference counted in {@code stored_objects}; the object, and the
+ * copies derived from it, are queued for deletion ({@link StorageDeletionQueue}) when the last one is released.
+ * Uploading is split from taking the reference: {@link #upload} runs before the caller's transaction, so no
+ * database connection is held while the file is sent, and {@link #reference} joins it. In between the upload
+ * is counted as pending, which keeps a concurrent release of the last reference from deleting it.
+ * References are taken and released in the caller's transaction, deletions are queued only after it commits.
+ * Storing and releasing the same key is serialized by a striped lock, and storing a key takes back its queued
+ * deletion. Neither reaches other instances: there the deletion queue skips keys that have a counter row again
+ * when it sends the batch.
+ */
+@Component
+public class ContentAddressedStorage {
+    // Power of two; keys are spread over the stripes by hash
+    private static final int LOCK_STRIPES = 64;
+    // Kept on the key so the object is served with the right content type
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+
+    private final AwsS3Service awsS3Service;
+    private final StoredObjectRepository storedObjectRepository;
+    private final StorageDeletionQueue storageDeletionQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private final Counter uploaded;
+    private final Counter deduplicated;
+
+    public ContentAddressedStorage(AwsS3Service awsS3Service,
+                                   StoredObjectRepository storedObjectRepository,
+                                   StorageDeletionQueue storageDeletionQueue,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.awsS3Service = awsS3Service;
+        this.storedObjectRepository = storedObjectRepository;
+        this.storageDeletionQueue = storageDeletionQueue;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        this.uploaded = Counter.builder("storage.uploads").tag("result", "uploaded").register(meterRegistry);
+        this.deduplicated = Counter.builder("storage.uploads").tag("result", "deduplicated").register(meterRegistry);
+    }
+
+    /**
+     * Key and URL of a stored upload.
+     */
+    public record StoredFile(String key, URL url) {
+    }
+
+    /**
+     * Stores the upload under {@code prefix} and takes a reference to it, in the caller's transaction if any.
+     * Callers with a transaction of their own use {@link #upload} before it and {@link #reference} inside it.
+     */
+    public StoredFile store(String prefix, MultipartFile file) {
+        StoredFile stored = upload(prefix, file);
+        reference(stored);
+        return stored;
+    }
+
+    /**
+     * Stores the upload under {@code prefix} as a pending upload, committed right away. Content that is
+     * already stored is not uploaded again. The hash is computed in one streaming pass over the upload (which
+     * the servlet container keeps on disk) before anything is sent, since the key must be known up front.
+     * Call it before opening a transaction; a pending upload that is never referenced is garbage collected.
+     */
+    public StoredFile upload(String prefix, MultipartFile file) {
+        String key = prefix + contentHash(file) + extension(file.getOriginalFilename());
+
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            // Repeated when the row went away between a failed insert and the retry
+            while (!addPendingIfPresent(key) && !uploadAndInsert(key, file)) {
+                Thread.onSpinWait();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        return new StoredFile(key, awsS3Service.urlOf(key));
+    }
+
+    /**
+     * Takes the reference to an upload from {@link #upload}, as part of the caller's transaction.
+     */
+    public void reference(StoredFile file) {
+        int updated = transactionTemplate.execute(status ->
+                storedObjectRepository.addReference(file.key(), LocalDateTime.now()));
+        if (updated == 0) {
+            throw new IllegalStateException("Stored object " + file.key() + " has no pending upload to reference");
+        }
+    }
+
+    /**
+     * Releases a reference taken by {@link #store}. When it was the last one, the object and the
+     * {@code derivedKeys} (resized copies) are queued for deletion once the caller's transaction commits.
+     * Keys stored before deduplication have no counter and are always deleted, as they used to be.
+     */
+    public void release(String key, List<String> derivedKeys) {
+        transactionTemplate.executeWithoutResult(status -> {
+            storedObjectRepository.removeReference(key);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteIfUnreferenced(key, derivedKeys);
+                }
+            });
+        });
+    }
+
+    /**
+     * Key of the stored object a URL points at, or null when the URL is not from this storage
+     * (e.g. an image linked from elsewhere), which then must not be released.
+     */
+    public String keyOf(String url) {
+        return awsS3Service.keyOf(url);
+    }
+
+    private boolean addPendingIfPresent(String key) {
+        boolean present = newTransaction.execute(status ->
+                storedObjectRepository.addPending(key, LocalDateTime.now())) > 0;
+        if (present) {
+            deduplicated.increment();
+        }
+        return present;
+    }
+
+    /**
+     * @return false if another instance stored the same content at the same time; its row then holds the upload
+     */
+    private boolean uploadAndInsert(String key, MultipartFile file) {
+        // The same content may have been released just before: its deletion must not remove this upload
+        storageDeletionQueue.cancel(key);
+        awsS3Service.uploadFile(key, file);
+        uploaded.increment();
+        try {
+            // Committed right away: the object exists now, whatever happens to the caller's transaction
+            newTransaction.executeWithoutResult(status ->
+                    storedObjectRepository.insert(key, file.getSize(), LocalDateTime.now()));
+            return true;
+        }
+        catch (DataIntegrityViolationException ex) {
+            return false;
+        }
+    }
+
+    private void deleteIfUnreferenced(String key, List<String> derivedKeys) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            boolean unreferenced = Boolean.TRUE.equals(newTransaction.execute(status ->
+                    storedObjectRepository.deleteUnreferenced(key) > 0 || !storedObjectRepository.existsById(key)));
+            if (!unreferenced) {
+                return;
+            }
+
+            List<String> keys = new ArrayList<>(derivedKeys);
+            keys.add(key);
+            storageDeletionQueue.enqueue(keys);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private static String contentHash(MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = content.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException("Could not read upload", ex);
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static String extension(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return "";
+        }
+        String extension = filename.substring(filename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private ReentrantLock lockFor(String key) {
+        return locks[key.hashCode() & (LOCK_STRIPES - 1)];
+    }
+}
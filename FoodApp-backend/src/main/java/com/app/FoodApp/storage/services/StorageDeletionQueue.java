@@ -0,0 +1,184 @@
+package com.app.FoodApp.storage.services;
+
+import com.app.FoodApp.aws.AwsS3Service;
+import com.app.FoodApp.image.services.ImagePipeline;
+import com.app.FoodApp.storage.entities.StoredObject;
+import com.app.FoodApp.storage.repositories.StoredObjectRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes stored objects off the request thread. Keys are collected in memory and sent in batches,
+ * one DeleteObjects request per batch instead of one request per object.
+ * <p>
+ * The queue is bounded and not persisted: keys dropped when it is full, or lost on a crash, are left to
+ * {@link StorageGarbageCollector}. A key being stored again can be taken back with {@link #cancel(String)},
+ * so a queued deletion never removes the new upload. Another instance storing the same content cannot reach
+ * this queue, so keys that have a {@code stored_objects} row again by the time their batch is sent are skipped,
+ * together with their resized copies.
+ */
+@Component
+@Slf4j
+public class StorageDeletionQueue {
+    // Most keys a single DeleteObjects request accepts
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final AwsS3Service awsS3Service;
+    private final StoredObjectRepository storedObjectRepository;
+    private final int capacity;
+    private final int batchSize;
+
+    // Keys waiting to be deleted, and the keys of the batch being deleted; guarded by this
+    private final Set<String> pending = new LinkedHashSet<>();
+    private final Set<String> inFlight = new HashSet<>();
+
+    private final Counter deleted;
+    private final Counter failed;
+    private final Counter dropped;
+    private final Counter kept;
+
+    public StorageDeletionQueue(AwsS3Service awsS3Service,
+                                StoredObjectRepository storedObjectRepository,
+                                @Value("${storage.deletion.queue-capacity:100000}") int capacity,
+                                @Value("${storage.deletion.batch-size:1000}") int batchSize,
+                                MeterRegistry meterRegistry) {
+        this.awsS3Service = awsS3Service;
+        this.storedObjectRepository = storedObjectRepository;
+        this.capacity = capacity;
+        this.batchSize = Math.min(batchSize, MAX_BATCH_SIZE);
+
+        this.deleted = Counter.builder("storage.deletions").tag("result", "deleted").register(meterRegistry);
+        this.failed = Counter.builder("storage.deletions").tag("result", "failed").register(meterRegistry);
+        this.dropped = Counter.builder("storage.deletions").tag("result", "dropped").register(meterRegistry);
+        this.kept = Counter.builder("storage.deletions").tag("result", "kept").register(meterRegistry);
+        Gauge.builder("storage.deletion.queue.depth", this, StorageDeletionQueue::size).register(meterRegistry);
+    }
+
+    /**
+     * Queues keys for deletion. Returns right away.
+     */
+    public synchronized void enqueue(Collection<String> keys) {
+        int droppedKeys = 0;
+        for (String key : keys) {
+            if (pending.size() < capacity || pending.contains(key)) {
+                pending.add(key);
+            } else {
+                droppedKeys++;
+            }
+        }
+
+        if (droppedKeys > 0) {
+            log.warn("Deletion queue is full, {} objects are left to the garbage collector", droppedKeys);
+            dropped.increment(droppedKeys);
+        }
+    }
+
+    /**
+     * Takes a key back before it is stored again. If its batch is being deleted right now, waits for it,
+     * so the caller's upload comes after the deletion.
+     */
+    public synchronized void cancel(String key) {
+        pending.remove(key);
+
+        boolean interrupted = false;
+        while (inFlight.contains(key)) {
+            try {
+                wait();
+            }
+            catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Deletes everything queued, one batch at a time. A failed batch is not retried; the garbage
+     * collector removes those objects later.
+     */
+    @Scheduled(fixedDelayString = "${storage.deletion.flush-interval-ms:1000}")
+    public void flush() {
+        List<String> batch;
+        while (!(batch = takeBatch()).isEmpty()) {
+            try {
+                List<String> unused = withoutStoredAgain(batch);
+                kept.increment(batch.size() - unused.size());
+                if (unused.isEmpty()) {
+                    continue;
+                }
+                int deletedKeys = awsS3Service.deleteFiles(unused);
+                deleted.increment(deletedKeys);
+                failed.increment(unused.size() - deletedKeys);
+            }
+            catch (RuntimeException ex) {
+                log.warn("Could not delete {} stored objects: {}", batch.size(), ex.getMessage());
+                failed.increment(batch.size());
+            }
+            finally {
+                finished(batch);
+            }
+        }
+    }
+
+    /**
+     * Drops the keys that were stored again since they were queued, possibly by another instance,
+     * and the resized copies of those.
+     */
+    private List<String> withoutStoredAgain(List<String> batch) {
+        Set<String> storedAgain = new HashSet<>();
+        for (StoredObject object : storedObjectRepository.findAllById(batch)) {
+            storedAgain.add(object.getKey());
+            storedAgain.addAll(ImagePipeline.variantKeys(object.getKey()));
+        }
+        if (storedAgain.isEmpty()) {
+            return batch;
+        }
+        return batch.stream()
+                .filter(key -> !storedAgain.contains(key))
+                .toList();
+    }
+
+    private synchronized List<String> takeBatch() {
+        List<String> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<String> keys = pending.iterator();
+        while (keys.hasNext() && batch.size() < batchSize) {
+            batch.add(keys.next());
+            keys.remove();
+        }
+        inFlight.addAll(batch);
+        return batch;
+    }
+
+    private synchronized void finished(List<String> batch) {
+        batch.forEach(inFlight::remove);
+        notifyAll();
+    }
+
+    /**
+     * Sends what is still queued on shutdown.
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
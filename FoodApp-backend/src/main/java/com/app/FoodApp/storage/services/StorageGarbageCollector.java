@@ -0,0 +1,144 @@
+package com.app.FoodApp.storage.services;
+
+import com.app.FoodApp.authUsers.repositories.UserRepository;
+import com.app.FoodApp.aws.AwsS3Service;
+import com.app.FoodApp.image.services.ImagePipeline;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.storage.entities.StoredObject;
+import com.app.FoodApp.storage.repositories.StoredObjectRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Removes stored images nothing points at any more: objects under {@code menus/} and {@code profile/} whose key
+ * is not the {@code Menu.imageUrl} or {@code User.profileUrl} of any row, nor a resized copy of one.
+ * Catches what the deletion queue dropped or lost, and uploads whose menu or user was never saved.
+ * <p>
+ * Only objects older than {@code storage.gc.min-age-hours} are removed, and content referenced again within
+ * that time is kept, so an upload whose row is still being saved is never collected.
+ */
+@Component
+@Slf4j
+public class StorageGarbageCollector {
+    private static final int BATCH_SIZE = 1000;
+
+    private final AwsS3Service awsS3Service;
+    private final MenuRepository menuRepository;
+    private final UserRepository userRepository;
+    private final StoredObjectRepository storedObjectRepository;
+    private final StorageDeletionQueue storageDeletionQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minAge;
+
+    private final Counter collected;
+
+    public StorageGarbageCollector(AwsS3Service awsS3Service,
+                                   MenuRepository menuRepository,
+                                   UserRepository userRepository,
+                                   StoredObjectRepository storedObjectRepository,
+                                   StorageDeletionQueue storageDeletionQueue,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${storage.gc.min-age-hours:24}") long minAgeHours,
+                                   MeterRegistry meterRegistry) {
+        this.awsS3Service = awsS3Service;
+        this.menuRepository = menuRepository;
+        this.userRepository = userRepository;
+        this.storedObjectRepository = storedObjectRepository;
+        this.storageDeletionQueue = storageDeletionQueue;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minAge = Duration.ofHours(minAgeHours);
+
+        this.collected = Counter.builder("storage.gc.collected").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${storage.gc.cron:0 0 4 * * *}")
+    public void collect() {
+        try {
+            int menuImages = collect("menus/", menuRepository.findAllImageUrls());
+            int profileImages = collect("profile/", userRepository.findAllProfileUrls());
+            log.info("Storage garbage collection queued {} menu and {} profile objects for deletion",
+                    menuImages, profileImages);
+        }
+        catch (RuntimeException ex) {
+            log.warn("Could not collect unused stored objects: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Queues every object under the prefix that none of the URLs references.
+     *
+     * @return number of objects queued for deletion
+     */
+    private int collect(String prefix, List<String> urls) {
+        Set<String> referenced = new HashSet<>();
+        for (String url : urls) {
+            String key = awsS3Service.keyOf(url);
+            if (key != null) {
+                referenced.add(key);
+                referenced.addAll(ImagePipeline.variantKeys(key));
+            }
+        }
+
+        Instant cutoff = Instant.now().minus(minAge);
+        int queued = 0;
+        List<String> candidates = new ArrayList<>(BATCH_SIZE);
+        try (Stream<AwsS3Service.ListedObject> objects = awsS3Service.listFiles(prefix)) {
+            Iterator<AwsS3Service.ListedObject> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                AwsS3Service.ListedObject object = iterator.next();
+                if (!referenced.contains(object.key()) && object.lastModified().isBefore(cutoff)) {
+                    candidates.add(object.key());
+                }
+                if (candidates.size() == BATCH_SIZE) {
+                    queued += queueUnused(candidates);
+                    candidates.clear();
+                }
+            }
+        }
+        queued += queueUnused(candidates);
+
+        collected.increment(queued);
+        return queued;
+    }
+
+    /**
+     * Drops the reference counters of the candidates and queues them for deletion, except content that was
+     * stored again since the cutoff (a new menu may be about to point at it).
+     */
+    private int queueUnused(List<String> candidates) {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+        Set<String> stillReferenced = transactionTemplate.execute(status -> {
+            storedObjectRepository.deleteReferencedBefore(candidates, cutoff);
+            return storedObjectRepository.findAllById(candidates).stream()
+                    .map(StoredObject::getKey)
+                    .collect(Collectors.toSet());
+        });
+
+        List<String> unused = candidates.stream()
+                .filter(key -> !stillReferenced.contains(key))
+                .toList();
+        storageDeletionQueue.enqueue(unused);
+        return unused.size();
+    }
+}
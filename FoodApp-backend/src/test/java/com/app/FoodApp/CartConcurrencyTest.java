@@ -0,0 +1,189 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.authUsers.entities.User;
+import com.app.FoodApp.authUsers.repositories.UserRepository;
+import com.app.FoodApp.cart.entities.Cart;
+import com.app.FoodApp.cart.entities.CartItem;
+import com.app.FoodApp.cart.repositories.CartItemRepository;
+import com.app.FoodApp.cart.repositories.CartRepository;
+import com.app.FoodApp.cart.services.CartEngine;
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.menu.services.MenuSearchIndex;
+import com.app.FoodApp.menu.services.MenuSuggester;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hammers one cart from many threads and checks that no quantity change is lost.
+ * Two engines on the same database stand in for two application instances.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the engines write in their own transactions
+class CartConcurrencyTest {
+    private static final int THREADS_PER_ENGINE = 4;
+    private static final int ADDS_PER_THREAD = 200;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    private Menu menu;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(Category.builder().name("Mains").build());
+        menu = menuRepository.save(Menu.builder()
+                .name("Burger")
+                .price(new BigDecimal("8.50"))
+                .category(category)
+                .build());
+        user = userRepository.save(User.builder()
+                .name("Shopper")
+                .email("busy.shopper@example.com")
+                .password("secret")
+                .isActive(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        menuRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentTabsNeverLoseQuantity() throws Exception {
+        // Arrange
+        CartEngine engine = newEngine();
+
+        // Act
+        hammer(List.of(engine));
+
+        // Assert
+        assertStoredQuantity(THREADS_PER_ENGINE * ADDS_PER_THREAD);
+    }
+
+    @Test
+    void concurrentInstancesNeverLoseQuantityOrDuplicateItems() throws Exception {
+        // Arrange: both start without a cart, so both race to create the cart and insert the item
+        CartEngine first = newEngine();
+        CartEngine second = newEngine();
+
+        // Act
+        hammer(List.of(first, second));
+
+        // Assert
+        assertStoredQuantity(2 * THREADS_PER_ENGINE * ADDS_PER_THREAD);
+    }
+
+    /**
+     * Adds one item at a time from several threads per engine while the engines keep flushing.
+     */
+    private void hammer(List<CartEngine> engines) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(engines.size() * (THREADS_PER_ENGINE + 1));
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean adding = new AtomicBoolean(true);
+
+        try {
+            List<Future<?>> adders = new ArrayList<>();
+            List<Future<?>> flushers = new ArrayList<>();
+
+            for (CartEngine engine : engines) {
+                for (int t = 0; t < THREADS_PER_ENGINE; t++) {
+                    adders.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                            engine.add(user, menu.getId(), 1);
+                        }
+                        return null;
+                    }));
+                }
+                flushers.add(executor.submit(() -> {
+                    start.await();
+                    while (adding.get()) {
+                        engine.flushAll();
+                        Thread.sleep(5);
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> adder : adders) {
+                adder.get(60, TimeUnit.SECONDS);
+            }
+            adding.set(false);
+            for (Future<?> flusher : flushers) {
+                flusher.get(10, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        engines.forEach(CartEngine::flushAll);
+    }
+
+    private void assertStoredQuantity(int expected) {
+        List<CartItem> items = cartItemRepository.findAll();
+        assertEquals(1, cartRepository.count());
+        assertEquals(1, items.size());
+        assertEquals(expected, items.get(0).getQuantity());
+
+        // Running totals were moved by deltas from both sides and still add up
+        Cart cart = cartRepository.findAll().get(0);
+        assertEquals(expected, cart.getItemCount());
+        assertEquals(expected * 850L, cart.getTotalMinor());
+    }
+
+    private CartEngine newEngine() {
+        MenuCatalogCache menuCatalogCache = new MenuCatalogCache(menuRepository, categoryRepository,
+                new MenuSearchIndex(), new MenuSuggester(), transactionManager, new SimpleMeterRegistry());
+        return new CartEngine(cartRepository, cartItemRepository, menuRepository, menuCatalogCache,
+                transactionManager, 15, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,256 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.authUsers.entities.User;
+import com.app.FoodApp.authUsers.repositories.UserRepository;
+import com.app.FoodApp.cart.dtos.CartOperationDTO;
+import com.app.FoodApp.cart.entities.Cart;
+import com.app.FoodApp.cart.entities.CartItem;
+import com.app.FoodApp.cart.repositories.CartItemRepository;
+import com.app.FoodApp.cart.repositories.CartRepository;
+import com.app.FoodApp.cart.services.CartEngine;
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.exceptions.NotFoundException;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.menu.services.MenuSearchIndex;
+import com.app.FoodApp.menu.services.MenuSuggester;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the engine writes in its own transactions
+class CartEngineTest {
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private CartEngine cartEngine;
+
+    private User user;
+
+    private Menu menu;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        MenuCatalogCache menuCatalogCache = new MenuCatalogCache(menuRepository, categoryRepository,
+                new MenuSearchIndex(), new MenuSuggester(), transactionManager, new SimpleMeterRegistry());
+        cartEngine = new CartEngine(cartRepository, cartItemRepository, menuRepository, menuCatalogCache,
+                transactionManager, 15, new SimpleMeterRegistry());
+
+        Category category = categoryRepository.save(Category.builder().name("Mains").build());
+        menu = menuRepository.save(Menu.builder()
+                .name("Burger")
+                .description("Beef burger")
+                .price(new BigDecimal("8.50"))
+                .category(category)
+                .build());
+        user = userRepository.save(User.builder()
+                .name("Shopper")
+                .email("shopper@example.com")
+                .password("secret")
+                .isActive(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        menuRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void quantityChangesAreCoalescedIntoOneUpdate() {
+        // Arrange
+        cartEngine.add(user, menu.getId(), 1);
+
+        // Act
+        long mutations = countStatements(() -> {
+            for (int i = 0; i < 10; i++) {
+                cartEngine.increment(user.getId(), menu.getId());
+            }
+            cartEngine.decrement(user.getId(), menu.getId());
+        });
+        long flush = countStatements(() -> cartEngine.flushAll());
+
+        // Assert: one update for the item, one for the cart totals
+        assertEquals(0, mutations);
+        assertEquals(2, flush);
+        CartItem stored = cartItemRepository.findAll().get(0);
+        assertEquals(10, stored.getQuantity());
+        assertEquals(0, new BigDecimal("85.00").compareTo(stored.getSubtotal()));
+    }
+
+    @Test
+    void hotCartIsReadWithoutQueries() {
+        // Arrange
+        cartEngine.add(user, menu.getId(), 2);
+
+        // Act
+        long statements = countStatements(() -> cartEngine.find(user.getId()));
+
+        // Assert
+        assertEquals(0, statements);
+    }
+
+    @Test
+    void rolledBackCheckoutKeepsPendingChanges() {
+        // Arrange
+        cartEngine.add(user, menu.getId(), 1);
+        cartEngine.increment(user.getId(), menu.getId());
+
+        // Act: flush and clear like checkout does, then fail
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            cartEngine.flush(user.getId());
+            cartEngine.clear(user.getId());
+            status.setRollbackOnly();
+        });
+
+        // Assert: the cart is back and the pending increment is still written
+        List<CartEngine.Item> items = cartEngine.find(user.getId()).orElseThrow().items();
+        assertEquals(1, items.size());
+        assertEquals(2, items.get(0).quantity());
+
+        cartEngine.flushAll();
+        assertEquals(2, cartItemRepository.findAll().get(0).getQuantity());
+    }
+
+    @Test
+    void removedItemRowIsReusedWhenAddedAgain() {
+        // Arrange
+        cartEngine.add(user, menu.getId(), 1);
+        cartEngine.decrement(user.getId(), menu.getId());
+
+        // Act
+        cartEngine.add(user, menu.getId(), 3);
+        cartEngine.flushAll();
+
+        // Assert
+        List<CartItem> stored = cartItemRepository.findAll();
+        assertEquals(1, stored.size());
+        assertEquals(3, stored.get(0).getQuantity());
+        assertTrue(cartEngine.find(user.getId()).isPresent());
+    }
+
+    @Test
+    void batchInsertsNewItemsTogetherAndWritesTheRestBehind() {
+        // Arrange
+        Menu fries = menuRepository.save(Menu.builder()
+                .name("Fries")
+                .price(new BigDecimal("3.00"))
+                .category(menu.getCategory())
+                .build());
+        cartEngine.add(user, menu.getId(), 1);
+
+        // Act
+        CartEngine.CartView[] cart = new CartEngine.CartView[1];
+        long statements = countStatements(() -> cart[0] = cartEngine.apply(user, List.of(
+                new CartOperationDTO(CartOperationDTO.Type.ADD, fries.getId(), 2),
+                new CartOperationDTO(CartOperationDTO.Type.SET_QUANTITY, menu.getId(), 4),
+                new CartOperationDTO(CartOperationDTO.Type.ADD, fries.getId(), 1))));
+
+        // Assert: fries inserted along with their share of the cart totals, the burger quantity waits for the flush
+        assertEquals(2, statements);
+        assertEquals(2, cart[0].items().size());
+        assertEquals(0, new BigDecimal("43.00").compareTo(cart[0].totalAmount()));
+        assertEquals(7, cart[0].itemCount());
+
+        cartEngine.flushAll();
+        Cart stored = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertEquals(4300, stored.getTotalMinor());
+        assertEquals(7, stored.getItemCount());
+    }
+
+    @Test
+    void loadRepairsTotalsOfCartsStoredWithoutThem() {
+        // Arrange: a cart written before totals were kept
+        Cart legacy = cartRepository.save(Cart.builder().user(user).build());
+        cartItemRepository.save(CartItem.builder()
+                .cart(legacy)
+                .menu(menu)
+                .quantity(3)
+                .pricePerUnit(menu.getPrice())
+                .subtotal(new BigDecimal("25.50"))
+                .build());
+
+        // Act
+        CartEngine.CartView cart = cartEngine.find(user.getId()).orElseThrow();
+        cartEngine.flushAll();
+
+        // Assert
+        assertEquals(2550, cart.totalMinor());
+        Cart stored = cartRepository.findById(legacy.getId()).orElseThrow();
+        assertEquals(2550, stored.getTotalMinor());
+        assertEquals(3, stored.getItemCount());
+    }
+
+    @Test
+    void failedBatchLeavesCartUnchanged() {
+        // Arrange
+        cartEngine.add(user, menu.getId(), 1);
+
+        // Act
+        assertThrows(NotFoundException.class, () -> cartEngine.apply(user, List.of(
+                new CartOperationDTO(CartOperationDTO.Type.SET_QUANTITY, menu.getId(), 5),
+                new CartOperationDTO(CartOperationDTO.Type.ADD, -1L, 1))));
+
+        // Assert
+        List<CartEngine.Item> items = cartEngine.find(user.getId()).orElseThrow().items();
+        assertEquals(1, items.get(0).quantity());
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
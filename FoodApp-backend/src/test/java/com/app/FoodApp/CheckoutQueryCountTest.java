@@ -0,0 +1,201 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.authUsers.entities.User;
+import com.app.FoodApp.authUsers.repositories.UserRepository;
+import com.app.FoodApp.authUsers.services.UserService;
+import com.app.FoodApp.cart.repositories.CartItemRepository;
+import com.app.FoodApp.cart.repositories.CartRepository;
+import com.app.FoodApp.cart.services.CartEngine;
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.emailNofitication.services.NotificationService;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.menu.services.MenuSearchIndex;
+import com.app.FoodApp.menu.services.MenuSuggester;
+import com.app.FoodApp.order.entities.OrderItem;
+import com.app.FoodApp.order.repositories.OrderItemRepository;
+import com.app.FoodApp.order.repositories.OrderRepository;
+import com.app.FoodApp.order.services.OrderEventHub;
+import com.app.FoodApp.order.services.OrderItemIdAligner;
+import com.app.FoodApp.order.services.OrderServiceImpl;
+import com.app.FoodApp.promo.repositories.PromoCodeRepository;
+import com.app.FoodApp.promo.services.PromoEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // checkout runs in its own transaction
+@Slf4j
+class CheckoutQueryCountTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    private CartEngine cartEngine;
+
+    private OrderServiceImpl orderService;
+
+    private User user;
+
+    private List<Menu> menus;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Category category = categoryRepository.save(Category.builder().name("Mains").build());
+        menus = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            menus.add(menuRepository.save(Menu.builder()
+                    .name("Dish " + i)
+                    .price(new BigDecimal("4.50"))
+                    .category(category)
+                    .build()));
+        }
+        user = userRepository.save(User.builder()
+                .name("Customer")
+                .email("customer@example.com")
+                .password("secret")
+                .address("1 Main Street")
+                .isActive(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        MenuCatalogCache menuCatalogCache = new MenuCatalogCache(menuRepository, categoryRepository,
+                new MenuSearchIndex(), new MenuSuggester(), transactionManager, new SimpleMeterRegistry());
+        cartEngine = new CartEngine(cartRepository, cartItemRepository, menuRepository, menuCatalogCache,
+                transactionManager, 15, new SimpleMeterRegistry());
+        PromoEngine promoEngine = new PromoEngine(promoCodeRepository, menuCatalogCache, transactionManager,
+                new SimpleMeterRegistry());
+
+        UserService userService = mock(UserService.class);
+        when(userService.getCurrentLoggedInUser()).thenReturn(user);
+
+        orderService = new OrderServiceImpl(orderRepository, orderItemRepository, userService,
+                mock(NotificationService.class), new ModelMapper(), cartEngine, cartRepository, cartItemRepository,
+                menuRepository, menuCatalogCache, promoEngine, mock(OrderEventHub.class));
+        ReflectionTestUtils.setField(orderService, "basePaymentLink", "https://example.com/pay?order=");
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderItemRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        menuRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void checkoutUsesSameNumberOfStatementsForAnyItemCount() {
+        // Arrange: the first checkout also fetches a block of order item IDs, keep it out of the count
+        checkout(1);
+
+        // Act
+        long fewItems = checkout(3);
+        long manyItems = checkout(20);
+
+        // Assert
+        log.info("Statements per checkout: {} for 3 items, {} for 20 items", fewItems, manyItems);
+        // Cart row, cart items, order, one batch of order items, delete of the cart items, cart reset
+        assertEquals(6, fewItems);
+        assertEquals(fewItems, manyItems);
+        assertEquals(1 + 3 + 20, orderItemRepository.count());
+        assertEquals(0, cartItemRepository.count());
+    }
+
+    @Test
+    void idGeneratorIsMovedPastExistingRows() {
+        // Arrange: a row written while IDs still came from the auto-increment column
+        jdbcTemplate.update("INSERT INTO order_item (id, quantity) VALUES (1000, 1)");
+
+        // Act
+        new OrderItemIdAligner(orderItemRepository, transactionManager).align();
+        checkout(5);
+
+        // Assert: the next block starts above the existing row (blocks handed out before are below it)
+        Long nextVal = jdbcTemplate.queryForObject("SELECT next_val FROM id_generators WHERE name = ?",
+                Long.class, OrderItem.ID_GENERATOR_KEY);
+        assertTrue(nextVal > 1000 + OrderItem.ID_ALLOCATION_SIZE);
+        assertEquals(6, orderItemRepository.count());
+    }
+
+    /**
+     * Fills the cart with the given number of different menus and checks out, returning the statements
+     * the checkout ran.
+     */
+    private long checkout(int itemCount) {
+        for (int i = 0; i < itemCount; i++) {
+            cartEngine.add(user, menus.get(i).getId(), 2);
+        }
+        cartEngine.flushAll();
+
+        statistics.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> orderService.placeOrderFromCart());
+        return statistics.getPrepareStatementCount();
+    }
+}
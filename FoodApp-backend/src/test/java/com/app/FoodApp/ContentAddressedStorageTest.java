@@ -0,0 +1,168 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.aws.LocalFileStorageServiceImpl;
+import com.app.FoodApp.storage.repositories.StoredObjectRepository;
+import com.app.FoodApp.storage.services.ContentAddressedStorage;
+import com.app.FoodApp.storage.services.StorageDeletionQueue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // deletions are queued after commit
+class ContentAddressedStorageTest {
+    // SHA-256 of "pizza photo"
+    private static final String PIZZA_KEY = "menus/8ff7a9b71331b323a8c4d9b077762d80ab08e5115f639ab56365cea3e1265797.jpg";
+
+    @Autowired
+    private StoredObjectRepository storedObjectRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path storageRoot;
+
+    private LocalFileStorageServiceImpl storage;
+    private StorageDeletionQueue deletionQueue;
+    private ContentAddressedStorage contentAddressedStorage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new LocalFileStorageServiceImpl(storageRoot.toString(), "http://localhost:8090/api/files");
+        deletionQueue = new StorageDeletionQueue(storage, storedObjectRepository, 100, 1000, new SimpleMeterRegistry());
+        contentAddressedStorage = new ContentAddressedStorage(storage, storedObjectRepository, deletionQueue,
+                transactionManager, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        storedObjectRepository.deleteAll();
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws IOException {
+        // Act: the same photo uploaded twice, under different names
+        ContentAddressedStorage.StoredFile first = contentAddressedStorage.store("menus/", photo("Pizza 1.JPG"));
+        ContentAddressedStorage.StoredFile second = contentAddressedStorage.store("menus/", photo("pizza-copy.jpg"));
+
+        // Assert
+        assertEquals(first, second);
+        assertEquals(PIZZA_KEY, first.key());
+        assertEquals("http://localhost:8090/api/files/" + PIZZA_KEY, first.url().toString());
+        assertEquals(2, storedObjectRepository.findById(PIZZA_KEY).orElseThrow().getRefCount());
+        try (Stream<Path> files = Files.list(storageRoot.resolve("menus"))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void objectIsDeletedWithItsLastReference() {
+        // Arrange: two menus share the photo, which has resized copies
+        String key = contentAddressedStorage.store("menus/", photo("pizza.jpg")).key();
+        contentAddressedStorage.store("menus/", photo("pizza.jpg"));
+        String thumbnail = key.replace(".jpg", "_thumb.jpg");
+        storage.uploadBytes(thumbnail, new byte[]{1, 2, 3}, "image/jpeg");
+
+        // Act & Assert: the first release keeps everything
+        contentAddressedStorage.release(key, List.of(thumbnail));
+        deletionQueue.flush();
+        assertTrue(Files.exists(storageRoot.resolve(key)));
+        assertEquals(1, storedObjectRepository.findById(key).orElseThrow().getRefCount());
+
+        // Act & Assert: the last one deletes the object and its copies
+        contentAddressedStorage.release(key, List.of(thumbnail));
+        deletionQueue.flush();
+        assertFalse(Files.exists(storageRoot.resolve(key)));
+        assertFalse(Files.exists(storageRoot.resolve(thumbnail)));
+        assertFalse(storedObjectRepository.existsById(key));
+    }
+
+    @Test
+    void nothingIsDeletedWhenReleaseRollsBack() {
+        // Arrange
+        String key = contentAddressedStorage.store("menus/", photo("pizza.jpg")).key();
+
+        // Act: the menu deletion fails after releasing the image
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            contentAddressedStorage.release(key, List.of());
+            status.setRollbackOnly();
+        });
+        deletionQueue.flush();
+
+        // Assert
+        assertTrue(Files.exists(storageRoot.resolve(key)));
+        assertEquals(1, storedObjectRepository.findById(key).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void keysStoredBeforeDeduplicationAreDeletedOnRelease() {
+        // Arrange: an upload from before content addressing has no reference count
+        storage.uploadFile("menus/3f2a_pizza.jpg", photo("pizza.jpg"));
+
+        // Act
+        contentAddressedStorage.release("menus/3f2a_pizza.jpg", List.of());
+        deletionQueue.flush();
+
+        // Assert
+        assertFalse(Files.exists(storageRoot.resolve("menus/3f2a_pizza.jpg")));
+    }
+
+    @Test
+    void storingReleasedContentAgainCancelsItsDeletion() {
+        // Arrange: the last reference is released, the deletion is still queued
+        String key = contentAddressedStorage.store("menus/", photo("pizza.jpg")).key();
+        contentAddressedStorage.release(key, List.of());
+
+        // Act: the same photo is uploaded again before the queue is flushed
+        contentAddressedStorage.store("menus/", photo("pizza.jpg"));
+        deletionQueue.flush();
+
+        // Assert
+        assertTrue(Files.exists(storageRoot.resolve(key)));
+        assertEquals(1, storedObjectRepository.findById(key).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void pendingUploadSurvivesTheReleaseOfTheLastReference() {
+        // Arrange: a request uploads a photo that one menu uses, its transaction has not started yet
+        String key = contentAddressedStorage.store("menus/", photo("pizza.jpg")).key();
+        ContentAddressedStorage.StoredFile pending = contentAddressedStorage.upload("menus/", photo("pizza.jpg"));
+
+        // Act: the menu gives the photo up meanwhile, then the request takes its reference
+        contentAddressedStorage.release(key, List.of());
+        deletionQueue.flush();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                contentAddressedStorage.reference(pending));
+
+        // Assert
+        assertTrue(Files.exists(storageRoot.resolve(key)));
+        assertEquals(1, storedObjectRepository.findById(key).orElseThrow().getRefCount());
+        assertEquals(0, storedObjectRepository.findById(key).orElseThrow().getPendingCount());
+    }
+
+    private static MockMultipartFile photo(String filename) {
+        return new MockMultipartFile("imageFile", filename, "image/jpeg",
+                "pizza photo".getBytes(StandardCharsets.UTF_8));
+    }
+}
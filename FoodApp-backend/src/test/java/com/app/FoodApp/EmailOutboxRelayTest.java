@@ -0,0 +1,113 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.emailNofitication.entities.EmailOutbox;
+import com.app.FoodApp.emailNofitication.repositories.EmailOutboxRepository;
+import com.app.FoodApp.emailNofitication.services.EmailOutboxRelay;
+import com.app.FoodApp.emailNofitication.services.NotificationExecutor;
+import com.app.FoodApp.emailNofitication.services.NotificationService;
+import com.app.FoodApp.enums.OutboxStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the relay claims and saves in its own transactions
+class EmailOutboxRelayTest {
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void claimedBatchesAreSentOnTheNotificationExecutor() throws Exception {
+        // Arrange: 5 due emails, claimed two at a time
+        for (int i = 0; i < 5; i++) {
+            emailOutboxRepository.save(email("customer" + i + "@example.com"));
+        }
+        List<String> senderThreads = new CopyOnWriteArrayList<>();
+        NotificationService notificationService = mock(NotificationService.class);
+        when(notificationService.deliverBatch(anyList())).thenAnswer(invocation -> {
+            senderThreads.add(Thread.currentThread().getName());
+            return Map.of();
+        });
+        NotificationExecutor notificationExecutor = new NotificationExecutor(2, 10, false, new SimpleMeterRegistry());
+        EmailOutboxRelay relay = relay(notificationService, notificationExecutor);
+
+        // Act
+        relay.relay();
+        notificationExecutor.stop(); // waits for the queued batches
+
+        // Assert
+        assertEquals(3, senderThreads.size());
+        assertTrue(senderThreads.stream().allMatch(thread -> thread.startsWith("notification-")));
+        assertTrue(emailOutboxRepository.findAll().stream()
+                .allMatch(email -> email.getStatus() == OutboxStatus.SENT && email.getSentAt() != null));
+    }
+
+    @Test
+    void batchIsHandedBackWhenTheExecutorIsFull() {
+        // Arrange
+        emailOutboxRepository.save(email("burst@example.com"));
+        NotificationService notificationService = mock(NotificationService.class);
+        NotificationExecutor notificationExecutor = mock(NotificationExecutor.class);
+        doThrow(new RejectedExecutionException("queue full")).when(notificationExecutor).execute(any());
+
+        // Act
+        relay(notificationService, notificationExecutor).relay();
+
+        // Assert: still pending and due, so the next poll claims it again
+        EmailOutbox email = emailOutboxRepository.findAll().getFirst();
+        assertEquals(OutboxStatus.PENDING, email.getStatus());
+        assertFalse(email.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        verifyNoInteractions(notificationService);
+    }
+
+    private EmailOutboxRelay relay(NotificationService notificationService, NotificationExecutor notificationExecutor) {
+        EmailOutboxRelay relay = new EmailOutboxRelay(emailOutboxRepository, notificationService, null,
+                notificationExecutor, null, transactionManager);
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 8);
+        ReflectionTestUtils.setField(relay, "batchedSend", true);
+        ReflectionTestUtils.setField(relay, "claimTimeoutMs", 300_000L);
+        return relay;
+    }
+
+    private static EmailOutbox email(String recipient) {
+        return EmailOutbox.builder()
+                .recipient(recipient)
+                .subject("Your Order Confirmation")
+                .body("<p>Thanks for your order</p>")
+                .isHtml(true)
+                .nextAttemptAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.emailNofitication.services.EmailRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailRendererTest {
+
+    private EmailRenderer emailRenderer;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+
+        emailRenderer = new EmailRenderer(templateEngine, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldRenderOneEscapedRowPerOrderItem() {
+        // Arrange: item rows as they come back from the outbox JSON
+        Map<String, Object> variables = Map.of(
+                "customerName", "Alex",
+                "orderId", "42",
+                "orderItems", List.of(
+                        Map.of("name", "Fish <b>& Chips</b>", "quantity", 2, "subtotal", "19.98"),
+                        Map.of("name", "Lemonade", "quantity", 1, "subtotal", "3.50")));
+
+        // Act
+        String html = emailRenderer.render("order-confirmation", variables);
+
+        // Assert
+        assertEquals(2, html.split("class=\"order-item\"", -1).length - 1);
+        assertTrue(html.contains("Fish &lt;b&gt;&amp; Chips&lt;/b&gt;"));
+        assertFalse(html.contains("<b>& Chips</b>"));
+        assertTrue(html.contains("19.98"));
+    }
+
+    @Test
+    void shouldWarmUpEveryEmailTemplate() {
+        // Act + Assert: every template parses and renders without variables
+        emailRenderer.warmUp();
+        EmailRenderer.EMAIL_TEMPLATES.forEach(template ->
+                assertFalse(emailRenderer.render(template, Map.of()).isBlank()));
+    }
+}
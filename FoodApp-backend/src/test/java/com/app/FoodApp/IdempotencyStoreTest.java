@@ -0,0 +1,155 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.exceptions.BadRequestException;
+import com.app.FoodApp.exceptions.ConflictException;
+import com.app.FoodApp.idempotency.repositories.IdempotencyRecordRepository;
+import com.app.FoodApp.idempotency.services.IdempotencyStore;
+import com.app.FoodApp.response.Response;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the store writes in its own transactions
+class IdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void retryIsAnsweredWithoutRunningAgain() {
+        // Arrange
+        IdempotencyStore store = newStore();
+
+        // Act
+        Response<?> first = store.execute("key-1", "checkout", null, this::placeOrder);
+        Response<?> retry = store.execute("key-1", "checkout", null, this::placeOrder);
+        Response<?> otherKey = store.execute("key-2", "checkout", null, this::placeOrder);
+
+        // Assert
+        assertSame(first, retry);
+        assertEquals(2, runs.get());
+        assertEquals(2, otherKey.getData());
+    }
+
+    @Test
+    void retryOnAnotherInstanceGetsStoredResponse() {
+        // Arrange
+        newStore().execute("key-1", "checkout", null, this::placeOrder);
+
+        // Act: a second instance (or a restart) knows nothing of the key in memory
+        Response<?> retry = newStore().execute("key-1", "checkout", null, this::placeOrder);
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertEquals(200, retry.getStatusCode());
+        assertEquals("Order placed", retry.getMessage());
+        assertEquals(1, retry.getData());
+    }
+
+    @Test
+    void duplicateWhileFirstIsRunningIsRejected() throws Exception {
+        // Arrange
+        IdempotencyStore store = newStore();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Response<?>> first = CompletableFuture.supplyAsync(() ->
+                store.execute("key-1", "checkout", null, () -> {
+                    running.countDown();
+                    await(release);
+                    return placeOrder();
+                }));
+        running.await(5, TimeUnit.SECONDS);
+
+        // Act & Assert: a double tap while the first checkout is still running
+        assertThrows(ConflictException.class, () -> store.execute("key-1", "checkout", null, this::placeOrder));
+
+        release.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).getData());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestCanBeRetriedWithSameKey() {
+        // Arrange
+        IdempotencyStore store = newStore();
+        assertThrows(BadRequestException.class, () -> store.execute("key-1", "checkout", null, () -> {
+            throw new BadRequestException("Cart is empty");
+        }));
+
+        // Act
+        Response<?> retry = store.execute("key-1", "checkout", null, this::placeOrder);
+
+        // Assert
+        assertEquals(1, runs.get());
+        assertEquals(1, retry.getData());
+        assertEquals(1, idempotencyRecordRepository.count());
+    }
+
+    @Test
+    void keyReusedForDifferentRequestIsRejected() {
+        // Arrange
+        IdempotencyStore store = newStore();
+        store.execute("key-1", "pay", Map.of("orderId", 1, "amount", "25.00"), this::placeOrder);
+
+        // Act & Assert: same key, different body, on this instance and on another one
+        assertThrows(ConflictException.class, () ->
+                store.execute("key-1", "pay", Map.of("orderId", 2, "amount", "25.00"), this::placeOrder));
+        assertThrows(ConflictException.class, () ->
+                newStore().execute("key-1", "pay", Map.of("orderId", 2, "amount", "25.00"), this::placeOrder));
+
+        // Assert: the original request still replays
+        Response<?> retry = newStore().execute("key-1", "pay", Map.of("orderId", 1, "amount", "25.00"), this::placeOrder);
+        assertEquals(1, retry.getData());
+        assertEquals(1, runs.get());
+    }
+
+    private Response<?> placeOrder() {
+        return Response.builder()
+                .statusCode(200)
+                .message("Order placed")
+                .data(runs.incrementAndGet())
+                .build();
+    }
+
+    private IdempotencyStore newStore() {
+        return new IdempotencyStore(idempotencyRecordRepository, new ObjectMapper(), transactionManager,
+                24, 1000, new SimpleMeterRegistry());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.aws.LocalFileStorageServiceImpl;
+import com.app.FoodApp.enums.ImageVariant;
+import com.app.FoodApp.image.entities.ImageVariants;
+import com.app.FoodApp.image.services.ImagePipeline;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the pipeline writes in its own transactions
+class ImagePipelineTest {
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path storageRoot;
+
+    private ImagePipeline imagePipeline;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        LocalFileStorageServiceImpl storage =
+                new LocalFileStorageServiceImpl(storageRoot.toString(), "http://localhost:8090/api/files");
+        imagePipeline = new ImagePipeline(storage, transactionManager, 2, 10, 0.8f, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        imagePipeline.stop();
+        menuRepository.deleteAll();
+    }
+
+    @Test
+    void storesResizedVariantsAndRecordsThemOnMenu() throws Exception {
+        // Arrange: a landscape phone photo
+        Menu menu = saveMenu("http://localhost:8090/api/files/menus/pizza.png");
+
+        // Act
+        CompletableFuture<ImageVariants> ready = new CompletableFuture<>();
+        imagePipeline.submit("menus/pizza.png", photo(4000, 3000), variants -> {
+            menuRepository.updateImageVariants(menu.getId(), menu.getImageUrl(),
+                    variants.getThumbnailUrl(), variants.getCardUrl(), variants.getDetailUrl());
+            ready.complete(variants);
+        });
+        ImageVariants variants = ready.get(30, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("http://localhost:8090/api/files/menus/pizza_thumb.jpg", variants.getThumbnailUrl());
+        assertEquals(variants, menuRepository.findById(menu.getId()).orElseThrow().getImageVariants());
+        assertSize(ImageVariant.THUMBNAIL, 160, 120);
+        assertSize(ImageVariant.CARD, 480, 360);
+        assertSize(ImageVariant.DETAIL, 1200, 900);
+    }
+
+    @Test
+    void smallImagesAreNotEnlarged() throws Exception {
+        // Act
+        CompletableFuture<ImageVariants> ready = new CompletableFuture<>();
+        imagePipeline.submit("profile/avatar.png", photo(300, 400), ready::complete);
+        ready.get(30, TimeUnit.SECONDS);
+
+        // Assert
+        BufferedImage detail = ImageIO.read(storageRoot.resolve("profile/avatar_detail.jpg").toFile());
+        assertEquals(300, detail.getWidth());
+        assertEquals(400, detail.getHeight());
+    }
+
+    @Test
+    void variantsOfReplacedImageAreNotRecorded() throws Exception {
+        // Arrange: the menu got another image while the first one was being resized
+        Menu menu = saveMenu("http://localhost:8090/api/files/menus/new.png");
+
+        // Act
+        CompletableFuture<Integer> updated = new CompletableFuture<>();
+        imagePipeline.submit("menus/old.png", photo(800, 600), variants -> updated.complete(
+                menuRepository.updateImageVariants(menu.getId(), "http://localhost:8090/api/files/menus/old.png",
+                        variants.getThumbnailUrl(), variants.getCardUrl(), variants.getDetailUrl())));
+
+        // Assert
+        assertEquals(0, updated.get(30, TimeUnit.SECONDS));
+        assertNull(menuRepository.findById(menu.getId()).orElseThrow().getImageVariants());
+    }
+
+    @Test
+    void submitReturnsBeforeProcessing() throws Exception {
+        // Arrange: encoding the photo is not part of the measured time
+        MockMultipartFile largePhoto = photo(4000, 3000);
+        CompletableFuture<ImageVariants> ready = new CompletableFuture<>();
+
+        // Act
+        long started = System.nanoTime();
+        imagePipeline.submit("menus/large.png", largePhoto, ready::complete);
+        long submitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        // Assert
+        assertEquals(3, ready.get(30, TimeUnit.SECONDS).urls().count());
+        assertTrue(submitMillis < 1000, "submit took " + submitMillis + " ms");
+    }
+
+    private Menu saveMenu(String imageUrl) {
+        return menuRepository.save(Menu.builder()
+                .name("Pizza")
+                .price(new BigDecimal("9.50"))
+                .imageUrl(imageUrl)
+                .build());
+    }
+
+    private void assertSize(ImageVariant variant, int width, int height) throws IOException {
+        BufferedImage image = ImageIO.read(storageRoot.resolve("menus/pizza_" + variant.getSuffix() + ".jpg").toFile());
+        assertEquals(width, image.getWidth(), variant + " width");
+        assertEquals(height, image.getHeight(), variant + " height");
+    }
+
+    private static MockMultipartFile photo(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.RED);
+        graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        graphics.dispose();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return new MockMultipartFile("imageFile", "photo.png", "image/png", bytes.toByteArray());
+    }
+}
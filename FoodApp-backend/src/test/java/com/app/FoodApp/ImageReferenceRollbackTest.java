@@ -0,0 +1,205 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.authUsers.dtos.UserDTO;
+import com.app.FoodApp.authUsers.entities.User;
+import com.app.FoodApp.authUsers.repositories.UserRepository;
+import com.app.FoodApp.authUsers.services.UserService;
+import com.app.FoodApp.authUsers.services.UserServiceImpl;
+import com.app.FoodApp.aws.LocalFileStorageServiceImpl;
+import com.app.FoodApp.cart.entities.Cart;
+import com.app.FoodApp.cart.entities.CartItem;
+import com.app.FoodApp.cart.repositories.CartItemRepository;
+import com.app.FoodApp.cart.repositories.CartRepository;
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.exceptions.BadRequestException;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.menu.services.MenuService;
+import com.app.FoodApp.menu.services.MenuServiceImpl;
+import com.app.FoodApp.storage.repositories.StoredObjectRepository;
+import com.app.FoodApp.storage.services.ContentAddressedStorage;
+import com.app.FoodApp.storage.services.StorageDeletionQueue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * A menu or user change that fails after swapping or releasing the image must leave the image and its
+ * reference count as they were. The services run behind a transaction proxy, as they do in the application.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the services run their own transactions
+class ImageReferenceRollbackTest {
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private StoredObjectRepository storedObjectRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path storageRoot;
+
+    private StorageDeletionQueue deletionQueue;
+    private ContentAddressedStorage contentAddressedStorage;
+    private MenuService menuService;
+    private UserService userService;
+
+    // Whether each upload ran while a transaction (and so a database connection) was open
+    private final List<Boolean> uploadsInTransaction = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        LocalFileStorageServiceImpl storage =
+                new LocalFileStorageServiceImpl(storageRoot.toString(), "http://localhost:8090/api/files") {
+                    @Override
+                    public URL uploadFile(String key, MultipartFile file) {
+                        uploadsInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                        return super.uploadFile(key, file);
+                    }
+                };
+        deletionQueue = new StorageDeletionQueue(storage, storedObjectRepository, 100, 1000, new SimpleMeterRegistry());
+        contentAddressedStorage = new ContentAddressedStorage(storage, storedObjectRepository, deletionQueue,
+                transactionManager, new SimpleMeterRegistry());
+
+        menuService = transactional(new MenuServiceImpl(menuRepository, categoryRepository, null,
+                contentAddressedStorage, null, mock(MenuCatalogCache.class), null, null,
+                new TransactionTemplate(transactionManager)));
+        userService = transactional(new UserServiceImpl(userRepository, null, null, null,
+                contentAddressedStorage, null, null, new TransactionTemplate(transactionManager)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        menuRepository.deleteAll();
+        userRepository.deleteAll();
+        storedObjectRepository.deleteAll();
+    }
+
+    @Test
+    void failedMenuDeletionKeepsItsImage() {
+        // Arrange: a menu still in a customer's cart cannot be deleted
+        ContentAddressedStorage.StoredFile image = contentAddressedStorage.store("menus/", photo("pizza"));
+        Menu menu = menuRepository.save(Menu.builder()
+                .name("Pizza")
+                .price(new BigDecimal("9.50"))
+                .imageUrl(image.url().toString())
+                .build());
+        Cart cart = cartRepository.save(Cart.builder().user(saveUser("shopper@example.com", null)).build());
+        cartItemRepository.save(CartItem.builder()
+                .cart(cart)
+                .menu(menu)
+                .quantity(1)
+                .pricePerUnit(menu.getPrice())
+                .subtotal(menu.getPrice())
+                .build());
+
+        // Act
+        assertThrows(DataIntegrityViolationException.class, () -> menuService.deleteMenu(menu.getId()));
+        deletionQueue.flush();
+
+        // Assert
+        assertEquals(1, storedObjectRepository.findById(image.key()).orElseThrow().getRefCount());
+        assertTrue(Files.exists(storageRoot.resolve(image.key())));
+    }
+
+    @Test
+    void failedUserUpdateKeepsTheOldProfileImage() {
+        // Arrange
+        ContentAddressedStorage.StoredFile oldImage = contentAddressedStorage.store("profile/", photo("old"));
+        User user = saveUser("alex@example.com", oldImage.url().toString());
+        saveUser("taken@example.com", null);
+
+        UserDTO update = new UserDTO();
+        update.setImageFile(photo("new"));
+        update.setEmail("taken@example.com");
+
+        // Act: the email check fails after the image was swapped
+        assertThrows(BadRequestException.class, () -> userService.updateUserAsAdmin(user.getId(), update));
+        deletionQueue.flush();
+
+        // Assert: the new image was sent before the transaction started
+        assertEquals(List.of(false, false), uploadsInTransaction);
+
+        // Assert: still pointing at its old image, which is still counted and stored
+        assertEquals(oldImage.url().toString(), userRepository.findById(user.getId()).orElseThrow().getProfileUrl());
+        assertEquals(1, storedObjectRepository.findById(oldImage.key()).orElseThrow().getRefCount());
+        assertTrue(Files.exists(storageRoot.resolve(oldImage.key())));
+        assertTrue(storedObjectRepository.findAll().stream()
+                .filter(object -> !object.getKey().equals(oldImage.key()))
+                .allMatch(object -> object.getRefCount() == 0));
+    }
+
+    private User saveUser(String email, String profileUrl) {
+        return userRepository.save(User.builder()
+                .name("Alex")
+                .email(email)
+                .password("secret")
+                .profileUrl(profileUrl)
+                .isActive(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T transactional(T service) {
+        ProxyFactory proxyFactory = new ProxyFactory(service);
+        proxyFactory.addAdvice(new TransactionInterceptor((TransactionManager) transactionManager,
+                new AnnotationTransactionAttributeSource()));
+        return (T) proxyFactory.getProxy();
+    }
+
+    private static MockMultipartFile photo(String content) {
+        return new MockMultipartFile("imageFile", content + ".jpg", "image/jpeg",
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.aws.LocalFileStorageServiceImpl;
+import com.app.FoodApp.exceptions.BadRequestException;
+import com.app.FoodApp.exceptions.NotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalFileStorageTest {
+
+    @TempDir
+    private Path root;
+
+    private LocalFileStorageServiceImpl storage;
+
+    private final byte[] content = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new LocalFileStorageServiceImpl(root.toString(), "http://localhost:8090/api/files");
+        storage.uploadFile("menus/pizza 1.jpg", new MockMultipartFile("file", "pizza 1.jpg", "image/jpeg", content));
+    }
+
+    @Test
+    void uploadStoresFileAndReturnsServingUrl() throws IOException {
+        // Act
+        URL url = storage.uploadFile("menus/soup.jpg", new MockMultipartFile("file", content));
+
+        // Assert
+        assertEquals("http://localhost:8090/api/files/menus/soup.jpg", url.toString());
+        assertArrayEquals(content, Files.readAllBytes(root.resolve("menus/soup.jpg")));
+    }
+
+    @Test
+    void servesWholeFile() throws IOException {
+        // Act
+        MockHttpServletResponse response = serve(null);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesRequestedRange() throws IOException {
+        // Act
+        MockHttpServletResponse middle = serve("bytes=10-14");
+        MockHttpServletResponse suffix = serve("bytes=-3");
+
+        // Assert
+        assertEquals(206, middle.getStatus());
+        assertEquals("bytes 10-14/20", middle.getHeader("Content-Range"));
+        assertEquals("abcde", middle.getContentAsString());
+        assertEquals(5, middle.getContentLengthLong());
+
+        assertEquals("bytes 17-19/20", suffix.getHeader("Content-Range"));
+        assertEquals("hij", suffix.getContentAsString());
+    }
+
+    @Test
+    void rejectsRangeBeyondEndOfFile() throws IOException {
+        // Act
+        MockHttpServletResponse response = serve("bytes=20-");
+
+        // Assert
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void keysCannotEscapeStorageRoot() {
+        assertThrows(BadRequestException.class, () ->
+                storage.uploadFile("../outside.jpg", new MockMultipartFile("file", content)));
+        assertThrows(BadRequestException.class, () -> storage.deleteFile("menus/../../outside.jpg"));
+    }
+
+    @Test
+    void deletedFileIsNoLongerServed() {
+        // Act
+        storage.deleteFile("menus/pizza 1.jpg");
+
+        // Assert
+        assertFalse(Files.exists(root.resolve("menus/pizza 1.jpg")));
+        assertThrows(NotFoundException.class, () -> serve(null));
+    }
+
+    @Test
+    void keyIsRecoveredFromUrl() {
+        // Act
+        URL url = storage.urlOf("menus/pizza 1.jpg");
+
+        // Assert
+        assertEquals("menus/pizza 1.jpg", storage.keyOf(url.toString()));
+        assertNull(storage.keyOf("https://cdn.example.com/menus/pizza.jpg"));
+        assertNull(storage.keyOf(null));
+    }
+
+    private MockHttpServletResponse serve(String range) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/menus/pizza%201.jpg");
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        storage.serve("menus/pizza 1.jpg", request, response);
+        return response;
+    }
+}
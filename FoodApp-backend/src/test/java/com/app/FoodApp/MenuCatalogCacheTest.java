@@ -0,0 +1,125 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.menu.dtos.MenuSuggestionDTO;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.menu.services.MenuCatalogSnapshot;
+import com.app.FoodApp.menu.services.MenuSearchIndex;
+import com.app.FoodApp.menu.services.MenuSuggester;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Menu changes patch the cached catalog, its search index and suggester, without rebuilding them.
+ */
+class MenuCatalogCacheTest {
+
+    private MenuRepository menuRepository;
+    private MenuSearchIndex menuSearchIndex;
+    private MenuSuggester menuSuggester;
+    private MenuCatalogCache menuCatalogCache;
+
+    @BeforeEach
+    void setUp() {
+        menuRepository = mock(MenuRepository.class);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(menuRepository.findAllSummaries()).thenReturn(List.of(
+                menu(1L, "Chicken Burger", "9.50", 10L),
+                menu(2L, "Pizza Margherita", "12.00", 20L)));
+        when(categoryRepository.findAll()).thenReturn(List.of());
+
+        menuSearchIndex = new MenuSearchIndex();
+        menuSuggester = new MenuSuggester();
+        menuCatalogCache = new MenuCatalogCache(menuRepository, categoryRepository, menuSearchIndex, menuSuggester,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        menuCatalogCache.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void changedMenuIsPatchedIntoTheSnapshot() {
+        // Arrange: menu 2 renamed, repriced and moved to category 10
+        when(menuRepository.findSummaryById(2L))
+                .thenReturn(Optional.of(menu(2L, "Pizza Diavola", "13.50", 10L)));
+
+        // Act
+        menuCatalogCache.menuChanged(2L);
+
+        // Assert
+        MenuCatalogSnapshot snapshot = menuCatalogCache.snapshot();
+        assertEquals(2, snapshot.version());
+        assertEquals("Pizza Diavola", snapshot.byId().get(2L).getName());
+        assertEquals(new BigDecimal("13.50"), snapshot.byId().get(2L).getPrice());
+        assertEquals(List.of(2L, 1L), ids(snapshot.menusOf(10L)));
+        assertTrue(snapshot.menusOf(20L).isEmpty());
+        assertEquals(List.of(2L), menuSearchIndex.search("diavola"));
+        assertTrue(menuSearchIndex.search("margherita").isEmpty());
+        assertEquals(List.of("Pizza Diavola"),
+                menuSuggester.suggest("pizza", 5).stream().map(MenuSuggestionDTO::getText).toList());
+        verify(menuRepository, times(1)).findAllSummaries(); // patched, not rebuilt
+    }
+
+    @Test
+    void deletedMenuIsDroppedFromTheSnapshot() {
+        // Act
+        menuCatalogCache.menuDeleted(1L);
+
+        // Assert
+        MenuCatalogSnapshot snapshot = menuCatalogCache.snapshot();
+        assertEquals(List.of(2L), ids(snapshot.menus()));
+        assertFalse(snapshot.byId().containsKey(1L));
+        assertTrue(menuSearchIndex.search("chicken").isEmpty());
+        assertTrue(menuSuggester.suggest("chicken", 5).isEmpty());
+    }
+
+    @Test
+    void changeIsAppliedOnlyAfterCommit() {
+        // Arrange
+        when(menuRepository.findSummaryById(1L))
+                .thenReturn(Optional.of(menu(1L, "Chicken Wrap", "8.00", 10L)));
+        MenuCatalogSnapshot before = menuCatalogCache.snapshot();
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act & Assert: nothing changes while the writer's transaction is open
+        menuCatalogCache.menuChanged(1L);
+        assertSame(before, menuCatalogCache.snapshot());
+
+        // Act & Assert: the commit patches it in
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals("Chicken Wrap", menuCatalogCache.snapshot().byId().get(1L).getName());
+    }
+
+    private static MenuSummaryDTO menu(Long id, String name, String price, Long categoryId) {
+        return new MenuSummaryDTO(id, name, null, new BigDecimal(price), null, null, null, categoryId, 0, 0);
+    }
+
+    private static List<Long> ids(List<MenuSummaryDTO> menus) {
+        return menus.stream().map(MenuSummaryDTO::getId).toList();
+    }
+}
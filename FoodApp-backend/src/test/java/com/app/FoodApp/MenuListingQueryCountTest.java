@@ -0,0 +1,172 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.authUsers.entities.User;
+import com.app.FoodApp.authUsers.repositories.UserRepository;
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.menu.services.MenuSearchIndex;
+import com.app.FoodApp.menu.services.MenuServiceImpl;
+import com.app.FoodApp.menu.services.MenuSuggester;
+import com.app.FoodApp.review.entities.Review;
+import com.app.FoodApp.review.repositories.ReviewRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the catalog reads in its own transactions
+class MenuListingQueryCountTest {
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private MenuCatalogCache menuCatalogCache;
+
+    private MenuServiceImpl menuService;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        MenuSearchIndex menuSearchIndex = new MenuSearchIndex();
+        MenuSuggester menuSuggester = new MenuSuggester();
+        menuCatalogCache = new MenuCatalogCache(menuRepository, categoryRepository, menuSearchIndex,
+                menuSuggester, transactionManager, new SimpleMeterRegistry());
+        menuService = new MenuServiceImpl(menuRepository, categoryRepository, null, null, null,
+                menuCatalogCache, menuSearchIndex, menuSuggester, new TransactionTemplate(transactionManager));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewRepository.deleteAll();
+        menuRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void catalogBuildUsesSameNumberOfQueriesForAnyMenuCount() {
+        // Arrange
+        seedMenus(3, 2);
+        long fewMenus = countStatements(() -> menuCatalogCache.rebuild());
+
+        seedMenus(30, 4);
+        long manyMenus = countStatements(() -> menuCatalogCache.rebuild());
+
+        // Assert: one summary query plus one category query, reviews are never loaded
+        assertEquals(2, fewMenus);
+        assertEquals(fewMenus, manyMenus);
+    }
+
+    @Test
+    void listingRequestsRunNoQueriesOnceCatalogIsBuilt() {
+        // Arrange
+        seedMenus(10, 3);
+        menuCatalogCache.rebuild();
+
+        // Act
+        long statements = countStatements(() -> {
+            menuService.getAllMenus(null, null);
+            menuService.getAllMenus(null, "dish");
+        });
+
+        // Assert
+        assertEquals(0, statements);
+    }
+
+    @Test
+    void summariesCarryReviewAggregates() {
+        // Arrange
+        seedMenus(1, 3);
+
+        // Act
+        List<MenuSummaryDTO> summaries = menuRepository.findAllSummaries();
+
+        // Assert: ratings 1, 2, 3
+        assertEquals(1, summaries.size());
+        assertEquals(3L, summaries.get(0).getReviewCount());
+        assertEquals(2.0, summaries.get(0).getAverageRating());
+    }
+
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void seedMenus(int menuCount, int reviewsPerMenu) {
+        long suffix = System.nanoTime();
+        Category category = categoryRepository.save(Category.builder().name("Category " + suffix).build());
+        User user = userRepository.save(User.builder()
+                .name("Reviewer")
+                .email("reviewer" + suffix + "@example.com")
+                .password("secret")
+                .isActive(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        for (int i = 0; i < menuCount; i++) {
+            Menu menu = menuRepository.save(Menu.builder()
+                    .name("Dish " + i)
+                    .description("Tasty dish number " + i)
+                    .price(BigDecimal.TEN)
+                    .imageUrl("https://example.com/menus/" + i + ".jpg")
+                    .category(category)
+                    .build());
+
+            for (int r = 1; r <= reviewsPerMenu; r++) {
+                reviewRepository.save(Review.builder()
+                        .menu(menu)
+                        .user(user)
+                        .rating(r)
+                        .orderId(1L)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                menu.recordRating(r);
+            }
+            menuRepository.save(menu);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    menuRepository.setRatingTotals(menu.getId(), menu.getRatingSum(), menu.getRatingCount()));
+        }
+    }
+}
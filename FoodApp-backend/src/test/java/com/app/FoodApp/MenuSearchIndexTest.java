@@ -0,0 +1,71 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.services.MenuSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MenuSearchIndexTest {
+
+    private MenuSearchIndex menuSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        menuSearchIndex = new MenuSearchIndex();
+        menuSearchIndex.rebuild(List.of(
+                menu(1L, "Chick Pea Salad", "Fresh and light"),
+                menu(2L, "Chicken Wings", "Spicy wings"),
+                menu(3L, "Caesar Salad", "With grilled chicken"),
+                menu(4L, "Crème Brûlée", "Vanilla custard")));
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        // Act & Assert: "chicken" is in the name of 2 and only in the description of 3
+        assertEquals(List.of(2L, 3L), menuSearchIndex.search("chicken"));
+    }
+
+    @Test
+    void wholeWordRanksAbovePrefix() {
+        // Act & Assert: 1 has the word "chick", 2 and 3 only words starting with it
+        assertEquals(List.of(1L, 2L, 3L), menuSearchIndex.search("chick"));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        // Act & Assert
+        assertEquals(List.of(3L, 1L), menuSearchIndex.search("salad"));
+        assertEquals(List.of(3L), menuSearchIndex.search("salad grill"));
+        assertTrue(menuSearchIndex.search("salad pizza").isEmpty());
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() {
+        // Act & Assert
+        assertEquals(List.of(4L), menuSearchIndex.search("CREME brul"));
+    }
+
+    @Test
+    void putReindexesAndRemoveUnindexes() {
+        // Act
+        menuSearchIndex.put(menu(2L, "Buffalo Wings", "Spicy wings"));
+        menuSearchIndex.remove(1L);
+
+        // Assert
+        assertEquals(List.of(3L), menuSearchIndex.search("chick"));
+        assertEquals(List.of(2L), menuSearchIndex.search("buffalo"));
+    }
+
+    private static MenuSummaryDTO menu(Long id, String name, String description) {
+        MenuSummaryDTO menu = new MenuSummaryDTO();
+        menu.setId(id);
+        menu.setName(name);
+        menu.setDescription(description);
+        return menu;
+    }
+}
@@ -0,0 +1,65 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Saving a menu loaded before a review or the image pipeline wrote to it must not undo those writes.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // each step commits on its own, like separate requests
+class MenuStaleSaveTest {
+    private static final String IMAGE_URL = "http://localhost:8090/api/files/menus/pizza.jpg";
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        menuRepository.deleteAll();
+    }
+
+    @Test
+    void staleMenuSaveKeepsRatingsAndImageVariants() {
+        // Arrange: an admin opens the menu...
+        Long menuId = menuRepository.save(Menu.builder()
+                .name("Pizza")
+                .price(new BigDecimal("9.50"))
+                .imageUrl(IMAGE_URL)
+                .build()).getId();
+        Menu stale = menuRepository.findById(menuId).orElseThrow();
+
+        // ...while a review is written and the resized copies are recorded
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            menuRepository.addRating(menuId, 8);
+            menuRepository.updateImageVariants(menuId, IMAGE_URL,
+                    "thumb.jpg", "card.jpg", "detail.jpg");
+        });
+
+        // Act: the admin saves the renamed menu from the copy loaded before
+        stale.setName("Margherita");
+        menuRepository.save(stale);
+
+        // Assert
+        Menu saved = menuRepository.findById(menuId).orElseThrow();
+        assertEquals("Margherita", saved.getName());
+        assertEquals(8, saved.getRatingSum());
+        assertEquals(1, saved.getRatingCount());
+        assertEquals("card.jpg", saved.getImageVariants().getCardUrl());
+    }
+}
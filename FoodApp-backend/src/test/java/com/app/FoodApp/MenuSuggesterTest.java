@@ -0,0 +1,107 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.menu.dtos.MenuSuggestionDTO;
+import com.app.FoodApp.menu.dtos.MenuSummaryDTO;
+import com.app.FoodApp.menu.services.MenuSuggester;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MenuSuggesterTest {
+
+    private MenuSuggester menuSuggester;
+
+    @BeforeEach
+    void setUp() {
+        menuSuggester = new MenuSuggester();
+        menuSuggester.rebuild(List.of(
+                        menu(1L, "Chicken Burger"),
+                        menu(2L, "Burger Deluxe"),
+                        menu(3L, "Pizza Margherita"),
+                        menu(4L, "Crème Brûlée")),
+                List.of(Category.builder().id(10L).name("Burgers").build()));
+    }
+
+    @Test
+    void misspeltQueryStillFindsTheMenu() {
+        // Act: one letter missing, one swapped
+        List<String> missingLetter = texts(menuSuggester.suggest("chiken", 5));
+        List<String> wrongLetter = texts(menuSuggester.suggest("pizsa", 5));
+
+        // Assert
+        assertEquals(List.of("Chicken Burger"), missingLetter);
+        assertEquals(List.of("Pizza Margherita"), wrongLetter);
+    }
+
+    @Test
+    void nothingMatchesBeyondTheEditLimit() {
+        // Act & Assert: three edits from "chicken", while 7 letters tolerate two
+        assertTrue(menuSuggester.suggest("chxxxen", 5).isEmpty());
+        // Queries of up to two letters must match exactly
+        assertTrue(menuSuggester.suggest("pz", 5).isEmpty());
+    }
+
+    @Test
+    void matchesAtTheStartOfTheNameRankFirst() {
+        // Act
+        List<MenuSuggestionDTO> suggestions = menuSuggester.suggest("burger", 5);
+
+        // Assert: exact start, then menus before categories, then a later word of the name
+        assertEquals(List.of("Burger Deluxe", "Burgers", "Chicken Burger"), texts(suggestions));
+        assertEquals(MenuSuggestionDTO.Type.CATEGORY, suggestions.get(1).getType());
+    }
+
+    @Test
+    void exactMatchRanksBeforeTypoMatch() {
+        // Arrange: "pizze" is one edit from "pizza" and an exact start of "Pizzeria Special"
+        menuSuggester.put(menu(5L, "Pizzeria Special"));
+
+        // Act & Assert
+        assertEquals(List.of("Pizzeria Special", "Pizza Margherita"), texts(menuSuggester.suggest("pizze", 5)));
+    }
+
+    @Test
+    void accentsAreIgnoredAndRenamesReplaceTheOldName() {
+        // Act
+        menuSuggester.put(menu(1L, "Chicken Wrap"));
+
+        // Assert
+        assertEquals(List.of("Crème Brûlée"), texts(menuSuggester.suggest("creme br", 5)));
+        assertEquals(List.of("Chicken Wrap"), texts(menuSuggester.suggest("chicken", 5)));
+
+        menuSuggester.remove(1L);
+        assertTrue(menuSuggester.suggest("chicken", 5).isEmpty());
+    }
+
+    @Test
+    void limitedLookupReturnsTheBestOfTheFullRanking() {
+        // Arrange
+        for (long id = 10; id < 40; id++) {
+            menuSuggester.put(menu(id, "Burger " + id));
+        }
+
+        // Act
+        List<String> all = texts(menuSuggester.suggest("burgr", 100));
+        List<String> best = texts(menuSuggester.suggest("burgr", 3));
+
+        // Assert: one edit off, the shortest names first
+        assertEquals(all.subList(0, 3), best);
+        assertEquals(List.of("Burger 10", "Burger 11", "Burger 12"), best);
+    }
+
+    private static MenuSummaryDTO menu(Long id, String name) {
+        MenuSummaryDTO menu = new MenuSummaryDTO();
+        menu.setId(id);
+        menu.setName(name);
+        return menu;
+    }
+
+    private static List<String> texts(List<MenuSuggestionDTO> suggestions) {
+        return suggestions.stream().map(MenuSuggestionDTO::getText).toList();
+    }
+}
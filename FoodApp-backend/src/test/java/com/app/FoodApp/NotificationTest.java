@@ -1,6 +1,7 @@
 package com.app.FoodApp;
 
 import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
+import com.app.FoodApp.emailNofitication.repositories.EmailOutboxRepository;
 import com.app.FoodApp.emailNofitication.repositories.NotificationRepository;
 import com.app.FoodApp.emailNofitication.services.NotificationServiceImpl;
 import com.app.FoodApp.enums.NotificationType;
@@ -27,6 +28,9 @@ class NotificationTest {
     @Mock
     private NotificationRepository notificationRepository;
 
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
     @InjectMocks
     private NotificationServiceImpl notificationService;
 
@@ -45,7 +49,7 @@ class NotificationTest {
         when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
 
         // Act
-        notificationService.sendEmail(dto);
+        notificationService.deliver(dto);
 
         // Assert
         // verify mail sending
@@ -75,7 +79,7 @@ class NotificationTest {
         when(mailSender.createMimeMessage()).thenThrow(new RuntimeException("Mail creation failed"));
 
         // Act + Assert
-        assertThrows(RuntimeException.class, () -> notificationService.sendEmail(dto));
+        assertThrows(RuntimeException.class, () -> notificationService.deliver(dto));
 
         // repository should never be called
         verify(notificationRepository, never()).save(any());
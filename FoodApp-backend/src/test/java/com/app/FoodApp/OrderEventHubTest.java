@@ -0,0 +1,191 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.enums.OrderStatus;
+import com.app.FoodApp.enums.PaymentStatus;
+import com.app.FoodApp.order.dtos.OrderStatusEventDTO;
+import com.app.FoodApp.order.services.OrderEventHub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderEventHubTest {
+
+    private final OrderEventHub hub = new OrderEventHub(4, 30, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        hub.stop();
+    }
+
+    @Test
+    void eventReachesOwnerAndStaffOnly() throws Exception {
+        // Arrange
+        RecordingEmitter owner = new RecordingEmitter();
+        RecordingEmitter otherCustomer = new RecordingEmitter();
+        RecordingEmitter staff = new RecordingEmitter();
+        hub.register(owner, 1L, false);
+        hub.register(otherCustomer, 2L, false);
+        hub.register(staff, 99L, true);
+
+        // Act
+        OrderStatusEventDTO event = event(10L, 1L, OrderStatus.CONFIRMED);
+        hub.publish(event);
+
+        // Assert: both got the same, complete frame exactly once
+        owner.awaitEvents(1);
+        staff.awaitEvents(1);
+        List<List<Object>> expected = List.of(List.of("id:1\nevent:order-status\ndata:", event, "\n\n"));
+        assertEquals(expected, owner.frames());
+        assertEquals(expected, staff.frames());
+        assertTrue(otherCustomer.frames().isEmpty());
+    }
+
+    @Test
+    void slowSubscriberDoesNotBlockPublisherAndKeepsLatestEvents() throws Exception {
+        // Arrange: a client that stops reading after the connect comment
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter();
+        hub.register(slow, 1L, false);
+        hub.register(fast, 1L, false);
+        assertTrue(slow.stalled.await(5, TimeUnit.SECONDS));
+
+        // Act
+        long started = System.nanoTime();
+        for (int i = 1; i <= 100; i++) {
+            hub.publish(event((long) i, 1L, OrderStatus.ON_THE_WAY));
+        }
+        long publishMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        fast.awaitData(100L);
+        release.countDown();
+
+        // Assert: the stalled client only gets what fits its buffer, ending with the latest event
+        assertTrue(publishMillis < 1000, "publishing waited for a slow subscriber: " + publishMillis + " ms");
+        slow.awaitData(100L);
+        assertTrue(slow.names().size() <= 1 + 4, "buffer not bounded: " + slow.names().size());
+    }
+
+    @Test
+    void failedSubscriberIsRemoved() throws Exception {
+        // Arrange
+        RecordingEmitter broken = new RecordingEmitter();
+        broken.failing = true;
+        hub.register(broken, 1L, false);
+        hub.register(new RecordingEmitter(), 1L, false);
+
+        // Act
+        hub.publish(event(10L, 1L, OrderStatus.DELIVERED));
+
+        // Assert
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hub.subscriberCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, hub.subscriberCount());
+    }
+
+    private static OrderStatusEventDTO event(Long orderId, Long userId, OrderStatus orderStatus) {
+        return OrderStatusEventDTO.builder()
+                .orderId(orderId)
+                .userId(userId)
+                .orderStatus(orderStatus)
+                .paymentStatus(PaymentStatus.COMPLETED)
+                .changedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Captures what would be written to the client. Optionally blocks after the first write, like a client
+     * whose socket buffer is full.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final CountDownLatch stalled = new CountDownLatch(1);
+        private final List<String> names = new CopyOnWriteArrayList<>();
+        private final List<List<Object>> frames = new CopyOnWriteArrayList<>();
+        private final List<Object> data = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+
+        RecordingEmitter() {
+            this(null);
+        }
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> frame) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            String text = frame.stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .reduce("", String::concat);
+            if (text.startsWith(":")) {
+                // Comments (connect, heartbeat) block like any write, but are not events
+                if (release != null) {
+                    stalled.countDown();
+                    await(release);
+                }
+                return;
+            }
+            frames.add(frame.stream().map(DataWithMediaType::getData).toList());
+            text.lines()
+                    .filter(line -> line.startsWith("event:"))
+                    .forEach(line -> names.add(line.substring("event:".length())));
+            frame.stream()
+                    .map(part -> part.getData())
+                    .filter(OrderStatusEventDTO.class::isInstance)
+                    .forEach(data::add);
+        }
+
+        List<String> names() {
+            return names;
+        }
+
+        List<List<Object>> frames() {
+            return frames;
+        }
+
+        void awaitEvents(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (names.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+
+        void awaitData(Long lastOrderId) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline) {
+                if (!data.isEmpty() && lastOrderId.equals(((OrderStatusEventDTO) data.getLast()).getOrderId())) {
+                    return;
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError("latest event never arrived");
+        }
+
+        private static void await(CountDownLatch latch) {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.category.entities.Category;
+import com.app.FoodApp.category.repositories.CategoryRepository;
+import com.app.FoodApp.enums.DiscountType;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.menu.services.MenuCatalogCache;
+import com.app.FoodApp.menu.services.MenuSearchIndex;
+import com.app.FoodApp.menu.services.MenuSuggester;
+import com.app.FoodApp.promo.entities.PromoCode;
+import com.app.FoodApp.promo.repositories.PromoCodeRepository;
+import com.app.FoodApp.promo.services.PromoEngine;
+import com.app.FoodApp.promo.services.PromoEvaluation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the engine persists in its own transactions
+class PromoEngineTest {
+
+    @Autowired
+    private PromoCodeRepository promoCodeRepository;
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MenuCatalogCache menuCatalogCache;
+
+    private Menu burger;
+
+    private Menu cake;
+
+    @BeforeEach
+    void setUp() {
+        menuCatalogCache = new MenuCatalogCache(menuRepository, categoryRepository,
+                new MenuSearchIndex(), new MenuSuggester(), transactionManager, new SimpleMeterRegistry());
+
+        Category mains = categoryRepository.save(Category.builder().name("Mains").build());
+        Category desserts = categoryRepository.save(Category.builder().name("Desserts").build());
+        burger = menuRepository.save(Menu.builder()
+                .name("Burger")
+                .price(new BigDecimal("8.50"))
+                .category(mains)
+                .build());
+        cake = menuRepository.save(Menu.builder()
+                .name("Cake")
+                .price(new BigDecimal("4.00"))
+                .category(desserts)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        promoCodeRepository.deleteAll();
+        menuRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void discountsFollowTheRules() {
+        // Arrange
+        PromoCode sweet = promo("sweet", DiscountType.PERCENTAGE, "25");
+        sweet.setCategoryId(cake.getCategory().getId());
+        promoCodeRepository.save(sweet);
+        PromoCode big = promo("BIG", DiscountType.FIXED, "5");
+        big.setMinOrderAmount(new BigDecimal("30"));
+        promoCodeRepository.save(big);
+        PromoEngine engine = newEngine();
+
+        // Two burgers and two cakes: 17.00 + 8.00
+        List<PromoEngine.PricedItem> items = List.of(
+                new PromoEngine.PricedItem(burger.getId(), 1700),
+                new PromoEngine.PricedItem(cake.getId(), 800));
+
+        // Act
+        PromoEvaluation onDesserts = engine.evaluate(" Sweet ", items, 2500);
+        PromoEvaluation belowMinimum = engine.evaluate("BIG", items, 2500);
+        PromoEvaluation unknown = engine.evaluate("NOPE", items, 2500);
+
+        // Assert: a quarter off the cakes only
+        assertTrue(onDesserts.applied());
+        assertEquals(200, onDesserts.discountMinor());
+        assertFalse(belowMinimum.applied());
+        assertFalse(unknown.applied());
+    }
+
+    @Test
+    void usageLimitHoldsUnderConcurrentCheckouts() throws Exception {
+        // Arrange
+        PromoCode flash = promo("FLASH", DiscountType.FIXED, "1");
+        flash.setUsageLimit(100L);
+        promoCodeRepository.save(flash);
+        PromoEngine engine = newEngine();
+        List<PromoEngine.PricedItem> items = List.of(new PromoEngine.PricedItem(burger.getId(), 850));
+
+        // Act: 8 threads race for 400 redemptions
+        AtomicInteger redeemed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> checkouts = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                checkouts.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 50; i++) {
+                        if (engine.redeem("FLASH", items, 850).applied()) {
+                            redeemed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> checkout : checkouts) {
+                checkout.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        engine.persistRedemptions();
+
+        // Assert: exactly the limit, written to the row in one delta
+        assertEquals(100, redeemed.get());
+        assertEquals(100, promoCodeRepository.findById(flash.getId()).orElseThrow().getUsedCount());
+        assertFalse(engine.evaluate("FLASH", items, 850).applied());
+    }
+
+    @Test
+    void rolledBackCheckoutGivesRedemptionBack() {
+        // Arrange
+        PromoCode once = promo("ONCE", DiscountType.PERCENTAGE, "10");
+        once.setUsageLimit(1L);
+        promoCodeRepository.save(once);
+        PromoEngine engine = newEngine();
+        List<PromoEngine.PricedItem> items = List.of(new PromoEngine.PricedItem(burger.getId(), 850));
+
+        // Act
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(engine.redeem("ONCE", items, 850).applied());
+            status.setRollbackOnly();
+        });
+        engine.persistRedemptions();
+
+        // Assert
+        assertEquals(0, promoCodeRepository.findById(once.getId()).orElseThrow().getUsedCount());
+        assertEquals(85, engine.redeem("ONCE", items, 850).discountMinor());
+    }
+
+    private PromoEngine newEngine() {
+        return new PromoEngine(promoCodeRepository, menuCatalogCache, transactionManager, new SimpleMeterRegistry());
+    }
+
+    private PromoCode promo(String code, DiscountType discountType, String value) {
+        return PromoCode.builder()
+                .code(PromoEngine.normalize(code))
+                .discountType(discountType)
+                .discountValue(new BigDecimal(value))
+                .active(true)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,226 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.aws.AwsS3ServiceImpl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Uploads through the real S3 client against a minimal S3-compatible server, checking that the file content
+ * is streamed: the heap in use during an upload stays the same whatever the file size.
+ */
+@Slf4j
+class S3StreamingUploadTest {
+    private static final long MB = 1024 * 1024;
+
+    private HttpServer server;
+    private S3Client s3Client;
+    private AwsS3ServiceImpl awsS3Service;
+
+    // "METHOD path?query" and content length of each request the stand-in received
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Long> contentLengths = new CopyOnWriteArrayList<>();
+    private final AtomicInteger etags = new AtomicInteger();
+
+    private volatile boolean sampleHeap;
+    private final List<Long> heapSamples = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        s3Client = S3Client.builder()
+                .endpointOverride(URI.create("http://localhost:" + server.getAddress().getPort()))
+                .forcePathStyle(true)
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .build();
+
+        awsS3Service = new AwsS3ServiceImpl(s3Client);
+        ReflectionTestUtils.setField(awsS3Service, "bucketName", "food-app");
+        ReflectionTestUtils.setField(awsS3Service, "multipartThresholdMb", 8L);
+        ReflectionTestUtils.setField(awsS3Service, "partSizeMb", 5L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void smallFileIsStreamedInOneRequest() {
+        // Act
+        awsS3Service.uploadFile("menus/small.jpg", new GeneratedFile(2 * MB));
+
+        // Assert
+        assertEquals(List.of("PUT /food-app/menus/small.jpg"), requests);
+        assertEquals(List.of(2 * MB), contentLengths);
+    }
+
+    @Test
+    void largeFileIsUploadedInParts() {
+        // Act
+        awsS3Service.uploadFile("menus/large.jpg", new GeneratedFile(12 * MB));
+
+        // Assert: two full parts and the rest
+        assertEquals(List.of(
+                "POST /food-app/menus/large.jpg?uploads",
+                "PUT /food-app/menus/large.jpg?partNumber=1&uploadId=upload-1",
+                "PUT /food-app/menus/large.jpg?partNumber=2&uploadId=upload-1",
+                "PUT /food-app/menus/large.jpg?partNumber=3&uploadId=upload-1",
+                "POST /food-app/menus/large.jpg?uploadId=upload-1"
+        ), requests);
+        assertEquals(List.of(5 * MB, 5 * MB, 2 * MB), contentLengths.subList(1, 4));
+    }
+
+    @Test
+    void heapInUseDuringUploadDoesNotGrowWithFileSize() {
+        // Arrange: warm up the client so class loading and connection setup are not measured
+        awsS3Service.uploadFile("warm-up", new GeneratedFile(9 * MB));
+        long baseline = liveHeap();
+
+        // Act: the stand-in samples the live heap while each request body is halfway through
+        sampleHeap = true;
+        awsS3Service.uploadFile("menus/large.jpg", new GeneratedFile(64 * MB));
+
+        // Assert: less than a single part was held at any point (buffering would hold the file, or at least a part)
+        long peak = heapSamples.stream().mapToLong(Long::longValue).max().orElseThrow() - baseline;
+        log.info("Heap in use during a 64 MB upload: {} KB above baseline, {} samples", peak / 1024, heapSamples.size());
+        assertEquals(13, heapSamples.size()); // one per part
+        assertTrue(peak < 5 * MB, "64 MB upload kept " + peak / MB + " MB on the heap");
+    }
+
+    private static long liveHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String target = exchange.getRequestURI().getPath() + (query != null ? "?" + query : "");
+
+        // Chunked (signed) uploads carry the content length in a header
+        String decodedLength = exchange.getRequestHeaders().getFirst("x-amz-decoded-content-length");
+        long halfway = decodedLength != null ? Long.parseLong(decodedLength) / 2 : Long.MAX_VALUE;
+
+        long received = 0;
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = body.read(buffer)) > 0; ) {
+                if (sampleHeap && received < halfway && received + read >= halfway) {
+                    // The client is blocked mid-body, so whatever it buffered is live now
+                    heapSamples.add(liveHeap());
+                }
+                received += read;
+            }
+        }
+        requests.add(exchange.getRequestMethod() + " " + target);
+        contentLengths.add(decodedLength != null ? Long.parseLong(decodedLength) : received);
+
+        String response = "";
+        if (query != null && query.startsWith("uploads")) {
+            response = "<InitiateMultipartUploadResult><Bucket>food-app</Bucket><Key>k</Key>"
+                    + "<UploadId>upload-1</UploadId></InitiateMultipartUploadResult>";
+        } else if (exchange.getRequestMethod().equals("POST")) {
+            response = "<CompleteMultipartUploadResult><ETag>\"done\"</ETag></CompleteMultipartUploadResult>";
+        }
+
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("ETag", "\"etag-" + etags.incrementAndGet() + "\"");
+        exchange.sendResponseHeaders(200, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    /**
+     * A multipart file whose content is generated while it is read, so the test itself holds none of it.
+     */
+    private record GeneratedFile(long size) implements MultipartFile {
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "image.jpg";
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new AssertionError("upload read the whole file into memory");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long position;
+
+                @Override
+                public int read() {
+                    return position < size ? (int) (position++ & 0xFF) : -1;
+                }
+
+                @Override
+                public int read(byte[] buffer, int off, int len) {
+                    if (position >= size) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(len, size - position);
+                    for (int i = 0; i < count; i++) {
+                        buffer[off + i] = (byte) (position++ & 0xFF);
+                    }
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
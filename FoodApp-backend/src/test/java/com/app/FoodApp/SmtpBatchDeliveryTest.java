@@ -0,0 +1,92 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
+import com.app.FoodApp.emailNofitication.repositories.EmailOutboxRepository;
+import com.app.FoodApp.emailNofitication.repositories.NotificationRepository;
+import com.app.FoodApp.emailNofitication.services.NotificationServiceImpl;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Batched email delivery against an in-process SMTP server (GreenMail).
+ */
+class SmtpBatchDeliveryTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private NotificationRepository notificationRepository;
+
+    private NotificationServiceImpl notificationService;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost(ServerSetupTest.SMTP.getBindAddress());
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+
+        notificationRepository = mock(NotificationRepository.class);
+        notificationService = new NotificationServiceImpl(mailSender, notificationRepository,
+                mock(EmailOutboxRepository.class), null);
+        ReflectionTestUtils.setField(notificationService, "smtpBatchSize", 50);
+    }
+
+    @Test
+    void shouldDeliverBatchLargerThanOneConnection() {
+        // Arrange: 120 emails = three SMTP connections of at most 50 messages
+        List<NotificationDTO> emails = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            emails.add(email("customer" + i + "@example.com"));
+        }
+
+        // Act
+        Map<Integer, Exception> failures = notificationService.deliverBatch(emails);
+
+        // Assert
+        assertTrue(failures.isEmpty());
+        assertEquals(120, greenMail.getReceivedMessages().length);
+        verify(notificationRepository).saveAll(argThat(sent -> ((List<?>) sent).size() == 120));
+    }
+
+    @Test
+    void shouldReportOnlyTheFailedEmailOfABatch() {
+        // Arrange
+        List<NotificationDTO> emails = List.of(
+                email("first@example.com"),
+                email("not an address"),
+                email("third@example.com"));
+
+        // Act
+        Map<Integer, Exception> failures = notificationService.deliverBatch(emails);
+
+        // Assert
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(1));
+        assertEquals(2, greenMail.getReceivedMessages().length);
+        verify(notificationRepository).saveAll(argThat(sent -> ((List<?>) sent).size() == 2));
+    }
+
+    private static NotificationDTO email(String recipient) {
+        return NotificationDTO.builder()
+                .recipient(recipient)
+                .subject("Your Order Confirmation")
+                .body("<p>Thanks for your order</p>")
+                .isHtml(true)
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+package com.app.FoodApp;
+
+import com.app.FoodApp.authUsers.entities.User;
+import com.app.FoodApp.authUsers.repositories.UserRepository;
+import com.app.FoodApp.aws.AwsS3Service;
+import com.app.FoodApp.aws.LocalFileStorageServiceImpl;
+import com.app.FoodApp.menu.entities.Menu;
+import com.app.FoodApp.menu.repositories.MenuRepository;
+import com.app.FoodApp.storage.entities.StoredObject;
+import com.app.FoodApp.storage.repositories.StoredObjectRepository;
+import com.app.FoodApp.storage.services.StorageDeletionQueue;
+import com.app.FoodApp.storage.services.StorageGarbageCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the collector writes in its own transactions
+class StorageCleanupTest {
+    private static final String BASE_URL = "http://localhost:8090/api/files/";
+
+    @Autowired
+    private MenuRepository menuRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StoredObjectRepository storedObjectRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path storageRoot;
+
+    private LocalFileStorageServiceImpl storage;
+    private StorageDeletionQueue deletionQueue;
+    private StorageGarbageCollector garbageCollector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new LocalFileStorageServiceImpl(storageRoot.toString(), BASE_URL);
+        deletionQueue = new StorageDeletionQueue(storage, storedObjectRepository, 100, 1000, new SimpleMeterRegistry());
+        garbageCollector = new StorageGarbageCollector(storage, menuRepository, userRepository,
+                storedObjectRepository, deletionQueue, transactionManager, 24, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        menuRepository.deleteAll();
+        userRepository.deleteAll();
+        storedObjectRepository.deleteAll();
+    }
+
+    @Test
+    void queuedKeysAreDeletedInBatches() {
+        // Arrange
+        AwsS3Service s3 = mock(AwsS3Service.class);
+        StorageDeletionQueue queue = new StorageDeletionQueue(s3, mock(StoredObjectRepository.class), 5000, 1000, new SimpleMeterRegistry());
+        queue.enqueue(IntStream.range(0, 2500).mapToObj(i -> "menus/" + i + ".jpg").toList());
+        verifyNoInteractions(s3); // nothing is deleted on the caller's thread
+
+        // Act
+        queue.flush();
+
+        // Assert: one request per 1000 keys
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(s3, times(3)).deleteFiles(batches.capture());
+        assertEquals(List.of(1000, 1000, 500), batches.getAllValues().stream().map(Collection::size).toList());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void cancelledKeyIsNotDeleted() {
+        // Arrange
+        AwsS3Service s3 = mock(AwsS3Service.class);
+        StorageDeletionQueue queue = new StorageDeletionQueue(s3, mock(StoredObjectRepository.class), 100, 1000, new SimpleMeterRegistry());
+        queue.enqueue(List.of("menus/a.jpg", "menus/b.jpg"));
+
+        // Act
+        queue.cancel("menus/a.jpg");
+        queue.flush();
+
+        // Assert
+        verify(s3).deleteFiles(List.of("menus/b.jpg"));
+        verify(s3, times(1)).deleteFiles(anyCollection());
+    }
+
+    @Test
+    void keyStoredAgainByAnotherInstanceIsNotDeleted() throws IOException {
+        // Arrange: this instance queued the object and its resized copy after dropping the last reference...
+        store("menus/shared.jpg", false);
+        store("menus/shared_thumb.jpg", false);
+        store("menus/unused.jpg", false);
+        deletionQueue.enqueue(List.of("menus/shared_thumb.jpg", "menus/shared.jpg", "menus/unused.jpg"));
+        // ...and another instance stored the same content again before the queue was flushed
+        storedObjectRepository.save(StoredObject.builder()
+                .key("menus/shared.jpg")
+                .refCount(1)
+                .createdAt(LocalDateTime.now())
+                .referencedAt(LocalDateTime.now())
+                .build());
+
+        // Act
+        deletionQueue.flush();
+
+        // Assert
+        assertTrue(Files.exists(storageRoot.resolve("menus/shared.jpg")));
+        assertTrue(Files.exists(storageRoot.resolve("menus/shared_thumb.jpg")));
+        assertFalse(Files.exists(storageRoot.resolve("menus/unused.jpg")));
+    }
+
+    @Test
+    void garbageCollectorRemovesOnlyOldUnreferencedObjects() throws IOException {
+        // Arrange: images in use (with a resized copy), orphans, and a fresh upload whose menu is not saved yet
+        store("menus/used.jpg", true);
+        store("menus/used_thumb.jpg", true);
+        store("profile/avatar 1.png", true);
+        store("menus/orphan.jpg", true);
+        store("menus/orphan_card.jpg", true);
+        store("profile/old.png", true);
+        store("menus/fresh.jpg", false);
+        saveMenu(BASE_URL + "menus/used.jpg");
+        saveUser(BASE_URL + "profile/avatar%201.png");
+        // A menu linking an image stored elsewhere is ignored
+        saveMenu("https://cdn.example.com/menus/orphan.jpg");
+
+        // Act
+        garbageCollector.collect();
+        deletionQueue.flush();
+
+        // Assert
+        assertTrue(Files.exists(storageRoot.resolve("menus/used.jpg")));
+        assertTrue(Files.exists(storageRoot.resolve("menus/used_thumb.jpg")));
+        assertTrue(Files.exists(storageRoot.resolve("profile/avatar 1.png")));
+        assertTrue(Files.exists(storageRoot.resolve("menus/fresh.jpg")));
+        assertFalse(Files.exists(storageRoot.resolve("menus/orphan.jpg")));
+        assertFalse(Files.exists(storageRoot.resolve("menus/orphan_card.jpg")));
+        assertFalse(Files.exists(storageRoot.resolve("profile/old.png")));
+    }
+
+    @Test
+    void garbageCollectorKeepsContentReferencedAgainRecently() throws IOException {
+        // Arrange: an old object that a menu being created right now took a reference to
+        store("menus/shared.jpg", true);
+        storedObjectRepository.save(StoredObject.builder()
+                .key("menus/shared.jpg")
+                .refCount(1)
+                .createdAt(LocalDateTime.now().minusDays(3))
+                .referencedAt(LocalDateTime.now())
+                .build());
+        // ...and an old one whose counter leaked when saving its menu failed
+        store("menus/leaked.jpg", true);
+        storedObjectRepository.save(StoredObject.builder()
+                .key("menus/leaked.jpg")
+                .refCount(1)
+                .createdAt(LocalDateTime.now().minusDays(3))
+                .referencedAt(LocalDateTime.now().minusDays(3))
+                .build());
+
+        // Act
+        garbageCollector.collect();
+        deletionQueue.flush();
+
+        // Assert
+        assertTrue(Files.exists(storageRoot.resolve("menus/shared.jpg")));
+        assertTrue(storedObjectRepository.existsById("menus/shared.jpg"));
+        assertFalse(Files.exists(storageRoot.resolve("menus/leaked.jpg")));
+        assertFalse(storedObjectRepository.existsById("menus/leaked.jpg"));
+    }
+
+    private void store(String key, boolean old) throws IOException {
+        storage.uploadBytes(key, new byte[]{1, 2, 3}, "image/jpeg");
+        if (old) {
+            Files.setLastModifiedTime(storageRoot.resolve(key),
+                    FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+    }
+
+    private void saveMenu(String imageUrl) {
+        menuRepository.save(Menu.builder()
+                .name("Pizza")
+                .price(new BigDecimal("9.50"))
+                .imageUrl(imageUrl)
+                .build());
+    }
+
+    private void saveUser(String profileUrl) {
+        userRepository.save(User.builder()
+                .name("Alex")
+                .email("alex@example.com")
+                .password("secret")
+                .profileUrl(profileUrl)
+                .isActive(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,93 @@
+package com.app.FoodApp.benchmarks;
+
+import com.app.FoodApp.emailNofitication.services.EmailRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering one order confirmation email (10 items): template parsed for every email
+ * against the pre-parsed, cached template used by {@link EmailRenderer}.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.app.FoodApp.benchmarks.EmailRenderingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailRenderingBenchmark {
+    private EmailRenderer parsedEveryTime;
+    private EmailRenderer cached;
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setUp() {
+        parsedEveryTime = new EmailRenderer(templateEngine(false), new SimpleMeterRegistry());
+        cached = new EmailRenderer(templateEngine(true), new SimpleMeterRegistry());
+        cached.warmUp();
+
+        List<Map<String, Object>> orderItems = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            orderItems.add(Map.of("name", "Dish " + i, "quantity", i + 1, "subtotal", (i + 1) * 9.99 + ""));
+        }
+
+        variables = new HashMap<>();
+        variables.put("customerName", "Alex");
+        variables.put("orderId", "42");
+        variables.put("orderDate", "2025-01-01T12:00");
+        variables.put("deliveryAddress", "1 Main Street");
+        variables.put("totalItems", orderItems.size());
+        variables.put("orderItems", orderItems);
+        variables.put("totalAmount", "549.45");
+        variables.put("paymentLink", "http://localhost:3000/pay?orderid=42&amount=549.45");
+        variables.put("currentYear", 2025);
+    }
+
+    private static SpringTemplateEngine templateEngine(boolean cacheable) {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setCacheable(cacheable);
+
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        return templateEngine;
+    }
+
+    @Benchmark
+    public String parsedEveryTime() {
+        return parsedEveryTime.render("order-confirmation", variables);
+    }
+
+    @Benchmark
+    public String cached() {
+        return cached.render("order-confirmation", variables);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailRenderingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.app.FoodApp.benchmarks;
+
+import com.app.FoodApp.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT cost in AuthFilter: the old flow (three parser builds and three signature checks)
+ * against one verified parse with a shared parser.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.app.FoodApp.benchmarks.JwtValidationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtValidationBenchmark {
+    private static final String SECRET = "benchmark-secret-key-that-is-at-least-256-bits-long";
+    private static final String EMAIL = "customer@example.com";
+
+    private JwtUtils jwtUtils;
+    private SecretKey secretKey;
+    private String token;
+    private UserDetails userDetails;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secretJwtString", SECRET);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        token = jwtUtils.generateToken(EMAIL);
+        userDetails = User.withUsername(EMAIL).password("unused").authorities("CUSTOMER").build();
+    }
+
+    // What AuthFilter did before: getUserNameFromToken, then isTokenValid (subject + expiry), each parsing anew
+    @Benchmark
+    public boolean tripleParse() {
+        String email = freshParse().getSubject();
+        String username = freshParse().getSubject();
+        Date expiration = freshParse().getExpiration();
+        return email != null && username.equals(userDetails.getUsername()) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public boolean singleParse() {
+        Claims claims = jwtUtils.parseClaims(token);
+        return claims.getSubject() != null && jwtUtils.isTokenValid(claims, userDetails);
+    }
+
+    private Claims freshParse() {
+        return Jwts.parser()
+                .verifyWith(secretKey)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtValidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
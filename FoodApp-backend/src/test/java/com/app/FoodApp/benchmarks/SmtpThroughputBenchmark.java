@@ -0,0 +1,111 @@
+package com.app.FoodApp.benchmarks;
+
+import com.app.FoodApp.emailNofitication.dtos.NotificationDTO;
+import com.app.FoodApp.emailNofitication.repositories.EmailOutboxRepository;
+import com.app.FoodApp.emailNofitication.repositories.NotificationRepository;
+import com.app.FoodApp.emailNofitication.services.NotificationServiceImpl;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Emails per second against a local SMTP server (GreenMail): one connection per email
+ * against the batched mode that sends up to 50 emails per connection.
+ * Over a real server with STARTTLS the per-connection cost, and so the gap, is much larger.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.app.FoodApp.benchmarks.SmtpThroughputBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmtpThroughputBenchmark {
+    private static final int EMAILS = 50;
+
+    private GreenMail greenMail;
+    private NotificationServiceImpl notificationService;
+    private List<NotificationDTO> emails;
+
+    @Setup
+    public void setUp() {
+        greenMail = new GreenMail(new ServerSetup(3125, "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+        greenMail.start();
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(3125);
+
+        // stubOnly: the repositories are called for every email, nothing should be recorded
+        notificationService = new NotificationServiceImpl(mailSender,
+                mock(NotificationRepository.class, withSettings().stubOnly()),
+                mock(EmailOutboxRepository.class, withSettings().stubOnly()),
+                null);
+        ReflectionTestUtils.setField(notificationService, "smtpBatchSize", EMAILS);
+
+        emails = new ArrayList<>();
+        for (int i = 0; i < EMAILS; i++) {
+            emails.add(NotificationDTO.builder()
+                    .recipient("customer" + i + "@example.com")
+                    .subject("Your Order Confirmation - Order #" + i)
+                    .body("<p>Thanks for your order</p>")
+                    .isHtml(true)
+                    .build());
+        }
+    }
+
+    // Keeps the server's mailboxes from growing across iterations
+    @TearDown(Level.Iteration)
+    public void purgeMailboxes() throws Exception {
+        greenMail.purgeEmailFromAllMailboxes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        greenMail.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMAILS)
+    public void connectionPerEmail() {
+        emails.forEach(notificationService::deliver);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMAILS)
+    public Map<Integer, Exception> batched() {
+        return notificationService.deliverBatch(emails);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SmtpThroughputBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
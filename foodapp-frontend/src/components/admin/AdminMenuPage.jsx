@@ -74,7 +74,7 @@ const AdminMenuPage = () => {
               <p className="item-description">{item.description}</p>
               <div className="item-footer">
                 <span className="reviews-count">
-                  {item.reviews?.length || 0} reviews
+                  {item.reviewCount ?? 0} reviews
                 </span>
                 <div className="item-actions">
                   <button